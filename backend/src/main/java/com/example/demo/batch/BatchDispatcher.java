@@ -0,0 +1,344 @@
+package com.example.demo.batch;
+
+import com.example.demo.limit.LoadShedder;
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.RequestPaths;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the sub-requests of one POST /api/batch.
+ *
+ * The batch request went through the security filter chain once (bearer
+ * token decoding, role conversion, CORS, load shedding); its sub-requests
+ * do not. Each one is charged to the client's rate like a direct request
+ * (LoadShedder, answered 429 when over it), checked against the same
+ * AuthorizationRuleTable by the same decoded path (denials answered by the
+ * AccessDeniedHandler, so they are counted and audited alike), then
+ * dispatched to the DispatcherServlet with the batch's SecurityContext, so
+ * method security and argument resolution see the same Authentication.
+ * Sub-requests dispatched on the executor each hold a concurrency slot of
+ * their own while they run (answered 503 when the limit is reached), so a
+ * batch cannot get around load shedding.
+ *
+ * Sub-requests run in parallel on the given executor, the first one on the
+ * request thread itself, and each response is written to the batch response
+ * as soon as it completes (so in completion order, identified by id):
+ *
+ * {"responses":[{"id":"me","status":200,"headers":{...},"body":{...}}, ...]}
+ *
+ * Sub-requests still running when the timeout expires are cancelled and
+ * reported with status 504.
+ */
+public class BatchDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchDispatcher.class);
+
+    private static final String API_PREFIX = "/api/";
+    private static final String BATCH_PATH = "/api/batch";
+    private static final Map<String, List<String>> RETRY_AFTER_HEADERS =
+            Map.of(HttpHeaders.RETRY_AFTER, List.of("1"));
+
+    private final DispatcherServlet dispatcherServlet;
+    private final AuthorizationRuleTable authorizationRules;
+    private final AccessDeniedHandler accessDeniedHandler;
+    private final LoadShedder loadShedder;
+    private final Executor executor;
+    private final ObjectMapper objectMapper;
+    private final int maxRequests;
+    private final Duration timeout;
+
+    /**
+     * @param loadShedder null if load shedding is disabled
+     */
+    public BatchDispatcher(DispatcherServlet dispatcherServlet, AuthorizationRuleTable authorizationRules,
+                           AccessDeniedHandler accessDeniedHandler, LoadShedder loadShedder, Executor executor,
+                           ObjectMapper objectMapper, int maxRequests, Duration timeout) {
+        this.dispatcherServlet = dispatcherServlet;
+        this.authorizationRules = authorizationRules;
+        this.accessDeniedHandler = accessDeniedHandler;
+        this.loadShedder = loadShedder;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.maxRequests = maxRequests;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Why the batch as a whole is rejected, or null if it can run
+     * (invalid sub-requests are answered individually)
+     */
+    public String validate(BatchRequest batch) {
+        if (batch == null || batch.requests() == null || batch.requests().isEmpty()) {
+            return "The batch has no requests";
+        }
+        if (batch.requests().size() > maxRequests) {
+            return "A batch has at most " + maxRequests + " requests";
+        }
+        return null;
+    }
+
+    /**
+     * Run a validated batch and stream the responses
+     */
+    public void execute(BatchRequest batch, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        SubRequest.Origin origin = SubRequest.Origin.of(request);
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+
+        List<BatchRequest.Part> parts = batch.requests();
+        List<Result> ready = new ArrayList<>();
+        List<Runnable> inline = new ArrayList<>();
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<Result>, String> pending = new IdentityHashMap<>();
+        for (int i = 0; i < parts.size(); i++) {
+            BatchRequest.Part part = parts.get(i);
+            String id = part.id() != null ? part.id() : String.valueOf(i);
+            String invalid = invalidReason(part);
+            if (invalid != null) {
+                ready.add(new Result(id, HttpStatus.BAD_REQUEST.value(), Map.of(),
+                        ErrorResponseWriter.badRequest(invalid), true, StandardCharsets.UTF_8));
+            } else if (!withinRate(part, securityContext.getAuthentication(), origin)) {
+                ready.add(new Result(id, HttpStatus.TOO_MANY_REQUESTS.value(), RETRY_AFTER_HEADERS,
+                        ErrorResponseWriter.rateLimited(), true, StandardCharsets.UTF_8));
+            } else if (inline.isEmpty()) {
+                // Keep the request thread busy with the first valid sub-request instead of waiting
+                inline.add(() -> ready.add(run(id, part, request, response, origin, true)));
+            } else {
+                try {
+                    pending.put(completion.submit(new DelegatingSecurityContextCallable<>(
+                            () -> run(id, part, request, response, origin, false), securityContext)), id);
+                } catch (RejectedExecutionException e) {
+                    ready.add(statusOnly(id, HttpStatus.SERVICE_UNAVAILABLE));
+                }
+            }
+        }
+        inline.forEach(Runnable::run);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(ErrorResponseWriter.CONTENT_TYPE);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("responses");
+            for (Result result : ready) {
+                write(json, result);
+            }
+            json.flush();
+            while (!pending.isEmpty()) {
+                Future<Result> done = poll(completion, deadline - System.nanoTime());
+                if (done == null) {
+                    break;
+                }
+                String id = pending.remove(done);
+                write(json, resultOf(done, id));
+                json.flush();
+            }
+            for (Map.Entry<Future<Result>, String> timedOut : pending.entrySet()) {
+                timedOut.getKey().cancel(true);
+                write(json, statusOnly(timedOut.getValue(), HttpStatus.GATEWAY_TIMEOUT));
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * @param onRequestThread the sub-request runs on the batch's own thread,
+     *                        under the concurrency slot the batch was admitted with
+     */
+    private Result run(String id, BatchRequest.Part part, HttpServletRequest request, HttpServletResponse response,
+                       SubRequest.Origin origin, boolean onRequestThread) {
+        int query = part.path().indexOf('?');
+        String path = query < 0 ? part.path() : part.path().substring(0, query);
+        SubResponse subResponse = new SubResponse(response);
+        try {
+            // Built in here so a sub-request that cannot be built fails alone, not the whole batch
+            SubRequest subRequest = new SubRequest(request, origin, part.method().toUpperCase(), path,
+                    query < 0 ? null : part.path().substring(query + 1), body(part));
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String matched = RequestPaths.of(subRequest);
+            if (matched == null || !authorizationRules.isGranted(matched, authentication)) {
+                accessDeniedHandler.handle(subRequest, subResponse, new AccessDeniedException("Access Denied"));
+            } else if (onRequestThread || loadShedder == null) {
+                dispatcherServlet.service(subRequest, subResponse);
+            } else if (loadShedder.tryAdmit(loadShedder.priority(matched, authentication != null))
+                    == LoadShedder.Decision.ADMITTED) {
+                // Each sub-request on the executor takes a slot like a direct request
+                long start = System.nanoTime();
+                try {
+                    dispatcherServlet.service(subRequest, subResponse);
+                } finally {
+                    loadShedder.release(start);
+                }
+            } else {
+                return new Result(id, HttpStatus.SERVICE_UNAVAILABLE.value(), RETRY_AFTER_HEADERS,
+                        ErrorResponseWriter.overloaded(), true, StandardCharsets.UTF_8);
+            }
+        } catch (Exception e) {
+            log.warn("Batch sub-request {} {} failed", part.method(), path, e);
+            return statusOnly(id, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return new Result(id, subResponse.getStatus(), subResponse.headers(), subResponse.body(), subResponse.isJson(),
+                Charset.forName(subResponse.getCharacterEncoding()));
+    }
+
+    /**
+     * Charge a valid sub-request to the client's rate, like the rate limit
+     * filter does for a direct request: a batch must not multiply it
+     */
+    private boolean withinRate(BatchRequest.Part part, Authentication authentication, SubRequest.Origin origin) {
+        if (loadShedder == null) {
+            return true;
+        }
+        int query = part.path().indexOf('?');
+        String path = query < 0 ? part.path() : part.path().substring(0, query);
+        return loadShedder.tryAcquireRate(path, authentication, origin.remoteAddr(), System.nanoTime())
+                == LoadShedder.Decision.ADMITTED;
+    }
+
+    private byte[] body(BatchRequest.Part part) {
+        if (part.body() == null || part.body().isNull()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsBytes(part.body());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode a sub-request body", e);
+        }
+    }
+
+    /**
+     * Sub-requests bypass the container's path normalization and the
+     * firewall, so only plain, normalized paths under /api are accepted.
+     * The '%' and ';' checks go with RequestPaths: rules see the decoded
+     * path either way, and rejecting encoded and matrix-parameter paths
+     * outright keeps sub-requests to what StrictHttpFirewall lets through.
+     */
+    static String invalidReason(BatchRequest.Part part) {
+        if (part.method() == null
+                || !("GET".equalsIgnoreCase(part.method()) || "POST".equalsIgnoreCase(part.method()))) {
+            return "Sub-request method must be GET or POST";
+        }
+        String path = part.path();
+        if (path == null || !path.startsWith(API_PREFIX)) {
+            return "Sub-request path must be under " + API_PREFIX;
+        }
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            if (!isDecodable(path.substring(query + 1))) {
+                return "Sub-request query is malformed";
+            }
+            path = path.substring(0, query);
+        }
+        if (path.equals(BATCH_PATH) || path.startsWith(BATCH_PATH + "/")) {
+            return "Batches cannot be nested";
+        }
+        if (path.contains("//") || path.contains("/./") || path.contains("/../") || path.endsWith("/.")
+                || path.endsWith("/..") || path.indexOf('\\') >= 0 || path.indexOf(';') >= 0
+                || path.indexOf('%') >= 0) {
+            return "Sub-request path must be normalized";
+        }
+        return null;
+    }
+
+    /**
+     * Whether SubRequest can decode the query's parameters (every '%' starts an escape)
+     */
+    private static boolean isDecodable(String query) {
+        try {
+            URLDecoder.decode(query, StandardCharsets.UTF_8);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static Future<Result> poll(CompletionService<Result> completion, long remainingNanos) {
+        if (remainingNanos <= 0) {
+            return null;
+        }
+        try {
+            return completion.poll(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static Result resultOf(Future<Result> future, String id) {
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return statusOnly(id, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static Result statusOnly(String id, HttpStatus status) {
+        return new Result(id, status.value(), Map.of(), new byte[0], false, StandardCharsets.UTF_8);
+    }
+
+    private static void write(JsonGenerator json, Result result) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", result.id());
+        json.writeNumberField("status", result.status());
+        if (!result.headers().isEmpty()) {
+            json.writeObjectFieldStart("headers");
+            for (Map.Entry<String, List<String>> header : result.headers().entrySet()) {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+                    // Framing of the sub-response only
+                    continue;
+                }
+                json.writeStringField(header.getKey(), String.join(", ", header.getValue()));
+            }
+            json.writeEndObject();
+        }
+        if (result.body().length > 0) {
+            json.writeFieldName("body");
+            if (result.json()) {
+                json.writeRawValue(new String(result.body(), result.charset()));
+            } else {
+                json.writeString(new String(result.body(), result.charset()));
+            }
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * A completed sub-request; json bodies are embedded as is, others as a string
+     */
+    private record Result(String id, int status, Map<String, List<String>> headers, byte[] body, boolean json,
+                          Charset charset) {
+    }
+}
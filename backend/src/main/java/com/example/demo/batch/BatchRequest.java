@@ -0,0 +1,22 @@
+package com.example.demo.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/batch.
+ *
+ * @param requests sub-requests, run in parallel
+ */
+public record BatchRequest(List<Part> requests) {
+
+    /**
+     * @param id     echoed in the part's response (defaults to its index)
+     * @param method GET or POST
+     * @param path   path under /api, with an optional query string
+     * @param body   JSON request body (POST)
+     */
+    public record Part(String id, String method, String path, JsonNode body) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.demo.batch;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One sub-request of a batch, dispatched to the DispatcherServlet on a
+ * worker thread while the batch request is still being served.
+ *
+ * Method, path, query parameters, body and attributes are its own. Headers
+ * (Authorization, ...) are read from the batch request, which is safe
+ * concurrently; everything the container computes lazily on first access
+ * (client address, locales, cookies) is copied into an Origin on the
+ * request thread first, so workers never mutate the container's request.
+ * Conditional headers (If-None-Match, ...) of the batch request are hidden:
+ * they were not meant for its sub-requests.
+ */
+final class SubRequest extends HttpServletRequestWrapper {
+
+    /**
+     * Values of the batch request shared by its sub-requests
+     */
+    record Origin(String scheme, String serverName, int serverPort, String contextPath,
+                  String remoteAddr, String remoteHost, int remotePort, List<Locale> locales, Cookie[] cookies) {
+
+        static Origin of(HttpServletRequest request) {
+            return new Origin(request.getScheme(), request.getServerName(), request.getServerPort(),
+                    request.getContextPath(), request.getRemoteAddr(), request.getRemoteHost(),
+                    request.getRemotePort(), Collections.list(request.getLocales()), request.getCookies());
+        }
+    }
+
+    private final Origin origin;
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final byte[] body;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    SubRequest(HttpServletRequest batch, Origin origin, String method, String path, String queryString,
+               byte[] body) {
+        super(batch);
+        this.origin = origin;
+        this.method = method;
+        this.path = path;
+        this.queryString = queryString;
+        this.body = body;
+        this.parameters = parseQuery(queryString);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return origin.contextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer().append(origin.scheme()).append("://").append(origin.serverName());
+        if (!("http".equals(origin.scheme()) && origin.serverPort() == 80)
+                && !("https".equals(origin.scheme()) && origin.serverPort() == 443)) {
+            url.append(':').append(origin.serverPort());
+        }
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getContextPath() {
+        return origin.contextPath();
+    }
+
+    @Override
+    public String getServletPath() {
+        // The DispatcherServlet is mapped to "/"
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            return getContentType();
+        }
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            return body != null ? String.valueOf(body.length) : null;
+        }
+        if (HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+            return MediaType.APPLICATION_JSON_VALUE;
+        }
+        if (isConditional(name)) {
+            return null;
+        }
+        return super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                || HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+            String value = getHeader(name);
+            return value != null ? Collections.enumeration(List.of(value)) : Collections.emptyEnumeration();
+        }
+        if (isConditional(name)) {
+            return Collections.emptyEnumeration();
+        }
+        return super.getHeaders(name);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        return isConditional(name) ? -1 : super.getDateHeader(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            return getContentLength();
+        }
+        return super.getIntHeader(name);
+    }
+
+    @Override
+    public String getContentType() {
+        return body != null ? MediaType.APPLICATION_JSON_VALUE : null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return body != null ? body.length : -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return getContentLength();
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public void setCharacterEncoding(String encoding) {
+        // Always UTF-8 JSON
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream in = new ByteArrayInputStream(body != null ? body : new byte[0]);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException("Batch sub-requests are read synchronously");
+            }
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                return in.read(buffer, offset, length);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return origin.remoteAddr();
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return origin.remoteHost();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return origin.remotePort();
+    }
+
+    @Override
+    public Locale getLocale() {
+        return origin.locales().isEmpty() ? Locale.getDefault() : origin.locales().get(0);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(origin.locales());
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return origin.cookies();
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new IllegalStateException("Batch sub-requests have no session");
+        }
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    private static boolean isConditional(String header) {
+        return header.regionMatches(true, 0, "If-", 0, 3);
+    }
+
+    private static Map<String, String[]> parseQuery(String queryString) {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        if (queryString == null || queryString.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : queryString.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.merge(name, new String[] {value}, (existing, added) -> {
+                String[] merged = new String[existing.length + 1];
+                System.arraycopy(existing, 0, merged, 0, existing.length);
+                merged[existing.length] = added[0];
+                return merged;
+            });
+        }
+        return parameters;
+    }
+}
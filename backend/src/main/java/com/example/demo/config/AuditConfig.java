@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import com.example.demo.security.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Security audit log (disabled with app.security.audit.enabled=false), fed by
+ * the authentication entry points, the access denied handlers and
+ * RequiresRoleAuthorizationManager. Its meters are bound as a MeterBinder.
+ */
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+@ConditionalOnProperty(name = "app.security.audit.enabled", matchIfMissing = true)
+public class AuditConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditConfig.class);
+
+    // Closed on shutdown after writing what is still buffered
+    @Bean(destroyMethod = "close")
+    public AuditLog auditLog(AuditProperties properties) {
+        Path file = StringUtils.hasText(properties.file())
+                ? Path.of(properties.file())
+                : Path.of(System.getProperty("java.io.tmpdir"), "keycloak-audit.log");
+        AuditLog auditLog = new AuditLog(file, properties.bufferSize(), properties.batchSize(),
+                properties.flushInterval(), properties.maxFileSize().toBytes(), properties.maxFiles(),
+                properties.successSampleRate());
+        auditLog.start();
+        log.info("Security audit log enabled ({}, success sample rate {})", file,
+                properties.successSampleRate());
+        return auditLog;
+    }
+}
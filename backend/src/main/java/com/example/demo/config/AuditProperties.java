@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Security audit log (app.security.audit).
+ *
+ * @param enabled           record 401s, 403s and @RequiresRole decisions
+ * @param file              audit file, rolled copies being file.1, file.2, ... (default: keycloak-audit.log
+ *                          in the temporary directory)
+ * @param bufferSize        events held in memory (power of two); events beyond it are dropped
+ * @param batchSize         events encoded and written per write
+ * @param flushInterval     how often an idle writer checks for new events
+ * @param maxFileSize       the file is rolled before it grows past this
+ * @param maxFiles          files kept, including the current one
+ * @param successSampleRate share of granted @RequiresRole checks recorded (denials always are)
+ */
+@ConfigurationProperties("app.security.audit")
+public record AuditProperties(
+        @DefaultValue("true") boolean enabled,
+        String file,
+        @DefaultValue("8192") int bufferSize,
+        @DefaultValue("256") int batchSize,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("10MB") DataSize maxFileSize,
+        @DefaultValue("5") int maxFiles,
+        @DefaultValue("1.0") double successSampleRate) {
+}
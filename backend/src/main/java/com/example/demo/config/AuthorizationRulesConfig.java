@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.PathPatternTrie;
+import com.example.demo.security.RoleDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles app.security.authorization.rules into the AuthorizationRuleTable
+ * shared by SecurityConfig and ReactiveSecurityConfig.
+ *
+ * At startup every rule is checked against the rules before it; a rule whose
+ * paths are all covered by an earlier one can never match and is reported
+ * (or fails startup with fail-on-shadowed-rules).
+ */
+@Configuration
+@EnableConfigurationProperties(AuthorizationRulesProperties.class)
+public class AuthorizationRulesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationRulesConfig.class);
+
+    @Bean
+    public AuthorizationRuleTable authorizationRuleTable(AuthorizationRulesProperties properties,
+                                                         RoleDictionary roleDictionary) {
+        List<AuthorizationRulesProperties.Rule> rules = properties.rules();
+        checkShadowedRules(rules, properties.failOnShadowedRules());
+
+        AuthorizationRuleTable table = new AuthorizationRuleTable();
+        for (AuthorizationRulesProperties.Rule rule : rules) {
+            if (!rule.roles().isEmpty()) {
+                table.access(rule.pattern(), roleDictionary.hasAnyRole(rule.roles().toArray(String[]::new)));
+                continue;
+            }
+            switch (rule.access()) {
+                case PERMIT_ALL -> table.permitAll(rule.pattern());
+                case DENY_ALL -> table.denyAll(rule.pattern());
+                case AUTHENTICATED -> table.authenticated(rule.pattern());
+            }
+        }
+        log.info("Compiled {} authorization rules", rules.size());
+        return table;
+    }
+
+    private void checkShadowedRules(List<AuthorizationRulesProperties.Rule> rules, boolean fail) {
+        List<String> shadowed = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (PathPatternTrie.shadows(rules.get(j).pattern(), rules.get(i).pattern())) {
+                    shadowed.add(String.format("rule %d (%s) is shadowed by rule %d (%s)",
+                            i, rules.get(i).pattern(), j, rules.get(j).pattern()));
+                    break;
+                }
+            }
+        }
+        if (shadowed.isEmpty()) {
+            return;
+        }
+        if (fail) {
+            throw new IllegalStateException("Unreachable authorization rules: " + String.join("; ", shadowed));
+        }
+        shadowed.forEach(message -> log.warn("Unreachable authorization rule: {}", message));
+    }
+}
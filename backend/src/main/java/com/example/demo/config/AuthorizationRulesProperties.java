@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Path authorization rules (app.security.authorization), checked in order;
+ * the first rule whose pattern matches decides. Paths no rule matches
+ * require authentication.
+ *
+ * @param rules               ordered rules
+ * @param failOnShadowedRules refuse to start if a rule can never match
+ *                            because an earlier rule covers all its paths
+ */
+@ConfigurationProperties("app.security.authorization")
+public record AuthorizationRulesProperties(List<Rule> rules, boolean failOnShadowedRules) {
+
+    public AuthorizationRulesProperties {
+        rules = rules != null ? List.copyOf(rules) : List.of();
+    }
+
+    /**
+     * @param pattern path pattern: literal segments, "*" or a trailing "**"
+     * @param access  permit-all, authenticated or deny-all; ignored when roles is set
+     * @param roles   any of these roles is required (same as hasAnyRole)
+     */
+    public record Rule(String pattern, Access access, List<String> roles) {
+
+        public Rule {
+            access = access != null ? access : Access.AUTHENTICATED;
+            roles = roles != null ? List.copyOf(roles) : List.of();
+        }
+    }
+
+    public enum Access {
+        PERMIT_ALL,
+        AUTHENTICATED,
+        DENY_ALL
+    }
+}
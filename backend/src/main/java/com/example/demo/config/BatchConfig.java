@@ -0,0 +1,43 @@
+package com.example.demo.config;
+
+import com.example.demo.batch.BatchDispatcher;
+import com.example.demo.limit.LoadShedder;
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.KeycloakAccessDeniedHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.concurrent.Executor;
+
+/**
+ * POST /api/batch (disabled with app.batch.enabled=false). Sub-requests run
+ * on the application task executor (spring.task.execution.pool.*, or virtual
+ * threads with the virtual-threads profile).
+ */
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.batch.enabled", matchIfMissing = true)
+public class BatchConfig {
+
+    @Bean
+    public BatchDispatcher batchDispatcher(
+            DispatcherServlet dispatcherServlet,
+            AuthorizationRuleTable authorizationRuleTable,
+            KeycloakAccessDeniedHandler keycloakAccessDeniedHandler,
+            ObjectProvider<LoadShedder> loadShedder,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+            ObjectMapper objectMapper,
+            BatchProperties properties) {
+        return new BatchDispatcher(dispatcherServlet, authorizationRuleTable, keycloakAccessDeniedHandler,
+                loadShedder.getIfAvailable(), executor, objectMapper, properties.maxRequests(), properties.timeout());
+    }
+}
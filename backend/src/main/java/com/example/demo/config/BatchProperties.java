@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * POST /api/batch (app.batch).
+ *
+ * @param enabled     expose the batch endpoint (servlet stack only)
+ * @param maxRequests sub-requests allowed in one batch
+ * @param timeout     sub-requests still running after this are cancelled and answered with 504
+ */
+@ConfigurationProperties("app.batch")
+public record BatchProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int maxRequests,
+        @DefaultValue("10s") Duration timeout) {
+}
@@ -0,0 +1,117 @@
+package com.example.demo.config;
+
+import com.example.demo.downstream.AdminActionForwarder;
+import com.example.demo.downstream.DownstreamAuthorizationInterceptor;
+import com.example.demo.downstream.DownstreamClients;
+import com.example.demo.downstream.DownstreamGrant;
+import com.example.demo.downstream.DownstreamTokenCache;
+import com.example.demo.downstream.DownstreamTokenProvider;
+import com.example.demo.downstream.TokenEndpointClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Downstream service clients (enabled with app.downstream.enabled=true):
+ * - a RestClient per app.downstream.services entry, sending the caller's
+ *   token, the resource server's client-credentials token or an exchanged
+ *   token, per the service's grant
+ * - DownstreamTokenCache in front of Keycloak's token endpoint, refreshing
+ *   tokens ahead of expiry on the application task executor
+ * - AdminActionForwarder, when app.downstream.admin-action-service is set
+ *
+ * The clients are blocking, so they are only offered on the servlet stack.
+ */
+@Configuration
+@EnableConfigurationProperties(DownstreamProperties.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.downstream.enabled", havingValue = "true")
+public class DownstreamConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DownstreamConfig.class);
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    private final DownstreamProperties properties;
+
+    public DownstreamConfig(DownstreamProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    public DownstreamTokenCache downstreamTokenCache(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+            MeterRegistry meterRegistry) {
+        DownstreamProperties.TokenCache cache = properties.tokenCache();
+        DownstreamTokenCache tokenCache = new DownstreamTokenCache(executor, cache.refreshAhead(), cache.minValidity(),
+                properties.connectTimeout().plus(properties.readTimeout()), cache.maximumSize(), cache.idleTtl());
+        tokenCache.bindTo(meterRegistry);
+        return tokenCache;
+    }
+
+    @Bean
+    public DownstreamTokenProvider downstreamTokenProvider(DownstreamTokenCache downstreamTokenCache) {
+        String tokenUri = StringUtils.hasText(properties.tokenUri())
+                ? properties.tokenUri()
+                : issuerUri + "/protocol/openid-connect/token";
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.connectTimeout());
+        requestFactory.setReadTimeout(properties.readTimeout());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        if (StringUtils.hasText(properties.clientId())) {
+            restTemplate.getInterceptors().add(
+                    new BasicAuthenticationInterceptor(properties.clientId(), properties.clientSecret()));
+        }
+        return new DownstreamTokenProvider(new TokenEndpointClient(restTemplate, tokenUri), downstreamTokenCache);
+    }
+
+    @Bean
+    public DownstreamClients downstreamClients(DownstreamTokenProvider downstreamTokenProvider,
+                                               RestClient.Builder restClientBuilder) {
+        Map<String, DownstreamProperties.Service> services =
+                properties.services() != null ? properties.services() : Map.of();
+        Map<String, RestClient> clients = new LinkedHashMap<>();
+        services.forEach((name, service) -> {
+            if (!StringUtils.hasText(service.baseUrl())) {
+                throw new IllegalStateException("app.downstream.services." + name + ".base-url is required");
+            }
+            if (service.grant() != DownstreamGrant.RELAY && !StringUtils.hasText(properties.clientId())) {
+                throw new IllegalStateException("app.downstream.client-id and client-secret are required for the "
+                        + service.grant() + " grant of " + name);
+            }
+            clients.put(name, restClientBuilder.clone()
+                    .baseUrl(service.baseUrl())
+                    .requestInterceptor(new DownstreamAuthorizationInterceptor(downstreamTokenProvider, name,
+                            service.grant(), service.audience(), service.scope()))
+                    .build());
+            log.info("Downstream service {} at {} ({})", name, service.baseUrl(), service.grant());
+        });
+        return new DownstreamClients(clients);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.downstream.admin-action-service")
+    public AdminActionForwarder adminActionForwarder(DownstreamClients downstreamClients) {
+        String service = properties.adminActionService();
+        return new AdminActionForwarder(service, properties.adminActionPath(), downstreamClients.client(service));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.config;
+
+import com.example.demo.downstream.DownstreamGrant;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Calls to downstream services on behalf of the caller (app.downstream).
+ *
+ * @param enabled            create the downstream clients (servlet stack only)
+ * @param tokenUri           defaults to {issuer-uri}/protocol/openid-connect/token
+ * @param clientId           confidential client the resource server requests tokens as
+ * @param clientSecret       that client's secret
+ * @param connectTimeout     connect timeout of token endpoint calls
+ * @param readTimeout        read timeout of token endpoint calls
+ * @param tokenCache         cache of client-credentials and exchanged tokens
+ * @param services           downstream services by name
+ * @param adminActionService service that POST /api/hello/action is passed on to, if any
+ * @param adminActionPath    path of that service's action endpoint
+ */
+@ConfigurationProperties("app.downstream")
+public record DownstreamProperties(
+        @DefaultValue("false") boolean enabled,
+        String tokenUri,
+        String clientId,
+        String clientSecret,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("5s") Duration readTimeout,
+        @DefaultValue TokenCache tokenCache,
+        Map<String, Service> services,
+        String adminActionService,
+        @DefaultValue("/actions") String adminActionPath) {
+
+    /**
+     * @param refreshAhead replace a token this long before it expires (at most half its lifetime)
+     * @param minValidity  never send a token that expires sooner than this
+     * @param maximumSize  maximum number of cached tokens (one per service, or per service and caller)
+     * @param idleTtl      drop tokens not used for this long
+     */
+    public record TokenCache(
+            @DefaultValue("30s") Duration refreshAhead,
+            @DefaultValue("5s") Duration minValidity,
+            @DefaultValue("10000") long maximumSize,
+            @DefaultValue("10m") Duration idleTtl) {
+    }
+
+    /**
+     * @param baseUrl  base URL of the service
+     * @param grant    relay, client-credentials or token-exchange
+     * @param audience client id of the service, requested as audience
+     * @param scope    requested scope
+     */
+    public record Service(
+            String baseUrl,
+            @DefaultValue("relay") DownstreamGrant grant,
+            String audience,
+            String scope) {
+    }
+}
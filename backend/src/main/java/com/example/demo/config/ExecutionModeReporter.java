@@ -0,0 +1,34 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports whether requests and scheduled work run on virtual threads.
+ * spring.threads.virtual.enabled is silently ignored before Java 21,
+ * so a misconfigured deployment is flagged at startup.
+ */
+@Component
+public class ExecutionModeReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeReporter.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportExecutionMode() {
+        int javaVersion = Runtime.version().feature();
+        if (virtualThreadsEnabled && javaVersion < 21) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                    + "using platform thread pools", javaVersion);
+        } else {
+            log.info("Execution mode: {} threads (Java {})",
+                    virtualThreadsEnabled ? "virtual" : "platform", javaVersion);
+        }
+    }
+}
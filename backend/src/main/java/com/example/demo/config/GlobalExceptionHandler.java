@@ -1,58 +1,91 @@
 package com.example.demo.config;
 
+import com.example.demo.downstream.DownstreamTokenException;
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.ErrorResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Global exception handler for REST API errors.
+ *
+ * Bodies are rendered from pre-encoded templates (see ErrorResponseWriter)
+ * and returned as bytes, bypassing Jackson.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    private static final ErrorResponseWriter.Template AUTHENTICATION_REQUIRED = errorTemplate(
+            HttpStatus.UNAUTHORIZED, "Authentication required", "Please provide a valid access token");
+
+    private static final ErrorResponseWriter.Template ACCESS_DENIED = errorTemplate(
+            HttpStatus.FORBIDDEN, "Access denied", "You don't have the required permissions. ADMIN role is required.");
+
+    private static final ErrorResponseWriter.Template BAD_GATEWAY = errorTemplate(
+            HttpStatus.BAD_GATEWAY, "Bad gateway", "Downstream service unavailable");
+
+    private static final ErrorResponseWriter.Template INTERNAL_ERROR = errorTemplate(
+            HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error", "{}");
+
+    private final AuthMetrics authMetrics;
+
+    public GlobalExceptionHandler(AuthMetrics authMetrics) {
+        this.authMetrics = authMetrics;
+    }
+
     @ExceptionHandler(AuthenticationException.class)
-    public ResponseEntity<Map<String, Object>> handleAuthenticationException(
+    public ResponseEntity<byte[]> handleAuthenticationException(
             AuthenticationException ex) {
-        return buildErrorResponse(
-            HttpStatus.UNAUTHORIZED,
-            "Authentication required",
-            "Please provide a valid access token"
-        );
+        return buildErrorResponse(HttpStatus.UNAUTHORIZED, AUTHENTICATION_REQUIRED.render());
     }
 
     @ExceptionHandler(AccessDeniedException.class)
-    public ResponseEntity<Map<String, Object>> handleAccessDeniedException(
-            AccessDeniedException ex) {
-        return buildErrorResponse(
-            HttpStatus.FORBIDDEN,
-            "Access denied",
-            "You don't have the required permissions. ADMIN role is required."
-        );
+    public ResponseEntity<byte[]> handleAccessDeniedException(
+            AccessDeniedException ex, HttpServletRequest request) {
+        // Denied by @PreAuthorize (method security) rather than a path rule
+        authMetrics.recordForbidden(request.getRequestURI());
+        return buildErrorResponse(HttpStatus.FORBIDDEN, ACCESS_DENIED.render());
+    }
+
+    @ExceptionHandler(DownstreamTokenException.class)
+    public ResponseEntity<byte[]> handleDownstreamTokenException(DownstreamTokenException ex) {
+        // No token for a downstream call: the failure is Keycloak's, not the caller's.
+        // The message names internal endpoints and client errors, so it is only logged
+        log.warn("Downstream token unavailable: {}", ex.getMessage());
+        return buildErrorResponse(HttpStatus.BAD_GATEWAY, BAD_GATEWAY.render());
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
-        return buildErrorResponse(
-            HttpStatus.INTERNAL_SERVER_ERROR,
-            "Internal server error",
-            ex.getMessage()
-        );
+    public ResponseEntity<byte[]> handleGenericException(Exception ex) {
+        return buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, INTERNAL_ERROR.render(ex.getMessage()));
+    }
+
+    private ResponseEntity<byte[]> buildErrorResponse(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
     }
 
-    private ResponseEntity<Map<String, Object>> buildErrorResponse(
-            HttpStatus status, String error, String message) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("timestamp", Instant.now().toString());
-        response.put("status", status.value());
-        response.put("error", error);
-        response.put("message", message);
-        return ResponseEntity.status(status).body(response);
+    /**
+     * {"status":..,"error":..,"message":..,"timestamp":..} with fixed status,
+     * error and message (message may be a "{}" slot)
+     */
+    private static ErrorResponseWriter.Template errorTemplate(HttpStatus status, String error, String message) {
+        return ErrorResponseWriter.Template.compile(
+                "{\"status\":" + status.value() + "," +
+                "\"error\":\"" + error + "\"," +
+                "\"message\":\"" + message + "\"," +
+                "\"timestamp\":\"{timestamp}\"}");
     }
 }
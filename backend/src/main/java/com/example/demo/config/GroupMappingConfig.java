@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import com.example.demo.security.GroupRoleMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Compiles app.security.group-mapping into the GroupRoleMapper used by
+ * KeycloakJwtAuthenticationConverter. Invalid patterns or rules without
+ * roles fail startup.
+ */
+@Configuration
+@EnableConfigurationProperties(GroupMappingProperties.class)
+public class GroupMappingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupMappingConfig.class);
+
+    @Bean
+    public GroupRoleMapper groupRoleMapper(GroupMappingProperties properties) {
+        List<GroupRoleMapper.Rule> rules = properties.rules().stream()
+                .map(rule -> {
+                    if (rule.roles().isEmpty()) {
+                        throw new IllegalStateException("Group mapping rule " + rule.pattern() + " grants no roles");
+                    }
+                    return new GroupRoleMapper.Rule(rule.pattern(), rule.roles());
+                })
+                .toList();
+        GroupRoleMapper mapper = new GroupRoleMapper(rules, properties.groupNames(), properties.inheritParents(),
+                properties.cacheSize());
+        log.info("Compiled {} group mapping rules (group names: {}, parent inheritance: {})",
+                rules.size(), properties.groupNames(), properties.inheritParents());
+        return mapper;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * How Keycloak group memberships become roles (app.security.group-mapping),
+ * for every realm that maps groups.
+ *
+ * @param groupNames     the group's own name becomes a role ("/org/ADMIN" -> ADMIN)
+ * @param inheritParents members of a group are also members of its parent groups
+ * @param rules          group path patterns and the roles they grant; all matching rules apply
+ * @param cacheSize      distinct group paths whose mapping is cached
+ */
+@ConfigurationProperties("app.security.group-mapping")
+public record GroupMappingProperties(@DefaultValue("true") boolean groupNames,
+                                     boolean inheritParents,
+                                     List<Rule> rules,
+                                     @DefaultValue("10000") int cacheSize) {
+
+    public GroupMappingProperties {
+        rules = rules != null ? List.copyOf(rules) : List.of();
+    }
+
+    /**
+     * @param pattern group path: literal segments, "*" or a trailing "**" (the group and its subgroups)
+     * @param roles   roles granted to members of matching groups
+     */
+    public record Rule(String pattern, List<String> roles) {
+
+        public Rule {
+            roles = roles != null ? List.copyOf(roles) : List.of();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import com.example.demo.controller.IdentityResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Rendered identity responses, shared by the servlet and reactive stacks
+ */
+@Configuration
+@EnableConfigurationProperties(IdentityCacheProperties.class)
+public class IdentityCacheConfig {
+
+    @Bean
+    public IdentityResponseCache identityResponseCache(ObjectMapper objectMapper, IdentityCacheProperties properties) {
+        return new IdentityResponseCache(objectMapper, properties.enabled(), properties.maximumSize(),
+                properties.maxTtl());
+    }
+}
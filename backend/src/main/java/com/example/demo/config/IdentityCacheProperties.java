@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Per-token memoization of /api/hello/me and /api/hello/userinfo (app.identity-cache).
+ *
+ * @param enabled     memoize rendered responses (ETags are sent either way)
+ * @param maximumSize rendered responses kept (two per token at most)
+ * @param maxTtl      upper bound on an entry's lifetime when the token lives longer
+ */
+@ConfigurationProperties("app.identity-cache")
+public record IdentityCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10m") Duration maxTtl) {
+}
@@ -0,0 +1,82 @@
+package com.example.demo.config;
+
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.CachingOpaqueTokenIntrospector;
+import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.KeycloakOpaqueTokenConverter;
+import com.example.demo.security.RevocationIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.security.oauth2.server.resource.introspection.SpringOpaqueTokenIntrospector;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Opaque token introspection (enabled with app.security.introspection.enabled=true):
+ * - CachingOpaqueTokenIntrospector in front of Keycloak's introspection
+ *   endpoint, so each token costs at most one call while it is cached
+ * - KeycloakOpaqueTokenConverter, mapping introspected claims to roles like JWTs
+ *
+ * SecurityConfig and ReactiveSecurityConfig route bearer tokens that are not
+ * shaped like a JWT here; JWTs keep using the JwtDecoder.
+ */
+@Configuration
+@EnableConfigurationProperties(IntrospectionProperties.class)
+@ConditionalOnProperty(name = "app.security.introspection.enabled", havingValue = "true")
+public class IntrospectionConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(IntrospectionConfig.class);
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    private final IntrospectionProperties properties;
+
+    public IntrospectionConfig(IntrospectionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    public CachingOpaqueTokenIntrospector opaqueTokenIntrospector(AuthMetrics authMetrics,
+                                                                  MeterRegistry meterRegistry) {
+        if (!StringUtils.hasText(properties.clientId()) || !StringUtils.hasText(properties.clientSecret())) {
+            throw new IllegalStateException(
+                    "app.security.introspection.client-id and client-secret are required for token introspection");
+        }
+        String introspectionUri = StringUtils.hasText(properties.introspectionUri())
+                ? properties.introspectionUri()
+                : issuerUri + "/protocol/openid-connect/token/introspect";
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.connectTimeout());
+        requestFactory.setReadTimeout(properties.readTimeout());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(
+                new BasicAuthenticationInterceptor(properties.clientId(), properties.clientSecret()));
+
+        IntrospectionProperties.Cache cache = properties.cache();
+        CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(
+                new SpringOpaqueTokenIntrospector(introspectionUri, restTemplate),
+                cache.maximumSize(), cache.maxTtl(), cache.inactiveTtl(), authMetrics);
+        introspector.bindTo(meterRegistry);
+        log.info("Opaque token introspection enabled ({}, cache maximum-size={}, max-ttl={}, inactive-ttl={})",
+                introspectionUri, cache.maximumSize(), cache.maxTtl(), cache.inactiveTtl());
+        return introspector;
+    }
+
+    @Bean
+    public KeycloakOpaqueTokenConverter keycloakOpaqueTokenConverter(
+            KeycloakJwtAuthenticationConverter keycloakJwtAuthenticationConverter,
+            ObjectProvider<RevocationIndex> revocationIndex) {
+        return new KeycloakOpaqueTokenConverter(keycloakJwtAuthenticationConverter, revocationIndex.getIfAvailable());
+    }
+}
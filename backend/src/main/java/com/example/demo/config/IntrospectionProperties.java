@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opaque (non-JWT) bearer tokens checked with Keycloak's token introspection
+ * endpoint (app.security.introspection).
+ *
+ * @param enabled          accept opaque tokens; JWTs are still verified locally
+ * @param introspectionUri defaults to {issuer-uri}/protocol/openid-connect/token/introspect
+ * @param clientId         confidential client the resource server introspects as
+ * @param clientSecret     that client's secret
+ * @param connectTimeout   connect timeout of introspection calls
+ * @param readTimeout      read timeout of introspection calls
+ * @param cache            cache of introspection results
+ */
+@ConfigurationProperties("app.security.introspection")
+public record IntrospectionProperties(
+        @DefaultValue("false") boolean enabled,
+        String introspectionUri,
+        String clientId,
+        String clientSecret,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("5s") Duration readTimeout,
+        @DefaultValue Cache cache) {
+
+    /**
+     * @param maximumSize maximum number of cached tokens
+     * @param maxTtl      active tokens are cached until their exp claim, never longer than this
+     * @param inactiveTtl how long an inactive (unknown, expired, revoked) token is remembered
+     */
+    public record Cache(
+            @DefaultValue("10000") long maximumSize,
+            @DefaultValue("10m") Duration maxTtl,
+            @DefaultValue("30s") Duration inactiveTtl) {
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.demo.config;
+
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.BearerTokenPrecheck;
+import com.example.demo.security.CachingJwtDecoder;
+import com.example.demo.security.KeycloakJwksStore;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.ProjectingJwtDecoder;
+import com.example.demo.security.RevocationIndex;
+import com.example.demo.security.TimedJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JWT decoder configuration.
+ *
+ * Builds the Keycloak decoder explicitly instead of relying on issuer discovery:
+ * - Tokens from every trusted realm (KeycloakRealms: keycloak.realm plus
+ *   app.security.tenants) are verified by one processor, which picks the
+ *   realm's keys by the iss claim it has already parsed
+ * - Each realm's keys come from its own KeycloakJwksStore (background refresh,
+ *   persisted to disk), built on the realm's first token
+ * - Tokens are validated for signature, trusted issuer and timestamps
+ * - Payloads are read in one streaming pass that builds only the claims the
+ *   application uses (ProjectingJwtDecoder, app.security.jwt-projection)
+ * - Verified tokens can be cached (enabled per profile via app.security.jwt-cache)
+ * - Junk tokens are rejected before decoding by BearerTokenPrecheck, which
+ *   also remembers tokens the decoder rejected for good
+ * - Tokens of logged-out sessions are rejected (RevocationIndex), cached or not
+ * - Verification latency, JWKS fetches and cache hit rates are published as metrics
+ */
+@Configuration
+@EnableConfigurationProperties(TenantRealmsProperties.class)
+public class JwtDecoderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtDecoderConfig.class);
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}")
+    private String jwkSetUri;
+
+    @Value("${keycloak.auth-server-url:http://192.168.1.30:8180}")
+    private String keycloakBaseUrl;
+
+    @Value("${keycloak.realm:demo}")
+    private String defaultRealm;
+
+    @Value("${keycloak.client-id:react-client}")
+    private String defaultClientId;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jws-algorithms:RS256}")
+    private List<String> jwsAlgorithms;
+
+    @Value("${app.security.jwks.cache-file:}")
+    private String jwksCacheFile;
+
+    @Value("${app.security.jwks.refresh-interval:5m}")
+    private Duration jwksRefreshInterval;
+
+    @Value("${app.security.jwks.refresh-ahead:1m}")
+    private Duration jwksRefreshAhead;
+
+    @Value("${app.security.jwks.unknown-kid-min-interval:10s}")
+    private Duration jwksUnknownKidMinInterval;
+
+    @Value("${app.security.jwks.connect-timeout:2s}")
+    private Duration jwksConnectTimeout;
+
+    @Value("${app.security.jwks.read-timeout:5s}")
+    private Duration jwksReadTimeout;
+
+    @Value("${app.security.jwt-projection.enabled:true}")
+    private boolean claimProjection;
+
+    @Value("${app.security.jwt-cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${app.security.jwt-cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+
+    @Value("${app.security.jwt-cache.max-ttl:10m}")
+    private Duration cacheMaxTtl;
+
+    @Value("${app.security.bearer-precheck.max-length:8192}")
+    private int precheckMaxLength;
+
+    // Opaque tokens go to introspection instead of failing the JWT format check
+    @Value("${app.security.introspection.enabled:false}")
+    private boolean introspectionEnabled;
+
+    @Value("${app.security.bearer-precheck.clock-skew:60s}")
+    private Duration precheckClockSkew;
+
+    @Value("${app.security.bearer-precheck.negative-cache.maximum-size:10000}")
+    private long negativeCacheMaximumSize;
+
+    @Value("${app.security.bearer-precheck.negative-cache.ttl:10m}")
+    private Duration negativeCacheTtl;
+
+    private final AuthMetrics authMetrics;
+    private final MeterRegistry meterRegistry;
+    private final TenantRealmsProperties tenants;
+
+    public JwtDecoderConfig(AuthMetrics authMetrics, MeterRegistry meterRegistry, TenantRealmsProperties tenants) {
+        this.authMetrics = authMetrics;
+        this.meterRegistry = meterRegistry;
+        this.tenants = tenants;
+    }
+
+    @Bean
+    public KeycloakRealms keycloakRealms() {
+        TenantRealmsProperties.Realm defaults = tenants.realms().get(defaultRealm);
+        // Keycloak publishes its keys at a fixed location below the issuer,
+        // so no discovery request is needed to find them
+        KeycloakRealms.Realm realm = realm(defaultRealm, issuerUri,
+                StringUtils.hasText(jwkSetUri) ? jwkSetUri : issuerUri + "/protocol/openid-connect/certs",
+                jwksCacheFile(null), defaults);
+
+        List<KeycloakRealms.Realm> others = new ArrayList<>();
+        for (Map.Entry<String, TenantRealmsProperties.Realm> entry : tenants.realms().entrySet()) {
+            String name = entry.getKey();
+            TenantRealmsProperties.Realm properties = entry.getValue();
+            if (name.equals(defaultRealm)) {
+                continue;
+            }
+            String issuer = StringUtils.hasText(properties.issuerUri())
+                    ? properties.issuerUri()
+                    : keycloakBaseUrl + "/realms/" + name;
+            String keys = StringUtils.hasText(properties.jwkSetUri())
+                    ? properties.jwkSetUri()
+                    : issuer + "/protocol/openid-connect/certs";
+            others.add(realm(name, issuer, keys, jwksCacheFile(name), properties));
+        }
+        if (!others.isEmpty()) {
+            log.info("Trusting {} realms besides {}: {}", others.size(), defaultRealm,
+                    others.stream().map(KeycloakRealms.Realm::name).sorted().toList());
+        }
+
+        return new KeycloakRealms(realm, others, algorithms(), this::jwksStore);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.security.bearer-precheck.enabled", matchIfMissing = true)
+    public BearerTokenPrecheck bearerTokenPrecheck(KeycloakRealms keycloakRealms) {
+        BearerTokenPrecheck precheck = new BearerTokenPrecheck(Set.copyOf(jwsAlgorithms), keycloakRealms,
+                precheckMaxLength, introspectionEnabled, precheckClockSkew, negativeCacheMaximumSize, negativeCacheTtl,
+                authMetrics);
+        precheck.bindTo(meterRegistry);
+        return precheck;
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(KeycloakRealms keycloakRealms,
+                                 ObjectProvider<BearerTokenPrecheck> bearerTokenPrecheck,
+                                 ObjectProvider<RevocationIndex> revocationIndex) {
+        OAuth2TokenValidator<Jwt> jwtValidator = new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefault(),
+                new JwtClaimValidator<>(JwtClaimNames.ISS,
+                        iss -> iss != null && keycloakRealms.forIssuer(iss.toString()) != null));
+
+        JwtDecoder verifyingDecoder;
+        if (claimProjection) {
+            // Keys of the realm named by the token's iss, read in the same pass as the other claims
+            ProjectingJwtDecoder projectingDecoder = new ProjectingJwtDecoder(keycloakRealms.keySelector());
+            projectingDecoder.setJwtValidator(jwtValidator);
+            verifyingDecoder = projectingDecoder;
+        } else {
+            DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+            // Keys of the realm named by the token's iss, read from the claims Nimbus parsed
+            jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(keycloakRealms.keySelector());
+            // Claims are validated by Spring's validators below
+            jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+            });
+
+            NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+            nimbusJwtDecoder.setJwtValidator(jwtValidator);
+            verifyingDecoder = nimbusJwtDecoder;
+        }
+
+        // Timed below the cache, so auth.jwt.decode measures real verifications
+        JwtDecoder decoder = new TimedJwtDecoder(verifyingDecoder, authMetrics);
+        BearerTokenPrecheck precheck = bearerTokenPrecheck.getIfAvailable();
+        if (precheck != null) {
+            decoder = precheck.rememberRejections(decoder);
+        }
+        if (cacheEnabled) {
+            log.info("Verified JWT cache enabled (maximum-size={}, max-ttl={})", cacheMaximumSize, cacheMaxTtl);
+            CachingJwtDecoder cachingDecoder = new CachingJwtDecoder(decoder, cacheMaximumSize, cacheMaxTtl);
+            cachingDecoder.bindTo(meterRegistry);
+            decoder = cachingDecoder;
+        }
+        // Outside the cache: a token may be revoked after it was cached
+        RevocationIndex revocations = revocationIndex.getIfAvailable();
+        if (revocations != null) {
+            decoder = revocations.rejectRevoked(decoder);
+        }
+
+        return decoder;
+    }
+
+    /**
+     * Keep the JWKS key set fresh in the background so request threads
+     * never wait on Keycloak
+     */
+    @Scheduled(fixedDelayString = "${app.security.jwks.refresh-check-interval-ms:15000}")
+    public void refreshJwks() {
+        keycloakRealms().refreshIfDue();
+    }
+
+    private KeycloakRealms.Realm realm(String name, String issuer, String keys, Path cacheFile,
+                                       TenantRealmsProperties.Realm properties) {
+        if (properties == null) {
+            return new KeycloakRealms.Realm(name, issuer, URI.create(keys), cacheFile, defaultClientId,
+                    List.of(), KeycloakRealms.RoleMapping.ALL);
+        }
+        TenantRealmsProperties.Roles roles = properties.roles();
+        return new KeycloakRealms.Realm(name, issuer, URI.create(keys), cacheFile,
+                StringUtils.hasText(properties.clientId()) ? properties.clientId() : defaultClientId,
+                properties.hosts(),
+                new KeycloakRealms.RoleMapping(roles.realmRoles(), Set.copyOf(roles.clientRoles()), roles.groups()));
+    }
+
+    private KeycloakJwksStore jwksStore(KeycloakRealms.Realm realm) {
+        return new KeycloakJwksStore(realm.jwkSetUri(), realm.jwksCacheFile(),
+                jwksRefreshInterval, jwksRefreshAhead, jwksUnknownKidMinInterval,
+                jwksConnectTimeout, jwksReadTimeout, authMetrics);
+    }
+
+    /**
+     * The configured cache file for the default realm (realm null), a sibling
+     * named after the realm for the others: keycloak-jwks-{realm}.json
+     */
+    private Path jwksCacheFile(String realm) {
+        if (!StringUtils.hasText(jwksCacheFile)) {
+            return null;
+        }
+        Path file = Path.of(jwksCacheFile);
+        if (realm == null) {
+            return file;
+        }
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling(dot > 0
+                ? name.substring(0, dot) + "-" + realm + name.substring(dot)
+                : name + "-" + realm);
+    }
+
+    private Set<JWSAlgorithm> algorithms() {
+        return jwsAlgorithms.stream()
+                .map(JWSAlgorithm::parse)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import com.example.demo.limit.AdaptiveConcurrencyLimit;
+import com.example.demo.limit.ClientRateLimiter;
+import com.example.demo.limit.LoadShedder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the LoadShedder used by the load shedding and rate limit filters in
+ * SecurityConfig and ReactiveSecurityConfig (disabled with
+ * app.load-shedding.enabled=false; per-client rates alone with
+ * app.load-shedding.rate.enabled=false).
+ */
+@Configuration
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+public class LoadSheddingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadSheddingConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(name = "app.load-shedding.enabled", matchIfMissing = true)
+    public LoadShedder loadShedder(LoadSheddingProperties properties, MeterRegistry meterRegistry) {
+        LoadSheddingProperties.Concurrency concurrency = properties.concurrency();
+        LoadSheddingProperties.Rate rate = properties.rate();
+
+        LoadShedder loadShedder = new LoadShedder(
+                new AdaptiveConcurrencyLimit(concurrency.initialLimit(), concurrency.minLimit(),
+                        concurrency.maxLimit(), concurrency.latencyThreshold(), concurrency.backoffRatio()),
+                rate.enabled() ? new ClientRateLimiter(rate.perClient(), rate.burst(), rate.stripes()) : null,
+                properties.priorityPaths());
+        loadShedder.bindTo(meterRegistry);
+
+        log.info("Load shedding enabled (limit {} in [{}, {}], latency threshold {}, {})",
+                concurrency.initialLimit(), concurrency.minLimit(), concurrency.maxLimit(),
+                concurrency.latencyThreshold(), rate.enabled() ? rate.perClient() + "/s per client" : "no rate limit");
+        return loadShedder;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Load shedding in front of the application (app.load-shedding).
+ *
+ * @param enabled       add the load shedding filters to the security chain
+ * @param priorityPaths path patterns served first under load (health, public)
+ * @param concurrency   adaptive concurrency limit
+ * @param rate          per-client request rate (not applied to priority paths)
+ */
+@ConfigurationProperties("app.load-shedding")
+public record LoadSheddingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue({"/actuator/health/**", "/api/public/**"}) List<String> priorityPaths,
+        @DefaultValue Concurrency concurrency,
+        @DefaultValue Rate rate) {
+
+    /**
+     * @param initialLimit     concurrent requests allowed at startup
+     * @param minLimit         the limit never drops below this
+     * @param maxLimit         the limit never grows above this
+     * @param latencyThreshold a request slower than this lowers the limit
+     * @param backoffRatio     factor applied to the limit on a slow request
+     */
+    public record Concurrency(
+            @DefaultValue("100") int initialLimit,
+            @DefaultValue("10") int minLimit,
+            @DefaultValue("180") int maxLimit,
+            @DefaultValue("500ms") Duration latencyThreshold,
+            @DefaultValue("0.9") double backoffRatio) {
+    }
+
+    /**
+     * @param enabled   check each principal's rate after authentication
+     * @param perClient sustained requests per second per principal (or remote address)
+     * @param burst     requests a client may send at once after being idle
+     * @param stripes   number of shared rate buckets clients are hashed onto
+     */
+    public record Rate(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("50") double perClient,
+            @DefaultValue("100") int burst,
+            @DefaultValue("4096") int stripes) {
+    }
+}
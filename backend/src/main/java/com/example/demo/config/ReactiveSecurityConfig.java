@@ -0,0 +1,170 @@
+package com.example.demo.config;
+
+import com.example.demo.limit.ClientRateLimitWebFilter;
+import com.example.demo.limit.LoadShedder;
+import com.example.demo.limit.LoadSheddingWebFilter;
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.BearerTokenPrecheck;
+import com.example.demo.security.BearerTokenPrecheckWebFilter;
+import com.example.demo.security.CachingOpaqueTokenIntrospector;
+import com.example.demo.security.JwtOrOpaqueTokenAuthenticationManager;
+import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.KeycloakOpaqueTokenConverter;
+import com.example.demo.security.KeycloakReactiveOpaqueTokenIntrospector;
+import com.example.demo.security.KeycloakReactiveJwtDecoder;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.KeycloakServerAccessDeniedHandler;
+import com.example.demo.security.KeycloakServerAuthenticationEntryPoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.OpaqueTokenReactiveAuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of SecurityConfig, active with spring.main.web-application-type=reactive
+ * (the "reactive" profile).
+ *
+ * Same endpoints, Keycloak role mapping (KeycloakJwtAuthenticationConverter),
+ * key store and redirect-vs-JSON 401 behavior as the servlet stack, but
+ * non-blocking on a small event-loop pool. Opaque tokens (IntrospectionConfig)
+ * share the servlet introspection cache; only cache misses leave the event loop.
+ *
+ * Method security is not enabled here: the @RequiresRole checks on
+ * HelloController are also enforced by the /api/hello/** path rule below.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private final KeycloakJwtAuthenticationConverter keycloakJwtAuthenticationConverter;
+    private final KeycloakServerAuthenticationEntryPoint keycloakAuthenticationEntryPoint;
+    private final KeycloakServerAccessDeniedHandler keycloakAccessDeniedHandler;
+    private final AuthorizationRuleTable authorizationRuleTable;
+    private final ObjectProvider<BearerTokenPrecheck> bearerTokenPrecheck;
+    private final ObjectProvider<LoadShedder> loadShedder;
+    private final ObjectProvider<CachingOpaqueTokenIntrospector> opaqueTokenIntrospector;
+    private final ObjectProvider<KeycloakOpaqueTokenConverter> opaqueTokenConverter;
+
+    public ReactiveSecurityConfig(
+            KeycloakJwtAuthenticationConverter keycloakJwtAuthenticationConverter,
+            KeycloakServerAuthenticationEntryPoint keycloakAuthenticationEntryPoint,
+            KeycloakServerAccessDeniedHandler keycloakAccessDeniedHandler,
+            AuthorizationRuleTable authorizationRuleTable,
+            ObjectProvider<BearerTokenPrecheck> bearerTokenPrecheck,
+            ObjectProvider<LoadShedder> loadShedder,
+            ObjectProvider<CachingOpaqueTokenIntrospector> opaqueTokenIntrospector,
+            ObjectProvider<KeycloakOpaqueTokenConverter> opaqueTokenConverter) {
+        this.keycloakJwtAuthenticationConverter = keycloakJwtAuthenticationConverter;
+        this.keycloakAuthenticationEntryPoint = keycloakAuthenticationEntryPoint;
+        this.keycloakAccessDeniedHandler = keycloakAccessDeniedHandler;
+        this.authorizationRuleTable = authorizationRuleTable;
+        this.bearerTokenPrecheck = bearerTokenPrecheck;
+        this.loadShedder = loadShedder;
+        this.opaqueTokenIntrospector = opaqueTokenIntrospector;
+        this.opaqueTokenConverter = opaqueTokenConverter;
+    }
+
+    @Bean
+    public ReactiveJwtDecoder reactiveJwtDecoder(JwtDecoder jwtDecoder, KeycloakRealms keycloakRealms) {
+        return new KeycloakReactiveJwtDecoder(jwtDecoder, keycloakRealms);
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         ReactiveJwtDecoder reactiveJwtDecoder) {
+        http
+                // Disable CSRF for stateless API
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+
+                // Configure CORS
+                .cors(cors -> cors.configurationSource(reactiveCorsConfigurationSource()))
+
+                // Stateless: never store the security context
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+
+                // Authorization rules (same table as SecurityConfig)
+                .authorizeExchange(exchanges -> exchanges
+                        .anyExchange().access(authorizationRuleTable.reactive()))
+
+                // Redirect anonymous browsers to Keycloak, JSON 401/403 for API clients
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(keycloakAuthenticationEntryPoint)
+                        .accessDeniedHandler(keycloakAccessDeniedHandler))
+
+                // JWT resource server sharing the servlet role mapping
+                .oauth2ResourceServer(oauth2 -> {
+                    ReactiveAuthenticationManager authenticationManager =
+                            jwtOrOpaqueTokenAuthenticationManager(reactiveJwtDecoder);
+                    if (authenticationManager != null) {
+                        // JWTs to the decoder, other tokens to introspection
+                        oauth2.authenticationManagerResolver(exchange -> Mono.just(authenticationManager));
+                    } else {
+                        oauth2.jwt(jwt -> jwt
+                                .jwtDecoder(reactiveJwtDecoder)
+                                .jwtAuthenticationConverter(
+                                        new ReactiveJwtAuthenticationConverterAdapter(keycloakJwtAuthenticationConverter)));
+                    }
+                    oauth2.authenticationEntryPoint(keycloakAuthenticationEntryPoint);
+                });
+
+        // Shed load before bearer token decoding, JWKS fetches and introspection
+        // (added first: filters at the same position keep the order they are added in)
+        loadShedder.ifAvailable(shedder -> http.addFilterBefore(
+                new LoadSheddingWebFilter(shedder), SecurityWebFiltersOrder.AUTHENTICATION));
+
+        // Reject junk bearer tokens before they reach JWT decoding
+        bearerTokenPrecheck.ifAvailable(precheck -> http.addFilterBefore(
+                new BearerTokenPrecheckWebFilter(precheck, keycloakAuthenticationEntryPoint),
+                SecurityWebFiltersOrder.AUTHENTICATION));
+
+        // Per-client rates once the principal is known, before authorization and handlers
+        loadShedder.ifAvailable(shedder -> {
+            if (shedder.limitsRate()) {
+                http.addFilterAfter(new ClientRateLimitWebFilter(shedder), SecurityWebFiltersOrder.AUTHENTICATION);
+            }
+        });
+
+        return http.build();
+    }
+
+    /**
+     * JWT and opaque token authentication side by side, or null if
+     * introspection is disabled
+     */
+    private ReactiveAuthenticationManager jwtOrOpaqueTokenAuthenticationManager(ReactiveJwtDecoder reactiveJwtDecoder) {
+        CachingOpaqueTokenIntrospector introspector = opaqueTokenIntrospector.getIfAvailable();
+        if (introspector == null) {
+            return null;
+        }
+        JwtReactiveAuthenticationManager jwtManager = new JwtReactiveAuthenticationManager(reactiveJwtDecoder);
+        jwtManager.setJwtAuthenticationConverter(
+                new ReactiveJwtAuthenticationConverterAdapter(keycloakJwtAuthenticationConverter));
+        OpaqueTokenReactiveAuthenticationManager opaqueTokenManager = new OpaqueTokenReactiveAuthenticationManager(
+                new KeycloakReactiveOpaqueTokenIntrospector(introspector));
+        KeycloakOpaqueTokenConverter converter = opaqueTokenConverter.getObject();
+        opaqueTokenManager.setAuthenticationConverter(
+                (token, principal) -> Mono.fromCallable(() -> converter.convert(token, principal)));
+        return new JwtOrOpaqueTokenAuthenticationManager.Reactive(jwtManager, opaqueTokenManager);
+    }
+
+    private CorsConfigurationSource reactiveCorsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", SecurityConfig.keycloakCorsConfiguration());
+        return source;
+    }
+}
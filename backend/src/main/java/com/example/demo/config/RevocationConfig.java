@@ -0,0 +1,85 @@
+package com.example.demo.config;
+
+import com.example.demo.security.BackchannelLogout;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.RevocationIndex;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Token revocation (disabled with app.security.revocation.enabled=false):
+ * - RevocationIndex, checked by the JwtDecoder of JwtDecoderConfig on every request
+ * - BackchannelLogout, fed by Keycloak through BackchannelLogoutController
+ * - periodic purge of expired revocations and snapshot to disk
+ */
+@Configuration
+@EnableConfigurationProperties(RevocationProperties.class)
+@ConditionalOnProperty(name = "app.security.revocation.enabled", matchIfMissing = true)
+public class RevocationConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationConfig.class);
+
+    private final RevocationProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public RevocationConfig(RevocationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Saved on shutdown, so revocations since the last periodic save survive a restart
+    @Bean(destroyMethod = "saveSnapshot")
+    public RevocationIndex revocationIndex() {
+        Path snapshotFile = StringUtils.hasText(properties.snapshotFile()) ? Path.of(properties.snapshotFile()) : null;
+        RevocationIndex index = new RevocationIndex(properties.expectedEntries(), properties.falsePositiveRate(),
+                properties.retention(), snapshotFile);
+        index.bindTo(meterRegistry);
+        log.info("Token revocation enabled (retention {}, snapshot {})", properties.retention(),
+                snapshotFile != null ? snapshotFile : "disabled");
+        return index;
+    }
+
+    @Bean
+    public BackchannelLogout backchannelLogout(KeycloakRealms keycloakRealms, RevocationIndex revocationIndex) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        // Signed with the keys of the realm named by iss, like access tokens
+        jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(keycloakRealms.keySelector());
+        jwtProcessor.setJWSTypeVerifier(new DefaultJOSEObjectTypeVerifier<>(
+                JOSEObjectType.JWT, new JOSEObjectType("logout+jwt"), null));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefault(),
+                new JwtClaimValidator<>(JwtClaimNames.ISS,
+                        iss -> iss != null && keycloakRealms.forIssuer(iss.toString()) != null),
+                BackchannelLogout.logoutTokenValidator(keycloakRealms)));
+        return new BackchannelLogout(decoder, revocationIndex);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.maintenance-interval-ms:30000}")
+    public void maintainRevocations() {
+        RevocationIndex index = revocationIndex();
+        index.purgeExpired();
+        index.saveSnapshot();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Token revocation by back-channel logout and admin request (app.security.revocation).
+ *
+ * @param enabled           check every token against the revocation index
+ * @param expectedEntries   revocations the Bloom filter is sized for (it grows past this)
+ * @param falsePositiveRate share of unrevoked tokens that need an exact lookup
+ * @param retention         how long a revocation is kept; must exceed the access token lifespan
+ * @param snapshotFile      revocations are saved here and loaded on startup (empty = disabled)
+ */
+@ConfigurationProperties("app.security.revocation")
+public record RevocationProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") int expectedEntries,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("1h") Duration retention,
+        String snapshotFile) {
+}
@@ -1,16 +1,43 @@
 package com.example.demo.config;
 
+import com.example.demo.limit.ClientRateLimitFilter;
+import com.example.demo.limit.LoadShedder;
+import com.example.demo.limit.LoadSheddingFilter;
+import com.example.demo.security.AuditLog;
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.BearerTokenPrecheck;
+import com.example.demo.security.BearerTokenPrecheckFilter;
+import com.example.demo.security.CachingOpaqueTokenIntrospector;
+import com.example.demo.security.JwtOrOpaqueTokenAuthenticationManager;
 import com.example.demo.security.KeycloakAccessDeniedHandler;
 import com.example.demo.security.KeycloakAuthenticationEntryPoint;
 import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.KeycloakOpaqueTokenConverter;
+import com.example.demo.security.RequiresRole;
+import com.example.demo.security.RequiresRoleAuthorizationManager;
+import com.example.demo.security.RoleDictionary;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.Pointcuts;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.authorization.method.AuthorizationInterceptorsOrder;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.OpaqueTokenAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -26,10 +53,21 @@ import java.util.List;
  * Features:
  * - Redirects anonymous browser requests to Keycloak login
  * - Returns 401 JSON for API clients (detected via Accept header)
- * - Validates JWT tokens against Keycloak
+ * - Validates JWT tokens against Keycloak (optionally caching verified tokens),
+ *   after a cheap BearerTokenPrecheck that turns away junk tokens
  * - Extracts roles from groups, realm_access, and resource_access
+ * - Checks roles against a precomputed bitset (RoleDictionary), both in the
+ *   path rules and for @RequiresRole methods, instead of SpEL/string scans
+ * - Sheds load with fast 503s (adaptive concurrency limit, priorities)
+ *   before token authentication, and 429s (per-client rate) right after it
+ * - Path rules come from app.security.authorization.rules, compiled into a
+ *   trie (AuthorizationRuleTable) instead of a list of request matchers
+ * - Optionally accepts opaque tokens, introspected with Keycloak (IntrospectionConfig)
+ *
+ * Servlet stack only; see ReactiveSecurityConfig for the WebFlux variant.
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true, securedEnabled = true)
 public class SecurityConfig {
@@ -37,6 +75,12 @@ public class SecurityConfig {
     private final KeycloakJwtAuthenticationConverter keycloakJwtAuthenticationConverter;
     private final KeycloakAuthenticationEntryPoint keycloakAuthenticationEntryPoint;
     private final KeycloakAccessDeniedHandler keycloakAccessDeniedHandler;
+    private final JwtDecoder jwtDecoder;
+    private final AuthorizationRuleTable authorizationRuleTable;
+    private final ObjectProvider<BearerTokenPrecheck> bearerTokenPrecheck;
+    private final ObjectProvider<LoadShedder> loadShedder;
+    private final ObjectProvider<CachingOpaqueTokenIntrospector> opaqueTokenIntrospector;
+    private final ObjectProvider<KeycloakOpaqueTokenConverter> opaqueTokenConverter;
 
     @Value("${app.cors.allowed-origins:http://192.168.1.30:7371,http://localhost:5173}")
     private String allowedOrigins;
@@ -44,10 +88,22 @@ public class SecurityConfig {
     public SecurityConfig(
             KeycloakJwtAuthenticationConverter keycloakJwtAuthenticationConverter,
             KeycloakAuthenticationEntryPoint keycloakAuthenticationEntryPoint,
-            KeycloakAccessDeniedHandler keycloakAccessDeniedHandler) {
+            KeycloakAccessDeniedHandler keycloakAccessDeniedHandler,
+            JwtDecoder jwtDecoder,
+            AuthorizationRuleTable authorizationRuleTable,
+            ObjectProvider<BearerTokenPrecheck> bearerTokenPrecheck,
+            ObjectProvider<LoadShedder> loadShedder,
+            ObjectProvider<CachingOpaqueTokenIntrospector> opaqueTokenIntrospector,
+            ObjectProvider<KeycloakOpaqueTokenConverter> opaqueTokenConverter) {
         this.keycloakJwtAuthenticationConverter = keycloakJwtAuthenticationConverter;
         this.keycloakAuthenticationEntryPoint = keycloakAuthenticationEntryPoint;
         this.keycloakAccessDeniedHandler = keycloakAccessDeniedHandler;
+        this.jwtDecoder = jwtDecoder;
+        this.authorizationRuleTable = authorizationRuleTable;
+        this.bearerTokenPrecheck = bearerTokenPrecheck;
+        this.loadShedder = loadShedder;
+        this.opaqueTokenIntrospector = opaqueTokenIntrospector;
+        this.opaqueTokenConverter = opaqueTokenConverter;
     }
 
     @Bean
@@ -62,24 +118,10 @@ public class SecurityConfig {
                 // Stateless session management
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 
-                // Authorization rules
+                // Authorization rules (app.security.authorization.rules, first match wins;
+                // anything unmatched requires authentication)
                 .authorizeHttpRequests(auth -> auth
-                        // Public endpoints
-                        .requestMatchers("/api/public/**").permitAll()
-                        .requestMatchers("/actuator/health").permitAll()
-                        .requestMatchers("/error").permitAll()
-
-                        // Admin endpoints require ADMIN role (from group or realm/client roles)
-                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
-
-                        // Hello endpoint requires ADMIN role
-                        .requestMatchers("/api/hello/**").hasRole("ADMIN")
-
-                        // All other API endpoints require authentication
-                        .requestMatchers("/api/**").authenticated()
-
-                        // Any other request requires authentication
-                        .anyRequest().authenticated())
+                        .anyRequest().access(authorizationRuleTable))
 
                 // Configure exception handling with custom entry point
                 // This redirects anonymous users to Keycloak login
@@ -88,17 +130,84 @@ public class SecurityConfig {
                         .accessDeniedHandler(keycloakAccessDeniedHandler))
 
                 // Configure OAuth2 Resource Server with JWT
-                .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt
-                                .jwtAuthenticationConverter(keycloakJwtAuthenticationConverter))
-                        // Also use the custom entry point for OAuth2 auth failures
-                        .authenticationEntryPoint(keycloakAuthenticationEntryPoint));
+                .oauth2ResourceServer(oauth2 -> {
+                    AuthenticationManager authenticationManager = jwtOrOpaqueTokenAuthenticationManager();
+                    if (authenticationManager != null) {
+                        // JWTs to the decoder, other tokens to introspection
+                        oauth2.authenticationManagerResolver(request -> authenticationManager);
+                    } else {
+                        oauth2.jwt(jwt -> jwt
+                                // Decoder from JwtDecoderConfig (optionally cached)
+                                .decoder(jwtDecoder)
+                                .jwtAuthenticationConverter(keycloakJwtAuthenticationConverter));
+                    }
+                    // Also use the custom entry point for OAuth2 auth failures
+                    oauth2.authenticationEntryPoint(keycloakAuthenticationEntryPoint);
+                });
+
+        // Shed load before bearer token decoding, JWKS fetches and introspection, so a
+        // slow Keycloak cannot hold Tomcat threads (added first: filters at the same
+        // position keep the order they are added in)
+        loadShedder.ifAvailable(shedder -> http.addFilterBefore(
+                new LoadSheddingFilter(shedder), BearerTokenAuthenticationFilter.class));
+
+        // Reject junk bearer tokens before they reach JWT decoding
+        bearerTokenPrecheck.ifAvailable(precheck -> http.addFilterBefore(
+                new BearerTokenPrecheckFilter(precheck, keycloakAuthenticationEntryPoint),
+                BearerTokenAuthenticationFilter.class));
+
+        // Per-client rates once the principal is known, before authorization and controllers
+        loadShedder.ifAvailable(shedder -> {
+            if (shedder.limitsRate()) {
+                http.addFilterAfter(new ClientRateLimitFilter(shedder), BearerTokenAuthenticationFilter.class);
+            }
+        });
 
         return http.build();
     }
 
+    /**
+     * JWT and opaque token authentication side by side, or null if
+     * introspection is disabled
+     */
+    private AuthenticationManager jwtOrOpaqueTokenAuthenticationManager() {
+        CachingOpaqueTokenIntrospector introspector = opaqueTokenIntrospector.getIfAvailable();
+        if (introspector == null) {
+            return null;
+        }
+        JwtAuthenticationProvider jwtProvider = new JwtAuthenticationProvider(jwtDecoder);
+        jwtProvider.setJwtAuthenticationConverter(keycloakJwtAuthenticationConverter);
+        OpaqueTokenAuthenticationProvider opaqueTokenProvider = new OpaqueTokenAuthenticationProvider(introspector);
+        opaqueTokenProvider.setAuthenticationConverter(opaqueTokenConverter.getObject());
+        return new JwtOrOpaqueTokenAuthenticationManager(jwtProvider::authenticate, opaqueTokenProvider::authenticate);
+    }
+
+    /**
+     * Method interceptor for @RequiresRole, ordered like @PreAuthorize
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requiresRoleAuthorizationAdvisor(RoleDictionary roleDictionary, ObjectProvider<AuditLog> auditLog) {
+        AuthorizationManagerBeforeMethodInterceptor interceptor = new AuthorizationManagerBeforeMethodInterceptor(
+                Pointcuts.union(
+                        new AnnotationMatchingPointcut(null, RequiresRole.class, true),
+                        new AnnotationMatchingPointcut(RequiresRole.class, true)),
+                new RequiresRoleAuthorizationManager(roleDictionary, auditLog::getIfAvailable));
+        interceptor.setOrder(AuthorizationInterceptorsOrder.PRE_AUTHORIZE.getOrder());
+        return interceptor;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", keycloakCorsConfiguration());
+        return source;
+    }
+
+    /**
+     * CORS settings shared by the servlet and reactive security configurations
+     */
+    static CorsConfiguration keycloakCorsConfiguration() {
         CorsConfiguration configuration = new CorsConfiguration();
 
         // Split the allowed origins string and set them
@@ -134,8 +243,6 @@ public class SecurityConfig {
         // Cache preflight requests for 1 hour
         configuration.setMaxAge(3600L);
 
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", configuration);
-        return source;
+        return configuration;
     }
 }
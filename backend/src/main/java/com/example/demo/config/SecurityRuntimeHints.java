@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import com.example.demo.controller.BackchannelLogoutController;
+import com.example.demo.security.RequiresRole;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection the security components need in a native image (-Pnative) that
+ * Spring's AOT processing cannot infer from bean definitions:
+ * - @RequiresRole, read from controller methods and types when a method is
+ *   first authorized (RequiresRoleAuthorizationManager)
+ * - BackchannelLogoutController.LogoutForm, bound from form fields through
+ *   its constructor (only @RequestBody types get binding hints automatically)
+ *
+ * Nimbus, Caffeine and Jackson's streaming parser are covered by their own
+ * or the GraalVM reachability metadata.
+ */
+public class SecurityRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.reflection().registerType(RequiresRole.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        bindingHints.registerReflectionHints(hints.reflection(), BackchannelLogoutController.LogoutForm.class);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keycloak realms trusted besides the default one (app.security.tenants),
+ * keyed by realm name. The default realm is keycloak.realm with the issuer
+ * and JWK set URI of spring.security.oauth2.resourceserver.jwt; an entry
+ * with its name only sets its client-id, hosts and roles.
+ *
+ * @param realms trusted realms by name
+ */
+@ConfigurationProperties("app.security.tenants")
+public record TenantRealmsProperties(Map<String, Realm> realms) {
+
+    public TenantRealmsProperties {
+        realms = realms != null ? Map.copyOf(realms) : Map.of();
+    }
+
+    /**
+     * @param issuerUri iss of the realm's tokens; defaults to {keycloak.auth-server-url}/realms/{name}
+     * @param jwkSetUri defaults to {issuer-uri}/protocol/openid-connect/certs
+     * @param clientId  client for login redirects; defaults to keycloak.client-id
+     * @param hosts     login redirects for requests to these hosts go to this realm
+     * @param roles     which of the realm's roles become authorities
+     */
+    public record Realm(String issuerUri, String jwkSetUri, String clientId, List<String> hosts, Roles roles) {
+
+        public Realm {
+            hosts = hosts != null ? List.copyOf(hosts) : List.of();
+            roles = roles != null ? roles : new Roles(true, List.of(), true);
+        }
+    }
+
+    /**
+     * @param realmRoles  map realm_access.roles
+     * @param clientRoles resource_access clients whose roles are mapped (empty = all)
+     * @param groups      map group memberships
+     */
+    public record Roles(@DefaultValue("true") boolean realmRoles,
+                        List<String> clientRoles,
+                        @DefaultValue("true") boolean groups) {
+
+        public Roles {
+            clientRoles = clientRoles != null ? List.copyOf(clientRoles) : List.of();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import com.example.demo.userinfo.UserInfoClient;
+import com.example.demo.userinfo.UserProfileCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Userinfo enrichment (enabled with app.userinfo-enrichment.enabled=true):
+ * UserProfileCache in front of Keycloak's userinfo endpoint, fetching on the
+ * application task executor. On the reactive stack requests never wait for
+ * a profile, so the event loop is not blocked; a user's first /userinfo is
+ * then answered from the token alone.
+ */
+@Configuration
+@EnableConfigurationProperties(UserInfoEnrichmentProperties.class)
+@ConditionalOnProperty(name = "app.userinfo-enrichment.enabled", havingValue = "true")
+public class UserInfoEnrichmentConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(UserInfoEnrichmentConfig.class);
+
+    @Bean
+    public UserProfileCache userProfileCache(
+            UserInfoEnrichmentProperties properties,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+            ApplicationContext applicationContext,
+            MeterRegistry meterRegistry) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.connectTimeout());
+        requestFactory.setReadTimeout(properties.readTimeout());
+        UserInfoClient client = new UserInfoClient(new RestTemplate(requestFactory), properties.userinfoPath());
+
+        Duration waitTimeout = applicationContext instanceof ReactiveWebApplicationContext
+                ? Duration.ZERO
+                : properties.waitTimeout();
+        UserProfileCache cache = new UserProfileCache(client, executor, new HashSet<>(properties.attributes()),
+                properties.maximumSize(), properties.ttl(), properties.refreshAfter(), waitTimeout);
+        cache.bindTo(meterRegistry);
+        log.info("Userinfo enrichment enabled (attributes={}, maximum-size={}, ttl={}, refresh-after={}, "
+                        + "wait-timeout={})", properties.attributes().isEmpty() ? "all" : properties.attributes(),
+                properties.maximumSize(), properties.ttl(), properties.refreshAfter(), waitTimeout);
+        return cache;
+    }
+}
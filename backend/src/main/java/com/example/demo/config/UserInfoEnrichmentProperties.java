@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Profile attributes added to /api/hello/userinfo from Keycloak's userinfo
+ * endpoint (app.userinfo-enrichment).
+ *
+ * @param enabled        fetch profiles; /userinfo is built from the token alone otherwise
+ * @param userinfoPath   appended to the token's issuer
+ * @param attributes     userinfo claims to include, all of them if empty
+ * @param maximumSize    maximum number of cached profiles
+ * @param ttl            profiles not refreshed for this long are dropped
+ * @param refreshAfter   profiles older than this are served while a fresh one is fetched
+ * @param waitTimeout    how long a request waits for a profile being fetched (servlet stack only;
+ *                       reactive requests never wait)
+ * @param connectTimeout connect timeout of userinfo calls
+ * @param readTimeout    read timeout of userinfo calls
+ */
+@ConfigurationProperties("app.userinfo-enrichment")
+public record UserInfoEnrichmentProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("/protocol/openid-connect/userinfo") String userinfoPath,
+        @DefaultValue List<String> attributes,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("30m") Duration ttl,
+        @DefaultValue("5m") Duration refreshAfter,
+        @DefaultValue("300ms") Duration waitTimeout,
+        @DefaultValue("1s") Duration connectTimeout,
+        @DefaultValue("2s") Duration readTimeout) {
+}
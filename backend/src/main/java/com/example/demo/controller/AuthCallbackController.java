@@ -0,0 +1,45 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.LoginState;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Login callback support - No authentication required.
+ *
+ * After the Keycloak login the frontend receives ?code=...&state=...; it calls
+ * this endpoint to check that the state was issued by this backend and has not
+ * expired, and to learn which URL the user originally requested. The code
+ * exchange itself stays with the (public) frontend client.
+ */
+@RestController
+@RequestMapping("/api/public/auth")
+public class AuthCallbackController {
+
+    private final LoginState loginState;
+
+    public AuthCallbackController(LoginState loginState) {
+        this.loginState = loginState;
+    }
+
+    @GetMapping("/callback")
+    public ResponseEntity<Map<String, Object>> callback(@RequestParam(required = false) String state) {
+        LoginState.Verification verification = loginState.verify(state);
+
+        Map<String, Object> response = new HashMap<>();
+        if (!verification.isValid()) {
+            response.put("error", "invalid_state");
+            response.put("reason", verification.status().name().toLowerCase());
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("valid", true);
+        response.put("originalUrl", verification.originalUrl());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.BackchannelLogout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.web.bind.annotation.BindParam;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OIDC back-channel logout receiver - No bearer token required.
+ *
+ * Set the Keycloak client's "Backchannel logout URL" to
+ * {backend}/api/public/auth/backchannel-logout. Keycloak posts a signed
+ * logout_token (form encoded) for every ended session; it is verified
+ * against the realm's keys before the session is revoked.
+ */
+@RestController
+@RequestMapping("/api/public/auth")
+@ConditionalOnProperty(name = "app.security.revocation.enabled", matchIfMissing = true)
+public class BackchannelLogoutController {
+
+    private static final Logger log = LoggerFactory.getLogger(BackchannelLogoutController.class);
+
+    private final BackchannelLogout backchannelLogout;
+
+    public BackchannelLogoutController(BackchannelLogout backchannelLogout) {
+        this.backchannelLogout = backchannelLogout;
+    }
+
+    /**
+     * Form fields of the logout request; bound the same way on the servlet
+     * and reactive stacks (WebFlux does not read forms into a @RequestBody)
+     */
+    public record LogoutForm(@BindParam("logout_token") String logoutToken) {
+    }
+
+    @PostMapping(path = "/backchannel-logout", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<Map<String, Object>> logout(@ModelAttribute LogoutForm form) {
+        String logoutToken = form.logoutToken();
+        if (logoutToken == null || logoutToken.isEmpty()) {
+            return badRequest("logout_token is missing");
+        }
+        try {
+            backchannelLogout.logout(logoutToken);
+        } catch (JwtException e) {
+            log.warn("Rejected back-channel logout token: {}", e.getMessage());
+            return badRequest(e.getMessage());
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).build();
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(String description) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "invalid_request");
+        response.put("error_description", description);
+        return ResponseEntity.badRequest().cacheControl(CacheControl.noStore()).body(response);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.controller;
+
+import com.example.demo.batch.BatchDispatcher;
+import com.example.demo.batch.BatchRequest;
+import com.example.demo.security.ErrorResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Batch endpoint - Requires authentication (the /api/** path rule).
+ *
+ * Runs several GET/POST requests to the API under one authentication:
+ *
+ * POST /api/batch
+ * {"requests":[{"id":"me","method":"GET","path":"/api/hello/me"},
+ *              {"id":"action","method":"POST","path":"/api/hello/action","body":{"action":"x"}}]}
+ *
+ * Each sub-request is authorized by the usual path rules and method
+ * security and answered with its own status; see BatchDispatcher.
+ */
+@RestController
+@RequestMapping("/api/batch")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.batch.enabled", matchIfMissing = true)
+public class BatchController {
+
+    private final BatchDispatcher batchDispatcher;
+
+    public BatchController(BatchDispatcher batchDispatcher) {
+        this.batchDispatcher = batchDispatcher;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void batch(@RequestBody BatchRequest batch, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String invalid = batchDispatcher.validate(batch);
+        if (invalid != null) {
+            ErrorResponseWriter.write(response, HttpServletResponse.SC_BAD_REQUEST,
+                    ErrorResponseWriter.badRequest(invalid));
+            return;
+        }
+        batchDispatcher.execute(batch, request, response);
+    }
+}
@@ -1,7 +1,15 @@
 package com.example.demo.controller;
 
+import com.example.demo.downstream.AdminActionForwarder;
+import com.example.demo.security.RequiresRole;
+import com.example.demo.userinfo.UserProfile;
+import com.example.demo.userinfo.UserProfileCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,11 +25,40 @@ import java.util.stream.Collectors;
 /**
  * Hello Controller - Protected by Keycloak OAuth2.
  * All endpoints require ADMIN role from Keycloak group membership.
+ *
+ * /me and /userinfo depend only on the token: they are rendered once per
+ * token (IdentityResponseCache) and sent with a strong ETag, so clients
+ * polling them with If-None-Match get a bodiless 304.
  */
 @RestController
 @RequestMapping("/api/hello")
 public class HelloController {
 
+    /** Cached by the browser, but revalidated with If-None-Match on every use */
+    private static final CacheControl IDENTITY_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final IdentityResponseCache identityResponses;
+    private final AdminActionForwarder adminActionForwarder;
+    private final UserProfileCache userProfiles;
+
+    @Autowired
+    public HelloController(IdentityResponseCache identityResponses,
+                           ObjectProvider<AdminActionForwarder> adminActionForwarder,
+                           ObjectProvider<UserProfileCache> userProfiles) {
+        this(identityResponses, adminActionForwarder.getIfAvailable(), userProfiles.getIfAvailable());
+    }
+
+    /**
+     * @param adminActionForwarder null unless admin actions are passed on downstream
+     * @param userProfiles         null unless /userinfo is enriched from Keycloak's userinfo endpoint
+     */
+    public HelloController(IdentityResponseCache identityResponses, AdminActionForwarder adminActionForwarder,
+                           UserProfileCache userProfiles) {
+        this.identityResponses = identityResponses;
+        this.adminActionForwarder = adminActionForwarder;
+        this.userProfiles = userProfiles;
+    }
+
     /**
      * Basic hello endpoint - requires ADMIN role (configured in SecurityConfig)
      */
@@ -42,8 +79,40 @@ public class HelloController {
      * Personalized greeting with user details from JWT
      */
     @GetMapping("/me")
-    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> helloMe(@AuthenticationPrincipal Jwt jwt) {
+    @RequiresRole("ADMIN")
+    public ResponseEntity<byte[]> helloMe(@AuthenticationPrincipal Jwt jwt) {
+        return identityResponse(identityResponses.get(jwt, "me", () -> meBody(jwt)));
+    }
+
+    /**
+     * Get detailed user information including all claims, and the user's
+     * profile attributes when userinfo enrichment is enabled
+     */
+    @GetMapping("/userinfo")
+    @RequiresRole("ADMIN")
+    public ResponseEntity<byte[]> getUserInfo(
+            Authentication authentication,
+            @AuthenticationPrincipal Jwt jwt) {
+        UserProfile profile = userProfiles != null ? userProfiles.get(jwt) : null;
+        // Each profile version is rendered once per token; without one the token-only view is used
+        String view = profile != null ? "userinfo@" + profile.fetchedAt().toEpochMilli() : "userinfo";
+        return identityResponse(identityResponses.get(jwt, view, () -> userInfoBody(authentication, jwt, profile)));
+    }
+
+    /**
+     * A memoized identity view; Spring answers a matching If-None-Match with 304
+     */
+    private static ResponseEntity<byte[]> identityResponse(IdentityResponseCache.Rendered rendered) {
+        return ResponseEntity.ok()
+                .eTag(rendered.etag())
+                .cacheControl(IDENTITY_CACHE_CONTROL)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(rendered.body().length)
+                .body(rendered.body());
+    }
+
+    private static Map<String, Object> meBody(Jwt jwt) {
         Map<String, Object> response = new HashMap<>();
         response.put("message", String.format("Hello, %s!", 
                 jwt.getClaimAsString("preferred_username")));
@@ -55,18 +124,10 @@ public class HelloController {
         response.put("tokenIssuedAt", jwt.getIssuedAt());
         response.put("tokenExpiresAt", jwt.getExpiresAt());
         
-        return ResponseEntity.ok(response);
+        return response;
     }
 
-    /**
-     * Get detailed user information including all claims
-     */
-    @GetMapping("/userinfo")
-    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getUserInfo(
-            Authentication authentication,
-            @AuthenticationPrincipal Jwt jwt) {
-        
+    private static Map<String, Object> userInfoBody(Authentication authentication, Jwt jwt, UserProfile profile) {
         Map<String, Object> response = new HashMap<>();
         response.put("principal", authentication.getName());
         response.put("authorities", authentication.getAuthorities().stream()
@@ -94,15 +155,19 @@ public class HelloController {
         tokenInfo.put("expiresAt", jwt.getExpiresAt());
         
         response.put("tokenInfo", tokenInfo);
+
+        if (profile != null) {
+            response.put("profile", profile.attributes());
+        }
         
-        return ResponseEntity.ok(response);
+        return response;
     }
 
     /**
      * Admin-only action endpoint
      */
     @PostMapping("/action")
-    @PreAuthorize("hasRole('ADMIN')")
+    @RequiresRole("ADMIN")
     public ResponseEntity<Map<String, Object>> performAdminAction(
             @RequestBody(required = false) Map<String, Object> payload,
             @AuthenticationPrincipal Jwt jwt) {
@@ -116,6 +181,9 @@ public class HelloController {
         if (payload != null) {
             response.put("receivedPayload", payload);
         }
+        if (adminActionForwarder != null) {
+            response.put("downstream", adminActionForwarder.forward(payload));
+        }
         
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,133 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.TokenHash;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Serialized responses of the identity endpoints (/api/hello/me and
+ * /api/hello/userinfo), memoized per token.
+ *
+ * Their body depends only on the token (claims, and the authorities derived
+ * from them), so it is rendered and serialized once per token and view, and
+ * kept with a strong ETag (MD5 of the bytes) until the token's exp claim,
+ * never longer than maxTtl. Entries are keyed by issuer and jti, or by the
+ * SHA-256 of the token when it has no jti. A revoked token never reaches the
+ * controller, so its entry is simply left to expire.
+ *
+ * With caching disabled every request is rendered, but still gets its ETag,
+ * so conditional requests are answered with 304 either way.
+ * Hit/miss/eviction counts are published as cache.* metrics (cache=identity-responses).
+ */
+public class IdentityResponseCache implements MeterBinder {
+
+    /**
+     * @param body      JSON bytes
+     * @param etag      quoted strong entity tag
+     * @param expiresAt the token's exp claim
+     */
+    public record Rendered(byte[] body, String etag, Instant expiresAt) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Cache<String, Rendered> cache;
+
+    public IdentityResponseCache(ObjectMapper objectMapper, boolean enabled, long maximumSize, Duration maxTtl) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .expireAfter(new ExpiresAtExpiry(maxTtl))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The rendered view for this token, from the cache or from body
+     */
+    public Rendered get(Jwt jwt, String view, Supplier<Object> body) {
+        if (!enabled) {
+            return render(jwt, body);
+        }
+        String key = key(jwt, view);
+        Rendered rendered = cache.getIfPresent(key);
+        if (rendered == null) {
+            rendered = render(jwt, body);
+            cache.put(key, rendered);
+        }
+        return rendered;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "identity-responses");
+    }
+
+    private Rendered render(Jwt jwt, Supplier<Object> body) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize identity response", e);
+        }
+        return new Rendered(bytes, "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"", jwt.getExpiresAt());
+    }
+
+    private static String key(Jwt jwt, String view) {
+        String jti = jwt.getId();
+        String issuer = jwt.getClaimAsString(JwtClaimNames.ISS);
+        if (jti != null && issuer != null) {
+            return view + '|' + issuer + '|' + jti;
+        }
+        return view + '|' + TokenHash.of(jwt.getTokenValue());
+    }
+
+    /**
+     * Expire each entry when its token expires, never later than maxTtl
+     */
+    private static final class ExpiresAtExpiry implements Expiry<String, Rendered> {
+
+        private final long maxTtlNanos;
+
+        ExpiresAtExpiry(Duration maxTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Rendered rendered, long currentTime) {
+            if (rendered.expiresAt() == null) {
+                return maxTtlNanos;
+            }
+            long untilExpiry = Duration.between(Instant.now(), rendered.expiresAt()).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Rendered rendered, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, rendered, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Rendered rendered, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
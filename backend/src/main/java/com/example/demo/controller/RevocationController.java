@@ -0,0 +1,65 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.RequiresRole;
+import com.example.demo.security.RevocationIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin revocations - Requires ADMIN role.
+ *
+ * POST {"sid": ..., "jti": ..., "sub": ...} (any of them) rejects the matching
+ * access tokens issued until now, e.g. from a Keycloak admin event listener
+ * or by hand after a credential leak. Tokens issued later are accepted.
+ */
+@RestController
+@RequestMapping("/api/admin/revocations")
+@ConditionalOnProperty(name = "app.security.revocation.enabled", matchIfMissing = true)
+public class RevocationController {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationController.class);
+
+    private final RevocationIndex revocationIndex;
+
+    public RevocationController(RevocationIndex revocationIndex) {
+        this.revocationIndex = revocationIndex;
+    }
+
+    @PostMapping
+    @RequiresRole("ADMIN")
+    public ResponseEntity<Map<String, Object>> revoke(@RequestBody Map<String, Object> request,
+                                                      Authentication authentication) {
+        Instant now = Instant.now();
+        List<String> revoked = new ArrayList<>();
+        for (RevocationIndex.Kind kind : RevocationIndex.Kind.values()) {
+            if (request.get(kind.claim()) instanceof String value && !value.isEmpty()) {
+                revocationIndex.revoke(kind, value, now);
+                revoked.add(kind.claim());
+                log.info("{} revoked {}={}", authentication.getName(), kind.claim(), value);
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        if (revoked.isEmpty()) {
+            response.put("error", "invalid_request");
+            response.put("error_description", "Expected sid, jti or sub");
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("revoked", revoked);
+        response.put("entries", revocationIndex.size());
+        return ResponseEntity.ok(response);
+    }
+}
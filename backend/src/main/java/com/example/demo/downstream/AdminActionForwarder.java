@@ -0,0 +1,43 @@
+package com.example.demo.downstream;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Passes admin actions (POST /api/hello/action) on to a downstream service
+ * (app.downstream.admin-action-service) on behalf of the caller.
+ * Error statuses of the service are reported, not thrown.
+ */
+public class AdminActionForwarder {
+
+    private final String service;
+    private final String path;
+    private final RestClient client;
+
+    public AdminActionForwarder(String service, String path, RestClient client) {
+        this.service = service;
+        this.path = path;
+        this.client = client;
+    }
+
+    /**
+     * POST the payload to the service
+     *
+     * @return {"service": name, "status": HTTP status of the service}
+     */
+    public Map<String, Object> forward(Map<String, Object> payload) {
+        HttpStatusCode status = client.post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payload != null ? payload : Map.of())
+                .exchange((request, response) -> response.getStatusCode());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("service", service);
+        result.put("status", status.value());
+        return result;
+    }
+}
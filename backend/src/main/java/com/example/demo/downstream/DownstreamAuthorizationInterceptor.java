@@ -0,0 +1,40 @@
+package com.example.demo.downstream;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+
+/**
+ * Sets the bearer token of every request of one downstream service's
+ * client, on behalf of the Authentication of the current thread.
+ */
+public class DownstreamAuthorizationInterceptor implements ClientHttpRequestInterceptor {
+
+    private final DownstreamTokenProvider tokenProvider;
+    private final String service;
+    private final DownstreamGrant grant;
+    private final String audience;
+    private final String scope;
+
+    public DownstreamAuthorizationInterceptor(DownstreamTokenProvider tokenProvider, String service,
+                                              DownstreamGrant grant, String audience, String scope) {
+        this.tokenProvider = tokenProvider;
+        this.service = service;
+        this.grant = grant;
+        this.audience = audience;
+        this.scope = scope;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String token = tokenProvider.tokenFor(service, grant, audience, scope,
+                SecurityContextHolder.getContext().getAuthentication());
+        request.getHeaders().setBearerAuth(token);
+        return execution.execute(request, body);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.downstream;
+
+import org.springframework.web.client.RestClient;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RestClients of the configured downstream services (app.downstream.services),
+ * each authorizing its requests for the current caller with a
+ * DownstreamAuthorizationInterceptor.
+ */
+public class DownstreamClients {
+
+    private final Map<String, RestClient> clients;
+
+    public DownstreamClients(Map<String, RestClient> clients) {
+        this.clients = Map.copyOf(clients);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no such service is configured
+     */
+    public RestClient client(String service) {
+        RestClient client = clients.get(service);
+        if (client == null) {
+            throw new IllegalArgumentException("No downstream service " + service + " in app.downstream.services");
+        }
+        return client;
+    }
+
+    public Set<String> services() {
+        return clients.keySet();
+    }
+}
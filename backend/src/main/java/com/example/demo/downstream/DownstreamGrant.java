@@ -0,0 +1,16 @@
+package com.example.demo.downstream;
+
+/**
+ * How the access token sent to a downstream service is obtained
+ */
+public enum DownstreamGrant {
+
+    /** The caller's own bearer token, passed on unchanged */
+    RELAY,
+
+    /** A token of the resource server itself (client_credentials), shared by all callers */
+    CLIENT_CREDENTIALS,
+
+    /** The caller's token exchanged for one scoped to the downstream service (RFC 8693) */
+    TOKEN_EXCHANGE
+}
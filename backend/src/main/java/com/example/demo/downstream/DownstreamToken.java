@@ -0,0 +1,12 @@
+package com.example.demo.downstream;
+
+import java.time.Instant;
+
+/**
+ * An access token for a downstream service
+ *
+ * @param value     the bearer token
+ * @param expiresAt when the token endpoint said it expires (issue time + expires_in)
+ */
+public record DownstreamToken(String value, Instant expiresAt) {
+}
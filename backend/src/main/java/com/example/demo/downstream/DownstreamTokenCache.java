@@ -0,0 +1,194 @@
+package com.example.demo.downstream;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Downstream access tokens, kept until shortly before they expire and
+ * replaced before callers ever have to wait for one.
+ *
+ * - A token is served while it is valid for at least minValidity more (at
+ *   most a quarter of its lifetime), so it cannot expire while a downstream
+ *   call is in flight.
+ * - Once less than refreshAhead (at most half its lifetime) is left, the
+ *   first caller to notice starts fetching its replacement on the executor
+ *   and every caller keeps getting the current token meanwhile.
+ * - Without a usable token, one caller fetches it and the others arriving
+ *   meanwhile wait for that same fetch, at most fetchTimeout.
+ *
+ * So a token endpoint sees one request per key and token lifetime, whatever
+ * the number of concurrent callers. A failed refresh-ahead is retried by the
+ * next caller while the current token stays usable.
+ */
+public class DownstreamTokenCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DownstreamTokenCache.class);
+
+    private final Cache<String, Slot> slots;
+    private final Executor executor;
+    private final Duration refreshAhead;
+    private final Duration minValidity;
+    private final Duration fetchTimeout;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public DownstreamTokenCache(Executor executor, Duration refreshAhead, Duration minValidity, Duration fetchTimeout,
+                                long maximumSize, Duration idleTtl) {
+        this.executor = executor;
+        this.refreshAhead = refreshAhead;
+        this.minValidity = minValidity;
+        this.fetchTimeout = fetchTimeout;
+        this.slots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleTtl)
+                .build();
+    }
+
+    /**
+     * A usable token for key, from the cache or from fetch
+     *
+     * @throws DownstreamTokenException if none could be fetched in time
+     */
+    public DownstreamToken get(String key, Supplier<DownstreamToken> fetch) {
+        Slot slot = slots.get(key, k -> new Slot());
+        Cached cached = slot.cached;
+        Instant now = Instant.now();
+        if (cached != null && now.isBefore(cached.staleAt())) {
+            if (!now.isBefore(cached.refreshAt()) && slot.fetching.get() == null) {
+                refreshAhead(key, slot, fetch);
+            }
+            hits.increment();
+            return cached.token();
+        }
+        misses.increment();
+        return await(key, fetch(slot, fetch, null));
+    }
+
+    public long size() {
+        return slots.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, hits, "hit", "Served a cached token");
+        counter(registry, refreshes, "refresh_ahead", "Started replacing a token about to expire");
+        counter(registry, misses, "miss", "Waited for a token from the token endpoint");
+        counter(registry, failures, "failure", "Token endpoint requests that failed");
+    }
+
+    private void refreshAhead(String key, Slot slot, Supplier<DownstreamToken> fetch) {
+        CompletableFuture<DownstreamToken> refresh = fetch(slot, fetch, executor);
+        if (refresh != null) {
+            refreshes.increment();
+            refresh.whenComplete((token, e) -> {
+                if (e != null) {
+                    log.warn("Could not refresh downstream token {} ahead of expiry: {}", key, e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * The fetch in progress for this slot, or a new one: run by the calling
+     * thread, or on executor when given (then null if one was already running)
+     */
+    private CompletableFuture<DownstreamToken> fetch(Slot slot, Supplier<DownstreamToken> fetch, Executor executor) {
+        CompletableFuture<DownstreamToken> future = new CompletableFuture<>();
+        while (!slot.fetching.compareAndSet(null, future)) {
+            CompletableFuture<DownstreamToken> running = slot.fetching.get();
+            if (running != null) {
+                return executor == null ? running : null;
+            }
+        }
+        Runnable task = () -> {
+            try {
+                DownstreamToken token = fetch.get();
+                slot.cached = cached(token);
+                slot.fetching.set(null);
+                future.complete(token);
+            } catch (RuntimeException e) {
+                failures.increment();
+                slot.fetching.set(null);
+                future.completeExceptionally(e);
+            }
+        };
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Busy: the next caller tries again, the current token is still good
+                slot.fetching.set(null);
+                return null;
+            }
+        }
+        return future;
+    }
+
+    private DownstreamToken await(String key, CompletableFuture<DownstreamToken> fetching) {
+        try {
+            return fetching.get(fetchTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DownstreamTokenException tokenException) {
+                throw tokenException;
+            }
+            throw new DownstreamTokenException("Could not obtain downstream token " + key, e.getCause());
+        } catch (TimeoutException e) {
+            throw new DownstreamTokenException("Timed out waiting for downstream token " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamTokenException("Interrupted waiting for downstream token " + key);
+        }
+    }
+
+    private Cached cached(DownstreamToken token) {
+        Duration lifetime = Duration.between(Instant.now(), token.expiresAt());
+        return new Cached(token, token.expiresAt().minus(atMost(refreshAhead, lifetime.dividedBy(2))),
+                token.expiresAt().minus(atMost(minValidity, lifetime.dividedBy(4))));
+    }
+
+    private static Duration atMost(Duration duration, Duration limit) {
+        return duration.compareTo(limit) < 0 ? duration : limit;
+    }
+
+    private static void counter(MeterRegistry registry, LongAdder adder, String result, String description) {
+        FunctionCounter.builder("auth.downstream.tokens", adder, LongAdder::sum)
+                .description(description)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * @param refreshAt when to start fetching a replacement
+     * @param staleAt   when to stop serving it
+     */
+    private record Cached(DownstreamToken token, Instant refreshAt, Instant staleAt) {
+    }
+
+    private static final class Slot {
+
+        volatile Cached cached;
+        final AtomicReference<CompletableFuture<DownstreamToken>> fetching = new AtomicReference<>();
+    }
+}
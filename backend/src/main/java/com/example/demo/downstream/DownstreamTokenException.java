@@ -0,0 +1,17 @@
+package com.example.demo.downstream;
+
+/**
+ * No token could be obtained for a downstream call (token endpoint failed,
+ * timed out, or there is no caller token to relay or exchange).
+ * Answered with 502 by GlobalExceptionHandler.
+ */
+public class DownstreamTokenException extends RuntimeException {
+
+    public DownstreamTokenException(String message) {
+        super(message);
+    }
+
+    public DownstreamTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
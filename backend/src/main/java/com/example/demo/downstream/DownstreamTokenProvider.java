@@ -0,0 +1,64 @@
+package com.example.demo.downstream;
+
+import com.example.demo.security.TokenHash;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AbstractOAuth2Token;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+
+/**
+ * Access token for a call to a downstream service on behalf of an
+ * authenticated caller, per the service's DownstreamGrant:
+ * - RELAY: the caller's bearer token itself
+ * - CLIENT_CREDENTIALS: the resource server's token, cached per service
+ * - TOKEN_EXCHANGE: the caller's token exchanged for the service's audience,
+ *   cached per service and caller token (issuer + jti, else its SHA-256)
+ */
+public class DownstreamTokenProvider {
+
+    private final TokenEndpointClient tokenEndpoint;
+    private final DownstreamTokenCache cache;
+
+    public DownstreamTokenProvider(TokenEndpointClient tokenEndpoint, DownstreamTokenCache cache) {
+        this.tokenEndpoint = tokenEndpoint;
+        this.cache = cache;
+    }
+
+    /**
+     * @param service        service name, part of the cache key
+     * @param grant          how to obtain the token
+     * @param audience       requested audience (client id of the service), may be null
+     * @param scope          requested scope, may be null
+     * @param authentication the caller
+     */
+    public String tokenFor(String service, DownstreamGrant grant, String audience, String scope,
+                           Authentication authentication) {
+        return switch (grant) {
+            case RELAY -> bearerToken(authentication).getTokenValue();
+            case CLIENT_CREDENTIALS -> cache.get(service,
+                    () -> tokenEndpoint.clientCredentials(audience, scope)).value();
+            case TOKEN_EXCHANGE -> {
+                AbstractOAuth2Token subject = bearerToken(authentication);
+                yield cache.get(service + '|' + subjectKey(subject),
+                        () -> tokenEndpoint.exchange(subject.getTokenValue(), audience, scope)).value();
+            }
+        };
+    }
+
+    private static AbstractOAuth2Token bearerToken(Authentication authentication) {
+        // JwtAuthenticationToken and BearerTokenAuthentication (opaque tokens) hold their token as credentials
+        if (authentication instanceof AbstractOAuth2TokenAuthenticationToken<?> tokenAuthentication
+                && tokenAuthentication.getCredentials() instanceof AbstractOAuth2Token token) {
+            return token;
+        }
+        throw new DownstreamTokenException("No bearer token to pass on to a downstream service");
+    }
+
+    private static String subjectKey(AbstractOAuth2Token token) {
+        if (token instanceof Jwt jwt && jwt.getId() != null && jwt.getClaimAsString(JwtClaimNames.ISS) != null) {
+            return jwt.getClaimAsString(JwtClaimNames.ISS) + "|" + jwt.getId();
+        }
+        return TokenHash.of(token.getTokenValue());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.downstream;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keycloak's token endpoint, called as the resource server's confidential
+ * client (credentials sent with HTTP Basic by the RestTemplate's interceptor).
+ */
+public class TokenEndpointClient {
+
+    static final String TOKEN_EXCHANGE_GRANT = "urn:ietf:params:oauth:grant-type:token-exchange";
+    static final String ACCESS_TOKEN_TYPE = "urn:ietf:params:oauth:token-type:access_token";
+
+    private static final ParameterizedTypeReference<Map<String, Object>> TOKEN_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestTemplate restTemplate;
+    private final String tokenUri;
+
+    public TokenEndpointClient(RestTemplate restTemplate, String tokenUri) {
+        this.restTemplate = restTemplate;
+        this.tokenUri = tokenUri;
+    }
+
+    public String tokenUri() {
+        return tokenUri;
+    }
+
+    /**
+     * A token of the resource server itself
+     */
+    public DownstreamToken clientCredentials(String audience, String scope) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "client_credentials");
+        optional(form, "audience", audience);
+        optional(form, "scope", scope);
+        return request(form);
+    }
+
+    /**
+     * The caller's access token exchanged for one issued to audience
+     */
+    public DownstreamToken exchange(String subjectToken, String audience, String scope) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", TOKEN_EXCHANGE_GRANT);
+        form.add("subject_token", subjectToken);
+        form.add("subject_token_type", ACCESS_TOKEN_TYPE);
+        form.add("requested_token_type", ACCESS_TOKEN_TYPE);
+        optional(form, "audience", audience);
+        optional(form, "scope", scope);
+        return request(form);
+    }
+
+    private DownstreamToken request(MultiValueMap<String, String> form) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        Instant requestedAt = Instant.now();
+        Map<String, Object> response;
+        try {
+            response = restTemplate.exchange(tokenUri, HttpMethod.POST, new HttpEntity<>(form, headers), TOKEN_RESPONSE)
+                    .getBody();
+        } catch (RestClientResponseException e) {
+            throw new DownstreamTokenException("Token endpoint answered " + e.getStatusCode().value()
+                    + " to a " + form.getFirst("grant_type") + " request", e);
+        } catch (RestClientException e) {
+            throw new DownstreamTokenException("Token endpoint " + tokenUri + " unavailable: " + e.getMessage(), e);
+        }
+        if (response == null || !(response.get("access_token") instanceof String accessToken)) {
+            throw new DownstreamTokenException("Token endpoint response has no access_token");
+        }
+        // Measured from the request, so the token is never thought to live longer than it does
+        long expiresIn = response.get("expires_in") instanceof Number number ? number.longValue() : 0;
+        return new DownstreamToken(accessToken, requestedAt.plusSeconds(expiresIn));
+    }
+
+    private static void optional(MultiValueMap<String, String> form, String name, String value) {
+        if (StringUtils.hasText(value)) {
+            form.add(name, value);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.limit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit adjusted from measured latency (AIMD).
+ *
+ * - A request that completes within latencyThreshold while at least half the
+ *   limit is in use raises the limit by one (additive increase)
+ * - A slower request multiplies the limit by backoffRatio (multiplicative
+ *   decrease), at most once per "window": only requests that started after
+ *   the previous decrease can trigger the next one, so a burst of slow
+ *   completions does not collapse the limit
+ *
+ * State is three atomics updated with CAS; nothing blocks.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    Duration latencyThreshold, double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoff-ratio must be between 0 and 1: " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+        // Far enough back that the first slow request always counts
+        this.lastDecrease = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+    }
+
+    /**
+     * Take a slot if priority's share of the limit is not used up.
+     * Every successful call must be followed by release.
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        int allowance = priority.allowance(limit.get());
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowance) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return a slot taken at startNanos and adjust the limit from its latency
+     */
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        int inUse = inflight.getAndDecrement();
+        if (now - startNanos > latencyThresholdNanos) {
+            decrease(startNanos, now);
+        } else if (inUse * 2 >= limit.get()) {
+            increase();
+        }
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    private void increase() {
+        int current = limit.get();
+        if (current < maxLimit) {
+            // A lost race means someone else moved the limit; skipping is fine
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    private void decrease(long startNanos, long now) {
+        long last = lastDecrease.get();
+        if (startNanos - last < 0 || !lastDecrease.compareAndSet(last, now)) {
+            // Started before the last decrease, which already accounted for it
+            return;
+        }
+        limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.limit;
+
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.RequestPaths;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers clients over their request rate with a fast 429 JSON response.
+ *
+ * Runs right after bearer token authentication, where the principal the
+ * rate is kept for is known (remote address for anonymous requests);
+ * priority paths are exempt. Added to the chain by SecurityConfig when
+ * app.load-shedding.rate.enabled is set; not a bean.
+ */
+public class ClientRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LoadShedder loadShedder;
+
+    public ClientRateLimitFilter(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        LoadShedder.Decision decision = loadShedder.tryAcquireRate(RequestPaths.of(request),
+                SecurityContextHolder.getContext().getAuthentication(), request.getRemoteAddr(), System.nanoTime());
+        if (decision != LoadShedder.Decision.ADMITTED) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            ErrorResponseWriter.write(response, 429, ErrorResponseWriter.rateLimited());
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.limit;
+
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.RequestPaths;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of ClientRateLimitFilter, added after authentication
+ * by ReactiveSecurityConfig.
+ */
+public class ClientRateLimitWebFilter implements WebFilter {
+
+    private final LoadShedder loadShedder;
+
+    public ClientRateLimitWebFilter(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return ReactiveSecurityContextHolder.getContext()
+                .mapNotNull(SecurityContext::getAuthentication)
+                .map(authentication -> Mono.defer(() -> check(exchange, chain, authentication)))
+                .defaultIfEmpty(Mono.defer(() -> check(exchange, chain, null)))
+                .flatMap(checked -> checked);
+    }
+
+    private Mono<Void> check(ServerWebExchange exchange, WebFilterChain chain, Authentication authentication) {
+        LoadShedder.Decision decision = loadShedder.tryAcquireRate(RequestPaths.of(exchange.getRequest()),
+                authentication, LoadSheddingWebFilter.remoteAddress(exchange), System.nanoTime());
+        if (decision != LoadShedder.Decision.ADMITTED) {
+            return LoadSheddingWebFilter.reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS,
+                    ErrorResponseWriter.rateLimited());
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.limit;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-client request rate limit using GCRA (the generic cell rate algorithm,
+ * equivalent to a token bucket) over a fixed array of striped buckets.
+ *
+ * A client key (principal name or remote address) is hashed with a random
+ * per-process seed onto one of the stripes; each stripe holds a single
+ * "theoretical arrival time" updated with CAS. Memory is fixed and nothing
+ * needs evicting; clients that collide share a bucket, which only makes the
+ * limit stricter for them, and the seed keeps collisions from being chosen.
+ */
+public class ClientRateLimiter {
+
+    private final AtomicLongArray arrivalTimes;
+    private final int mask;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int seed;
+    private final int multiplier;
+
+    /**
+     * @param ratePerSecond sustained requests per second per client
+     * @param burst         requests a client may send at once after being idle
+     * @param stripes       number of buckets, rounded up to a power of two
+     */
+    public ClientRateLimiter(double ratePerSecond, int burst, int stripes) {
+        if (ratePerSecond <= 0 || burst < 1 || stripes < 1) {
+            throw new IllegalArgumentException("rate, burst and stripes must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.arrivalTimes = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = (long) (Duration.ofSeconds(1).toNanos() / ratePerSecond);
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        SecureRandom random = new SecureRandom();
+        this.seed = random.nextInt();
+        this.multiplier = random.nextInt() | 1;
+        // Start every bucket full
+        long idle = System.nanoTime() - toleranceNanos - intervalNanos;
+        for (int i = 0; i < size; i++) {
+            arrivalTimes.set(i, idle);
+        }
+    }
+
+    /**
+     * Whether client may send a request at nowNanos (System.nanoTime); counts it if so
+     */
+    public boolean tryAcquire(String client, long nowNanos) {
+        int stripe = stripe(client);
+        while (true) {
+            long now = nowNanos;
+            long tat = arrivalTimes.get(stripe);
+            long start = tat - now > 0 ? tat : now;
+            if (start - now > toleranceNanos) {
+                return false;
+            }
+            if (arrivalTimes.compareAndSet(stripe, tat, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    private int stripe(String client) {
+        // Polynomial hash with a secret odd multiplier (String.hashCode
+        // collisions are easy to construct), then murmur3 fmix32
+        int h = seed;
+        for (int i = 0; i < client.length(); i++) {
+            h = h * multiplier + client.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.limit;
+
+import com.example.demo.security.PathPatternTrie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+
+/**
+ * Admission control shared by the load shedding and rate limit filters of
+ * both stacks, in two steps:
+ *
+ * - tryAdmit, before authentication: the request's priority share of the
+ *   adaptive concurrency limit. It runs first so that bearer token
+ *   decoding, JWKS fetches and introspection, the part that slows down with
+ *   Keycloak, only ever run for admitted requests.
+ * - tryAcquireRate, once the principal is known: its client's rate
+ *   (ClientRateLimiter, keyed by principal name or remote address). Priority
+ *   paths are exempt, so health probes sharing one address behind a load
+ *   balancer or NAT are never rate limited. Optional (rate limiter null).
+ *
+ * Rejections are counted in http.limiter.rejected (priority, reason); the
+ * current limit and in-flight count are published as http.limiter.limit /
+ * http.limiter.inflight.
+ */
+public class LoadShedder implements MeterBinder {
+
+    public enum Decision {
+        ADMITTED,
+        /** Concurrency limit reached for this priority: 503 */
+        OVERLOADED,
+        /** Client over its request rate: 429 */
+        RATE_LIMITED
+    }
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ClientRateLimiter rateLimiter;
+    private final PathPatternTrie<Boolean> priorityPaths = new PathPatternTrie<>();
+
+    /** Indexed by [RequestPriority.ordinal()][0 = overloaded, 1 = rate_limited] */
+    private final Counter[][] rejected = new Counter[RequestPriority.values().length][2];
+
+    /**
+     * @param rateLimiter null to not limit per-client rates
+     */
+    public LoadShedder(AdaptiveConcurrencyLimit concurrencyLimit,
+                       ClientRateLimiter rateLimiter,
+                       List<String> priorityPaths) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.rateLimiter = rateLimiter;
+        priorityPaths.forEach(pattern -> this.priorityPaths.add(pattern, Boolean.TRUE));
+    }
+
+    /**
+     * Priority of a request to path (in RequestPaths form, null if it has
+     * none). Decided before authentication, so a request carrying
+     * credentials counts as authenticated; junk tokens are turned away by
+     * the bearer token precheck right after.
+     */
+    public RequestPriority priority(String path, boolean hasCredentials) {
+        if (isPriorityPath(path)) {
+            return RequestPriority.CRITICAL;
+        }
+        return hasCredentials ? RequestPriority.AUTHENTICATED : RequestPriority.ANONYMOUS;
+    }
+
+    /**
+     * Admit or reject a request by the concurrency limit; ADMITTED must be
+     * followed by release(startNanos), startNanos taken (System.nanoTime)
+     * when it was admitted
+     */
+    public Decision tryAdmit(RequestPriority priority) {
+        return concurrencyLimit.tryAcquire(priority) ? Decision.ADMITTED : reject(priority, Decision.OVERLOADED);
+    }
+
+    /**
+     * Whether per-client rates are limited (tryAcquireRate can reject)
+     */
+    public boolean limitsRate() {
+        return rateLimiter != null;
+    }
+
+    /**
+     * Charge one request to path at nowNanos (System.nanoTime) to its
+     * client's rate: the principal, or remoteAddress if authentication is
+     * null or anonymous. ADMITTED or RATE_LIMITED; priority paths are
+     * always admitted.
+     */
+    public Decision tryAcquireRate(String path, Authentication authentication, String remoteAddress,
+                                   long nowNanos) {
+        if (rateLimiter == null || isPriorityPath(path)) {
+            return Decision.ADMITTED;
+        }
+        boolean authenticated = isAuthenticated(authentication);
+        if (rateLimiter.tryAcquire(authenticated ? authentication.getName() : remoteAddress, nowNanos)) {
+            return Decision.ADMITTED;
+        }
+        return reject(authenticated ? RequestPriority.AUTHENTICATED : RequestPriority.ANONYMOUS,
+                Decision.RATE_LIMITED);
+    }
+
+    /**
+     * Complete an admitted request that started at startNanos
+     */
+    public void release(long startNanos) {
+        concurrencyLimit.release(startNanos);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.limiter.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("http.limiter.inflight", concurrencyLimit, AdaptiveConcurrencyLimit::inflight)
+                .description("Requests currently admitted")
+                .register(registry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected[priority.ordinal()][0] = rejectedCounter(registry, priority, "overloaded");
+            rejected[priority.ordinal()][1] = rejectedCounter(registry, priority, "rate_limited");
+        }
+    }
+
+    private boolean isPriorityPath(String path) {
+        return path != null && priorityPaths.match(path) != null;
+    }
+
+    private Decision reject(RequestPriority priority, Decision decision) {
+        Counter counter = rejected[priority.ordinal()][decision == Decision.OVERLOADED ? 0 : 1];
+        if (counter != null) {
+            counter.increment();
+        }
+        return decision;
+    }
+
+    private static boolean isAuthenticated(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, RequestPriority priority, String reason) {
+        return Counter.builder("http.limiter.rejected")
+                .description("Requests shed by the load shedding filter")
+                .tag("priority", priority.tag())
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.limit;
+
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.RequestPaths;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load with a fast 503 JSON response before any authentication,
+ * authorization or controller work, so a slow Keycloak or downstream cannot
+ * tie up every Tomcat thread and take the health endpoints down with it.
+ *
+ * Runs before bearer token authentication: JWT decoding, JWKS fetches and
+ * introspection are the first thing to slow down with Keycloak, and only
+ * admitted requests get to them. The principal is not known yet, so the
+ * priority is taken from the path and the presence of credentials; the
+ * per-client rate is checked after authentication by ClientRateLimitFilter.
+ * Added to the chain by SecurityConfig; not a bean, so it is not also
+ * registered as a servlet filter.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LoadShedder loadShedder;
+
+    public LoadSheddingFilter(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestPriority priority = loadShedder.priority(RequestPaths.of(request),
+                request.getHeader(HttpHeaders.AUTHORIZATION) != null);
+        if (loadShedder.tryAdmit(priority) != LoadShedder.Decision.ADMITTED) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            ErrorResponseWriter.write(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ErrorResponseWriter.overloaded());
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            loadShedder.release(start);
+        }
+    }
+}
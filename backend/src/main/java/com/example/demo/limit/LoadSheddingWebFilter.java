@@ -0,0 +1,64 @@
+package com.example.demo.limit;
+
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.RequestPaths;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * WebFlux counterpart of LoadSheddingFilter, added before authentication by
+ * ReactiveSecurityConfig. An admitted request holds its slot until the
+ * response completes, errors or is cancelled.
+ */
+public class LoadSheddingWebFilter implements WebFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LoadShedder loadShedder;
+
+    public LoadSheddingWebFilter(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Deferred so a slot is only taken once the result is subscribed to
+        return Mono.defer(() -> admit(exchange, chain));
+    }
+
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        RequestPriority priority = loadShedder.priority(RequestPaths.of(request),
+                request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION));
+        if (loadShedder.tryAdmit(priority) != LoadShedder.Decision.ADMITTED) {
+            return reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, ErrorResponseWriter.overloaded());
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> loadShedder.release(start));
+    }
+
+    /**
+     * Fast JSON rejection (also used by ClientRateLimitWebFilter)
+     */
+    static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, byte[] body) {
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    static String remoteAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : "unknown";
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.limit;
+
+/**
+ * Order in which requests are shed when the concurrency limit is reached.
+ * Each priority may only use its share of the limit, so lower priorities are
+ * turned away first and always leave room for the ones above them.
+ */
+public enum RequestPriority {
+
+    /** Health checks and public endpoints */
+    CRITICAL("critical", 1.0),
+    /** Requests carrying credentials (an Authorization header), valid or not yet known */
+    AUTHENTICATED("authenticated", 0.9),
+    /** Requests without credentials to protected paths (would end in a login redirect or 401) */
+    ANONYMOUS("anonymous", 0.5);
+
+    private final String tag;
+    private final double share;
+
+    RequestPriority(String tag, double share) {
+        this.tag = tag;
+        this.share = share;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * Concurrent requests this priority may start under limit
+     */
+    int allowance(int limit) {
+        return Math.max(1, (int) (limit * share));
+    }
+}
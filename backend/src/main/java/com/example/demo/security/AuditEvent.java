@@ -0,0 +1,34 @@
+package com.example.demo.security;
+
+/**
+ * One security decision recorded by AuditLog.
+ *
+ * @param timestamp epoch milliseconds
+ * @param type      what was decided
+ * @param principal user name, or null when unauthenticated
+ * @param target    "METHOD /path" for HTTP decisions, "Class.method" for method security
+ * @param client    remote address, or null for method security
+ * @param detail    401 reason tag (AuthFailureReason) or the roles a method requires; may be null
+ */
+public record AuditEvent(long timestamp, Type type, String principal, String target, String client, String detail) {
+
+    public enum Type {
+        UNAUTHORIZED("401"),
+        FORBIDDEN("403"),
+        METHOD_GRANTED("grant"),
+        METHOD_DENIED("deny");
+
+        private final String tag;
+
+        Type(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Short name written to the audit file
+         */
+        public String tag() {
+            return tag;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Security audit trail (401s, 403s and @RequiresRole decisions) written to a
+ * rolling local file off the request path.
+ *
+ * Request threads publish into a bounded lock-free ring buffer (multi-producer,
+ * single-consumer, one CAS per event) and return: when the buffer is full the
+ * event is dropped and counted, never waited for. One daemon thread drains
+ * the buffer in batches, encodes them as JSON lines with short keys and
+ * appends them to the file; it is not woken by producers, but checks the
+ * buffer every flushInterval while idle, so an event reaches the file within
+ * about that long.
+ *
+ * Line format, null members omitted:
+ * {"t":epochMillis,"e":"401|403|grant|deny","p":principal,"r":target,"a":client,"d":detail}
+ *
+ * The file is rolled when it would exceed maxFileSize: file -> file.1 ->
+ * ... -> file.(maxFiles - 1), the oldest being deleted. Granted method
+ * checks are by far the most frequent event, so they are sampled
+ * (successSampleRate); denials and failures are always recorded.
+ */
+public class AuditLog implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    /** Minimum time between two "events dropped" warnings */
+    private static final long DROP_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Path file;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final double successSampleRate;
+
+    // Ring buffer: slot i holds an event when sequences[i] == position + 1,
+    // and is free for position p when sequences[i] == p
+    private final int mask;
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /** Next position to read; written by the writer thread only */
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Writer thread state
+    private OutputStream out;
+    private long fileSize;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public AuditLog(Path file, int bufferSize, int batchSize, Duration flushInterval,
+                    long maxFileSize, int maxFiles, double successSampleRate) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Audit buffer size must be a power of two: " + bufferSize);
+        }
+        this.file = file;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.successSampleRate = successSampleRate;
+        this.mask = bufferSize - 1;
+        this.slots = new AtomicReferenceArray<>(bufferSize);
+        this.sequences = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            sequences.set(i, i);
+        }
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Record an event, or drop it if the buffer is full. Never blocks.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean publish(AuditEvent event) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (available < 0) {
+                // The writer has not freed this slot yet: full
+                dropped.increment();
+                return false;
+            }
+            // Another producer took this position; retry with the new tail
+        }
+    }
+
+    public boolean publish(AuditEvent.Type type, String principal, String target, String client, String detail) {
+        return publish(new AuditEvent(System.currentTimeMillis(), type, principal, target, client, detail));
+    }
+
+    /**
+     * Whether to record this success, per successSampleRate
+     */
+    public boolean sampleSuccess() {
+        return successSampleRate >= 1.0
+                || (successSampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < successSampleRate);
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    /**
+     * Events published but not yet written
+     */
+    public long backlog() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.audit.events", written, LongAdder::sum)
+                .description("Audit events written to the audit file")
+                .tag("outcome", "written")
+                .register(registry);
+        FunctionCounter.builder("auth.audit.events", dropped, LongAdder::sum)
+                .description("Audit events dropped because the buffer was full or the file not writable")
+                .tag("outcome", "dropped")
+                .register(registry);
+        Gauge.builder("auth.audit.backlog", this, AuditLog::backlog)
+                .description("Audit events waiting to be written")
+                .register(registry);
+    }
+
+    /**
+     * Stop the writer after it has written what is in the buffer
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AuditEvent poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        AuditEvent event = slots.get(index);
+        slots.lazySet(index, null);
+        // Free the slot for the producer one lap ahead
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    private void writeLoop() {
+        long lastDropped = 0;
+        long lastDropWarning = System.nanoTime() - DROP_WARNING_INTERVAL_NANOS;
+        while (true) {
+            boolean stopping = !running;
+            int count = writeBatch();
+            if (count < batchSize) {
+                flush();
+                long droppedNow = dropped.sum();
+                if (droppedNow > lastDropped && System.nanoTime() - lastDropWarning >= DROP_WARNING_INTERVAL_NANOS) {
+                    log.warn("Dropped {} audit events (buffer full or file not writable)", droppedNow - lastDropped);
+                    lastDropped = droppedNow;
+                    lastDropWarning = System.nanoTime();
+                }
+                if (stopping && count == 0) {
+                    break;
+                }
+                if (count == 0) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * Encode and append up to batchSize events
+     *
+     * @return number of events taken from the buffer
+     */
+    private int writeBatch() {
+        line.setLength(0);
+        int count = 0;
+        AuditEvent event;
+        while (count < batchSize && (event = poll()) != null) {
+            encode(event, line);
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null || fileSize + bytes.length > maxFileSize) {
+                roll(bytes.length);
+            }
+            out.write(bytes);
+            fileSize += bytes.length;
+            written.add(count);
+        } catch (IOException e) {
+            dropped.add(count);
+            log.warn("Could not write audit file {}: {}", file, e.getMessage());
+            closeFile();
+        }
+        return count;
+    }
+
+    /**
+     * (Re)open the file, first rolling it if incoming bytes would take it past maxFileSize
+     */
+    private void roll(int incoming) throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        fileSize = Files.exists(file) ? Files.size(file) : 0;
+        if (fileSize > 0 && fileSize + incoming > maxFileSize) {
+            Files.deleteIfExists(rolled(maxFiles - 1));
+            for (int i = maxFiles - 2; i >= 1; i--) {
+                Path from = rolled(i);
+                if (Files.exists(from)) {
+                    Files.move(from, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (maxFiles > 1) {
+                Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(file);
+            }
+            fileSize = 0;
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                log.warn("Could not flush audit file {}: {}", file, e.getMessage());
+                closeFile();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Could not close audit file {}", file, e);
+            }
+            out = null;
+        }
+    }
+
+    static void encode(AuditEvent event, StringBuilder line) {
+        line.append("{\"t\":").append(event.timestamp())
+                .append(",\"e\":\"").append(event.type().tag()).append('"');
+        member(line, "p", event.principal());
+        member(line, "r", event.target());
+        member(line, "a", event.client());
+        member(line, "d", event.detail());
+        line.append("}\n");
+    }
+
+    private static void member(StringBuilder line, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
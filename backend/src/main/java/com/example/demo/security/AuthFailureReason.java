@@ -0,0 +1,119 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jwt.proc.BadJWTException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionException;
+
+import java.text.ParseException;
+
+/**
+ * Why a request ended in a 401, used as the "reason" metric tag.
+ * A fixed set of values keeps the tag low-cardinality.
+ */
+public enum AuthFailureReason {
+
+    MISSING_TOKEN("missing_token"),
+    EXPIRED("expired"),
+    INVALID_SIGNATURE("invalid_signature"),
+    MALFORMED("malformed"),
+    INVALID_CLAIMS("invalid_claims"),
+    KEYS_UNAVAILABLE("keys_unavailable"),
+    REVOKED("revoked"),
+    INTROSPECTION_FAILED("introspection_failed"),
+    INVALID_TOKEN("invalid_token");
+
+    private final String tag;
+
+    AuthFailureReason(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * Classify an authentication failure by walking its cause chain
+     * (InvalidBearerTokenException -> BadJwtException -> Nimbus exception)
+     */
+    public static AuthFailureReason of(AuthenticationException exception) {
+        if (exception instanceof InsufficientAuthenticationException
+                || exception instanceof AuthenticationCredentialsNotFoundException) {
+            // No bearer token was sent
+            return MISSING_TOKEN;
+        }
+        if (exception instanceof RejectedBearerTokenException rejected) {
+            return rejected.getReason();
+        }
+        return fromCauses(exception);
+    }
+
+    /**
+     * Classify a JwtDecoder failure (BadJwtException, JwtValidationException, ...)
+     */
+    public static AuthFailureReason ofDecodeFailure(JwtException exception) {
+        return fromCauses(exception);
+    }
+
+    private static AuthFailureReason fromCauses(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RevokedJwtException) {
+                return REVOKED;
+            }
+            if (cause instanceof OAuth2IntrospectionException && !(cause instanceof BadOpaqueTokenException)) {
+                // Keycloak could not be asked; an inactive token stays INVALID_TOKEN
+                return INTROSPECTION_FAILED;
+            }
+            if (cause instanceof JwtValidationException validation) {
+                return isExpired(validation) ? EXPIRED : INVALID_CLAIMS;
+            }
+            if (cause instanceof KeySourceException) {
+                return KEYS_UNAVAILABLE;
+            }
+            if (cause instanceof BadJWTException && cause.getCause() instanceof ParseException) {
+                // DefaultJWTProcessor's "payload ... is not a valid JSON object"
+                return MALFORMED;
+            }
+            if (cause instanceof BadJOSEException) {
+                // Bad signature, or no trusted key/algorithm to verify it with
+                return INVALID_SIGNATURE;
+            }
+            if (cause instanceof ParseException || isParseFailure(cause)) {
+                return MALFORMED;
+            }
+        }
+        return INVALID_TOKEN;
+    }
+
+    /**
+     * NimbusJwtDecoder wraps whatever the JWT parser threw (not always a
+     * ParseException) in a BadJwtException; JOSE failures are matched above
+     */
+    private static boolean isParseFailure(Throwable cause) {
+        return cause instanceof BadJwtException
+                && cause.getCause() != null
+                && !(cause.getCause() instanceof JOSEException)
+                && !(cause.getCause() instanceof BadJOSEException);
+    }
+
+    private static boolean isExpired(JwtValidationException exception) {
+        for (OAuth2Error error : exception.getErrors()) {
+            // Reported by JwtTimestampValidator
+            String description = error.getDescription();
+            if (description != null && description.startsWith("Jwt expired")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
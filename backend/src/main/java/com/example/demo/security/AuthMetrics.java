@@ -0,0 +1,159 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the authentication pipeline:
+ * - auth.jwt.decode: JWT parse + signature/claim verification (outcome)
+ * - auth.authorities.convert: Keycloak role to authority conversion
+ * - auth.jwks.fetch: JWKS fetches from Keycloak (outcome)
+ * - auth.introspection: opaque token introspection calls to Keycloak (outcome=active|inactive|failure)
+ * - auth.unauthorized: 401 responses (reason, response=redirect|json)
+ * - auth.forbidden: 403 responses (path group)
+ * - auth.precheck.rejected: bearer tokens rejected by BearerTokenPrecheck (check)
+ *
+ * Every meter is registered up front with a fixed tag set, so recording on
+ * the request path is an array lookup plus an update and allocates nothing.
+ * Paths are reduced to the configured path groups (first matching prefix,
+ * "other" otherwise) to keep the 403 tag low-cardinality.
+ */
+@Component
+public class AuthMetrics {
+
+    static final String OTHER_PATH_GROUP = "other";
+
+    private final Timer decodeSuccess;
+    private final Timer decodeFailure;
+    private final Timer conversion;
+    private final Timer jwksFetchSuccess;
+    private final Timer jwksFetchFailure;
+    private final Timer introspectionActive;
+    private final Timer introspectionInactive;
+    private final Timer introspectionFailure;
+
+    /** Indexed by [AuthFailureReason.ordinal()][0 = json, 1 = redirect] */
+    private final Counter[][] unauthorized;
+
+    /** Indexed by BearerTokenPrecheck.Rejection.ordinal() */
+    private final Counter[] precheckRejected;
+
+    private final String[] pathGroups;
+    /** Indexed like pathGroups, with "other" last */
+    private final Counter[] forbidden;
+
+    public AuthMetrics(MeterRegistry registry,
+                       @Value("${app.security.metrics.path-groups:/api/admin,/api/hello,/api/public,/api}")
+                       List<String> pathGroups) {
+        this.decodeSuccess = timer(registry, "auth.jwt.decode", "JWT parsing and verification", "success");
+        this.decodeFailure = timer(registry, "auth.jwt.decode", "JWT parsing and verification", "failure");
+        this.conversion = Timer.builder("auth.authorities.convert")
+                .description("Keycloak role to authority conversion")
+                .register(registry);
+        this.jwksFetchSuccess = timer(registry, "auth.jwks.fetch", "JWKS fetches from Keycloak", "success");
+        this.jwksFetchFailure = timer(registry, "auth.jwks.fetch", "JWKS fetches from Keycloak", "failure");
+        this.introspectionActive = timer(registry, "auth.introspection", "Token introspection calls to Keycloak", "active");
+        this.introspectionInactive = timer(registry, "auth.introspection", "Token introspection calls to Keycloak", "inactive");
+        this.introspectionFailure = timer(registry, "auth.introspection", "Token introspection calls to Keycloak", "failure");
+
+        AuthFailureReason[] reasons = AuthFailureReason.values();
+        this.unauthorized = new Counter[reasons.length][2];
+        for (AuthFailureReason reason : reasons) {
+            unauthorized[reason.ordinal()][0] = unauthorizedCounter(registry, reason, "json");
+            unauthorized[reason.ordinal()][1] = unauthorizedCounter(registry, reason, "redirect");
+        }
+
+        BearerTokenPrecheck.Rejection[] rejections = BearerTokenPrecheck.Rejection.values();
+        this.precheckRejected = new Counter[rejections.length];
+        for (BearerTokenPrecheck.Rejection rejection : rejections) {
+            precheckRejected[rejection.ordinal()] = Counter.builder("auth.precheck.rejected")
+                    .description("Bearer tokens rejected before JWT decoding, by check")
+                    .tag("check", rejection.tag())
+                    .register(registry);
+        }
+
+        this.pathGroups = pathGroups.toArray(String[]::new);
+        this.forbidden = new Counter[this.pathGroups.length + 1];
+        for (int i = 0; i < this.pathGroups.length; i++) {
+            forbidden[i] = forbiddenCounter(registry, this.pathGroups[i]);
+        }
+        forbidden[this.pathGroups.length] = forbiddenCounter(registry, OTHER_PATH_GROUP);
+    }
+
+    public void recordDecode(long startNanos, boolean success) {
+        (success ? decodeSuccess : decodeFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordConversion(long startNanos) {
+        conversion.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJwksFetch(long startNanos, boolean success) {
+        (success ? jwksFetchSuccess : jwksFetchFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordIntrospection(long startNanos, boolean active) {
+        (active ? introspectionActive : introspectionInactive).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordIntrospectionFailure(long startNanos) {
+        introspectionFailure.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUnauthorized(AuthenticationException exception, boolean redirect) {
+        unauthorized[AuthFailureReason.of(exception).ordinal()][redirect ? 1 : 0].increment();
+    }
+
+    public void recordPrecheckRejected(BearerTokenPrecheck.Rejection rejection) {
+        precheckRejected[rejection.ordinal()].increment();
+    }
+
+    public void recordForbidden(String path) {
+        forbidden[pathGroupIndex(path)].increment();
+    }
+
+    /**
+     * Index of the first path group that is path itself or a parent of it
+     */
+    private int pathGroupIndex(String path) {
+        if (path != null) {
+            for (int i = 0; i < pathGroups.length; i++) {
+                String group = pathGroups[i];
+                if (path.startsWith(group)
+                        && (path.length() == group.length() || path.charAt(group.length()) == '/')) {
+                    return i;
+                }
+            }
+        }
+        return pathGroups.length;
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String description, String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter unauthorizedCounter(MeterRegistry registry, AuthFailureReason reason, String response) {
+        return Counter.builder("auth.unauthorized")
+                .description("401 responses by failure reason")
+                .tag("reason", reason.tag())
+                .tag("response", response)
+                .register(registry);
+    }
+
+    private static Counter forbiddenCounter(MeterRegistry registry, String pathGroup) {
+        return Counter.builder("auth.forbidden")
+                .description("403 responses by path group")
+                .tag("path", pathGroup)
+                .register(registry);
+    }
+}
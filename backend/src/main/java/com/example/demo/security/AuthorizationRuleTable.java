@@ -0,0 +1,97 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Request authorization from an ordered rule table, compiled into a
+ * PathPatternTrie: the first rule matching the request path decides, so
+ * the result is the same as a list of requestMatchers(...) checked in turn,
+ * but lookup cost does not grow with the number of rules.
+ * Paths no rule matches require authentication. Like Spring's managers,
+ * permitAll and denyAll rules never resolve the (lazy) authentication.
+ *
+ * Requests are matched by their decoded path (RequestPaths), the one the
+ * dispatcher routes on, not the raw URI: otherwise /api/h%65llo would miss
+ * the rule for /api/hello and still reach its handler. Paths that cannot be
+ * decoded reliably are denied.
+ *
+ * Built by AuthorizationRulesConfig from app.security.authorization.rules;
+ * used for anyRequest() / anyExchange() in both security configurations.
+ */
+public final class AuthorizationRuleTable implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private static final AuthenticationTrustResolver TRUST_RESOLVER = new AuthenticationTrustResolverImpl();
+
+    /** Same test as AuthenticatedAuthorizationManager.authenticated() */
+    private static final Predicate<Supplier<Authentication>> AUTHENTICATED = supplier -> {
+        Authentication authentication = supplier.get();
+        return authentication != null && !TRUST_RESOLVER.isAnonymous(authentication)
+                && authentication.isAuthenticated();
+    };
+
+    private final PathPatternTrie<Predicate<Supplier<Authentication>>> trie = new PathPatternTrie<>();
+
+    public void permitAll(String pattern) {
+        trie.add(pattern, authentication -> true);
+    }
+
+    public void denyAll(String pattern) {
+        trie.add(pattern, authentication -> false);
+    }
+
+    public void authenticated(String pattern) {
+        trie.add(pattern, AUTHENTICATED);
+    }
+
+    public void access(String pattern, RoleAuthorizationManager<?> roles) {
+        trie.add(pattern, authentication -> roles.isGranted(authentication.get()));
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        String path = RequestPaths.of(context.getRequest());
+        return path != null && decide(path, authentication) ? GRANTED : DENIED;
+    }
+
+    /**
+     * The same table for WebFlux
+     */
+    public ReactiveAuthorizationManager<AuthorizationContext> reactive() {
+        return (authentication, context) -> {
+            String path = RequestPaths.of(context.getExchange().getRequest());
+            if (path == null) {
+                return Mono.just(DENIED);
+            }
+            return authentication
+                    .map(auth -> isGranted(path, auth))
+                    .defaultIfEmpty(isGranted(path, null))
+                    .map(granted -> granted ? GRANTED : DENIED);
+        };
+    }
+
+    /**
+     * Decision for a path already in RequestPaths form
+     */
+    public boolean isGranted(String path, Authentication authentication) {
+        return decide(path, () -> authentication);
+    }
+
+    private boolean decide(String path, Supplier<Authentication> authentication) {
+        Predicate<Supplier<Authentication>> rule = trie.match(path);
+        return (rule != null ? rule : AUTHENTICATED).test(authentication);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives OIDC back-channel logout tokens from Keycloak and revokes the
+ * sessions they end (RevocationIndex), so their access tokens stop working
+ * before they expire.
+ *
+ * Keycloak posts one logout token per ended session to the client's
+ * "Backchannel logout URL", also when an admin signs a user out. A token
+ * naming a sid revokes that session; one naming only a sub revokes every
+ * session of that user. Either way, tokens issued later are accepted.
+ *
+ * The decoder verifies the signature with the keys of the realm named by
+ * iss; logoutTokenValidator() adds the checks of the specification.
+ */
+public class BackchannelLogout {
+
+    private static final Logger log = LoggerFactory.getLogger(BackchannelLogout.class);
+
+    static final String LOGOUT_EVENT = "http://schemas.openid.net/event/backchannel-logout";
+
+    private final JwtDecoder logoutTokenDecoder;
+    private final RevocationIndex revocations;
+
+    public BackchannelLogout(JwtDecoder logoutTokenDecoder, RevocationIndex revocations) {
+        this.logoutTokenDecoder = logoutTokenDecoder;
+        this.revocations = revocations;
+    }
+
+    /**
+     * Verify logoutToken and revoke the session (or subject) it names
+     *
+     * @return the revoked claim and value, e.g. sid=...
+     * @throws JwtException if the token is not a valid logout token of a trusted realm
+     */
+    public String logout(String logoutToken) throws JwtException {
+        Jwt jwt = logoutTokenDecoder.decode(logoutToken);
+        // Keycloak's clock for both the logout and the tokens it affects
+        Instant revokedAt = jwt.getIssuedAt() != null ? jwt.getIssuedAt() : Instant.now();
+
+        String sid = jwt.getClaimAsString("sid");
+        RevocationIndex.Kind kind = sid != null ? RevocationIndex.Kind.SESSION : RevocationIndex.Kind.SUBJECT;
+        String value = sid != null ? sid : jwt.getSubject();
+        revocations.revoke(kind, value, revokedAt);
+
+        log.info("Back-channel logout from {}: revoked {}={}", jwt.getClaimAsString("iss"), kind.claim(), value);
+        return kind.claim() + "=" + value;
+    }
+
+    /**
+     * Logout token checks of OpenID Connect Back-Channel Logout 1.0, 2.6
+     * (signature, issuer and timestamps are checked by the decoder):
+     * aud includes the realm's client, iat is present, sid or sub is present,
+     * the events claim holds the back-channel logout event, and there is no nonce
+     */
+    public static OAuth2TokenValidator<Jwt> logoutTokenValidator(KeycloakRealms realms) {
+        return jwt -> {
+            List<OAuth2Error> errors = new ArrayList<>();
+            KeycloakRealms.Realm realm = realms.forIssuer(jwt.getClaimAsString("iss"));
+            if (realm != null && (jwt.getAudience() == null || !jwt.getAudience().contains(realm.clientId()))) {
+                errors.add(invalid("aud does not include " + realm.clientId()));
+            }
+            if (jwt.getIssuedAt() == null) {
+                errors.add(invalid("iat is missing"));
+            }
+            if (jwt.getClaimAsString("sid") == null && jwt.getSubject() == null) {
+                errors.add(invalid("Neither sid nor sub is present"));
+            }
+            if (!(jwt.getClaims().get("events") instanceof Map<?, ?> events)
+                    || !(events.get(LOGOUT_EVENT) instanceof Map)) {
+                errors.add(invalid("events does not contain " + LOGOUT_EVENT));
+            }
+            if (jwt.hasClaim("nonce")) {
+                errors.add(invalid("A logout token must not contain a nonce"));
+            }
+            return errors.isEmpty() ? OAuth2TokenValidatorResult.success() : OAuth2TokenValidatorResult.failure(errors);
+        };
+    }
+
+    private static OAuth2Error invalid(String description) {
+        return new OAuth2Error("invalid_request", description, null);
+    }
+}
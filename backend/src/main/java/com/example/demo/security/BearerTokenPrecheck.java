@@ -0,0 +1,246 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.proc.BadJWSException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Cheap checks on a bearer token before any JWT parsing or signature work,
+ * so junk tokens are rejected for a fraction of the cost of a verification.
+ *
+ * A token is rejected when:
+ * - it is longer than maxLength, is not three non-empty base64url segments
+ * - its header alg is not an accepted algorithm
+ * - its payload exp (read with JsonMemberScanner) is past, allowing clockSkew
+ * - its payload iss is not a trusted realm (KeycloakRealms)
+ * - its kid is not in that realm's key store, and the store would not
+ *   fetch keys for it right now
+ * - the same token was recently rejected by the full decoder (negative cache)
+ *
+ * With opaque token introspection enabled, tokens that are not shaped like a
+ * JWT only get the length check; the introspection cache answers for them.
+ *
+ * Anything the checks cannot read with certainty is passed on, so a token
+ * rejected here would always have been rejected by the decoder too.
+ * Failures found by the decoder are fed back through rememberRejections;
+ * only those that can never go away are cached (expired, malformed, bad
+ * signature), not ones that may (unknown keys, JWKS outages, claims).
+ */
+public class BearerTokenPrecheck implements MeterBinder {
+
+    /**
+     * Which check rejected a token; tagged on auth.precheck.rejected
+     */
+    public enum Rejection {
+        LENGTH("length"),
+        FORMAT("format"),
+        ALGORITHM("algorithm"),
+        EXPIRED("expired"),
+        ISSUER("issuer"),
+        KEY("key"),
+        NEGATIVE_CACHE("negative_cache");
+
+        private final String tag;
+
+        Rejection(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final Set<String> algorithms;
+    private final KeycloakRealms realms;
+    private final int maxLength;
+    private final boolean acceptOpaqueTokens;
+    private final long clockSkewSeconds;
+    private final AuthMetrics metrics;
+    private final Cache<String, AuthFailureReason> rejected;
+
+    public BearerTokenPrecheck(Set<String> algorithms,
+                               KeycloakRealms realms,
+                               int maxLength,
+                               boolean acceptOpaqueTokens,
+                               Duration clockSkew,
+                               long negativeCacheSize,
+                               Duration negativeCacheTtl,
+                               AuthMetrics metrics) {
+        this.algorithms = Set.copyOf(algorithms);
+        this.realms = realms;
+        this.maxLength = maxLength;
+        this.acceptOpaqueTokens = acceptOpaqueTokens;
+        this.clockSkewSeconds = clockSkew.toSeconds();
+        this.metrics = metrics;
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(negativeCacheSize)
+                .expireAfterWrite(negativeCacheTtl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Why token must be rejected, or null to pass it on to the decoder
+     */
+    public AuthFailureReason check(String token) {
+        if (token.length() > maxLength) {
+            return reject(Rejection.LENGTH, AuthFailureReason.MALFORMED);
+        }
+        if (acceptOpaqueTokens && !JwtSegments.isCompactJws(token)) {
+            return null;
+        }
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || payloadEnd == headerEnd + 1 || payloadEnd == token.length() - 1
+                || token.indexOf('.', payloadEnd + 1) >= 0
+                || !JwtSegments.isBase64Url(token, payloadEnd + 1, token.length())) {
+            return reject(Rejection.FORMAT, AuthFailureReason.MALFORMED);
+        }
+        byte[] header = JwtSegments.decode(token, 0, headerEnd);
+        if (header == null) {
+            return reject(Rejection.FORMAT, AuthFailureReason.MALFORMED);
+        }
+        Header jws = readHeader(header);
+        if (jws != null && !algorithms.contains(jws.alg())) {
+            // The decoder reports this as "no key/algorithm to verify with"
+            return reject(Rejection.ALGORITHM, AuthFailureReason.INVALID_SIGNATURE);
+        }
+
+        byte[] payload = JwtSegments.decode(token, headerEnd + 1, payloadEnd);
+        if (payload == null) {
+            return reject(Rejection.FORMAT, AuthFailureReason.MALFORMED);
+        }
+        Claims claims = readClaims(payload);
+        if (claims.exp() != Long.MIN_VALUE && claims.exp() + clockSkewSeconds < System.currentTimeMillis() / 1000) {
+            return reject(Rejection.EXPIRED, AuthFailureReason.EXPIRED);
+        }
+        if (claims.iss() != null) {
+            KeycloakRealms.Realm realm = realms.forIssuer(claims.iss());
+            if (realm == null) {
+                return reject(Rejection.ISSUER, AuthFailureReason.INVALID_CLAIMS);
+            }
+            // A realm whose keys are not built yet would fetch them for any kid
+            KeycloakJwksStore jwksStore = realms.builtJwksStore(realm);
+            if (jws != null && jws.kid() != null && jwksStore != null && !jwksStore.mayResolve(jws.kid())) {
+                return reject(Rejection.KEY, AuthFailureReason.INVALID_SIGNATURE);
+            }
+        }
+
+        if (rejected.estimatedSize() > 0) {
+            AuthFailureReason previous = rejected.getIfPresent(TokenHash.of(token));
+            if (previous != null) {
+                return reject(Rejection.NEGATIVE_CACHE, previous);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decorate decoder so tokens it rejects for good are remembered
+     */
+    public JwtDecoder rememberRejections(JwtDecoder decoder) {
+        return token -> {
+            try {
+                return decoder.decode(token);
+            } catch (JwtException e) {
+                AuthFailureReason reason = AuthFailureReason.ofDecodeFailure(e);
+                if (isPermanent(reason, e)) {
+                    rejected.put(TokenHash.of(token), reason);
+                }
+                throw e;
+            }
+        };
+    }
+
+    public long negativeCacheSize() {
+        return rejected.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, rejected, "bearer-rejections");
+    }
+
+    private AuthFailureReason reject(Rejection rejection, AuthFailureReason reason) {
+        metrics.recordPrecheckRejected(rejection);
+        return reason;
+    }
+
+    /**
+     * alg and kid of the header, or null if alg cannot be read with certainty
+     */
+    private static Header readHeader(byte[] header) {
+        String alg = null;
+        String kid = null;
+        JsonMemberScanner scanner = new JsonMemberScanner(header);
+        while (scanner.next()) {
+            if (scanner.nameIs("alg")) {
+                alg = scanner.readString();
+                if (alg == null) {
+                    // Not a plain string: leave it to the parser
+                    return null;
+                }
+            } else if (scanner.nameIs("kid")) {
+                kid = scanner.readString();
+            }
+        }
+        // alg is null if missing, or if the header could not be scanned to the end
+        return alg != null ? new Header(alg, kid) : null;
+    }
+
+    /**
+     * exp (Long.MIN_VALUE if unknown) and iss (null if unknown) of the payload
+     */
+    private static Claims readClaims(byte[] payload) {
+        long exp = Long.MIN_VALUE;
+        String iss = null;
+        JsonMemberScanner scanner = new JsonMemberScanner(payload);
+        while ((exp == Long.MIN_VALUE || iss == null) && scanner.next()) {
+            if (scanner.nameIs("exp")) {
+                exp = scanner.readLong();
+            } else if (scanner.nameIs("iss")) {
+                iss = scanner.readString();
+            }
+        }
+        return new Claims(exp, iss);
+    }
+
+    /**
+     * Expired, malformed or a signature that does not verify stay that way.
+     * A missing key or a JWKS outage may not, and neither may a claim
+     * failure: a token used before its nbf (a little clock skew against
+     * Keycloak is enough) becomes valid moments later, and caching it would
+     * lock its user out for the whole TTL.
+     */
+    private static boolean isPermanent(AuthFailureReason reason, Throwable e) {
+        return switch (reason) {
+            case EXPIRED, MALFORMED -> true;
+            case INVALID_SIGNATURE -> hasCause(e, BadJWSException.class);
+            default -> false;
+        };
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Header(String alg, String kid) {
+    }
+
+    private record Claims(long exp, String iss) {
+    }
+}
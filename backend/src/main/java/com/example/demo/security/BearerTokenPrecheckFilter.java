@@ -0,0 +1,55 @@
+package com.example.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs BearerTokenPrecheck ahead of BearerTokenAuthenticationFilter and
+ * answers rejected tokens through the entry point, exactly as a decoder
+ * failure would be (redirect or 401 JSON). Requests without a bearer token
+ * pass through untouched.
+ *
+ * Added to the chain by SecurityConfig; deliberately not a bean, so Spring
+ * Boot does not also register it as a servlet filter.
+ */
+public class BearerTokenPrecheckFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final BearerTokenPrecheck precheck;
+    private final AuthenticationEntryPoint entryPoint;
+
+    public BearerTokenPrecheckFilter(BearerTokenPrecheck precheck, AuthenticationEntryPoint entryPoint) {
+        this.precheck = precheck;
+        this.entryPoint = entryPoint;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = bearerToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        AuthFailureReason reason = token != null ? precheck.check(token) : null;
+        if (reason != null) {
+            entryPoint.commence(request, response, new RejectedBearerTokenException(reason));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Token of a "Bearer ..." header (scheme matched case-insensitively), or null
+     */
+    static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        return authorization.substring(BEARER.length());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of BearerTokenPrecheckFilter, added ahead of
+ * authentication by ReactiveSecurityConfig. The check is CPU-only and
+ * runs inline on the event loop.
+ */
+public class BearerTokenPrecheckWebFilter implements WebFilter {
+
+    private final BearerTokenPrecheck precheck;
+    private final ServerAuthenticationEntryPoint entryPoint;
+
+    public BearerTokenPrecheckWebFilter(BearerTokenPrecheck precheck, ServerAuthenticationEntryPoint entryPoint) {
+        this.precheck = precheck;
+        this.entryPoint = entryPoint;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String token = BearerTokenPrecheckFilter.bearerToken(
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        AuthFailureReason reason = token != null ? precheck.check(token) : null;
+        if (reason != null) {
+            return entryPoint.commence(exchange, new RejectedBearerTokenException(reason));
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionException;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * OpaqueTokenIntrospector decorator that keeps opaque tokens from costing a
+ * Keycloak round-trip on every request.
+ *
+ * - Single flight: concurrent requests with the same token share one call;
+ *   the first caller makes it on its own thread, the others wait for it
+ * - Active tokens are cached until their exp claim (capped by maxTtl)
+ * - Inactive tokens are cached for inactiveTtl, so replaying a dead token
+ *   does not reach Keycloak either
+ * - Failed calls (Keycloak unreachable) are not cached
+ *
+ * Entries are keyed by the SHA-256 of the token. Calls are timed in
+ * AuthMetrics (auth.introspection); the cache is published as cache=introspection.
+ */
+public class CachingOpaqueTokenIntrospector implements OpaqueTokenIntrospector, MeterBinder {
+
+    /**
+     * Outcome of one introspection call: principal for an active token,
+     * else the reason Keycloak's answer was rejected
+     */
+    private record Result(OAuth2AuthenticatedPrincipal principal, String inactiveReason) {
+    }
+
+    private final OpaqueTokenIntrospector delegate;
+    private final AuthMetrics metrics;
+    private final AsyncCache<String, Result> cache;
+
+    public CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate,
+                                          long maximumSize,
+                                          Duration maxTtl,
+                                          Duration inactiveTtl,
+                                          AuthMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ResultExpiry(maxTtl, inactiveTtl))
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public OAuth2AuthenticatedPrincipal introspect(String token) {
+        String key = TokenHash.of(token);
+        CompletableFuture<Result> result = cache.getIfPresent(key);
+        if (result == null) {
+            CompletableFuture<Result> call = new CompletableFuture<>();
+            result = cache.asMap().putIfAbsent(key, call);
+            if (result == null) {
+                result = call;
+                // Completed exceptionally, the entry is dropped by the cache
+                call(token, call);
+            }
+        }
+
+        Result outcome;
+        try {
+            outcome = result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof OAuth2IntrospectionException introspectionFailure) {
+                throw introspectionFailure;
+            }
+            throw new OAuth2IntrospectionException("Token introspection failed", e.getCause());
+        }
+        if (outcome.principal() == null) {
+            throw new BadOpaqueTokenException(outcome.inactiveReason());
+        }
+        return outcome.principal();
+    }
+
+    /**
+     * Whether token has a completed cache entry, so introspect() will not call Keycloak
+     */
+    public boolean isCached(String token) {
+        CompletableFuture<Result> result = cache.getIfPresent(TokenHash.of(token));
+        return result != null && result.isDone();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "introspection");
+    }
+
+    private void call(String token, CompletableFuture<Result> call) {
+        long start = System.nanoTime();
+        try {
+            OAuth2AuthenticatedPrincipal principal = delegate.introspect(token);
+            metrics.recordIntrospection(start, true);
+            call.complete(new Result(principal, null));
+        } catch (BadOpaqueTokenException e) {
+            metrics.recordIntrospection(start, false);
+            call.complete(new Result(null, e.getMessage()));
+        } catch (RuntimeException e) {
+            metrics.recordIntrospectionFailure(start);
+            call.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Active results expire with their token, inactive ones after inactiveTtl
+     */
+    private static final class ResultExpiry implements Expiry<String, Result> {
+
+        private final long maxTtlNanos;
+        private final long inactiveTtlNanos;
+
+        ResultExpiry(Duration maxTtl, Duration inactiveTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+            this.inactiveTtlNanos = inactiveTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Result result, long currentTime) {
+            if (result.principal() == null) {
+                return inactiveTtlNanos;
+            }
+            Instant expiresAt = result.principal().getAttribute(OAuth2TokenIntrospectionClaimNames.EXP);
+            if (expiresAt == null) {
+                return maxTtlNanos;
+            }
+            long remaining = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0L, Math.min(remaining, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Result result, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Result result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.demo.security;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON error responses (400/401/403/429/500/503) built from pre-encoded UTF-8 templates.
+ *
+ * Error paths are hot under credential-stuffing bursts, so bodies are not
+ * formatted with String.format or Jackson: each template is split into
+ * byte[] literals once, values are JSON-escaped and UTF-8 encoded in a single
+ * pass straight into a body array of exactly the right size, and the
+ * timestamp is written from a per-second cache. The only allocation per
+ * response is the body itself.
+ */
+public final class ErrorResponseWriter {
+
+    public static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private static final Template BAD_REQUEST = Template.compile(
+            "{\"error\":\"bad_request\"," +
+            "\"message\":\"{}\"," +
+            "\"timestamp\":\"{timestamp}\"}");
+
+    private static final Template UNAUTHORIZED = Template.compile(
+            "{\"error\":\"unauthorized\"," +
+            "\"message\":\"Authentication required\"," +
+            "\"login_url\":\"{}\"," +
+            "\"timestamp\":\"{timestamp}\"}");
+
+    private static final Template ACCESS_DENIED = Template.compile(
+            "{" +
+            "\"error\":\"access_denied\"," +
+            "\"message\":\"You don't have permission to access this resource. ADMIN role is required.\"," +
+            "\"user\":\"{}\"," +
+            "\"required_role\":\"ADMIN\"," +
+            "\"path\":\"{}\"," +
+            "\"timestamp\":\"{timestamp}\"" +
+            "}");
+
+    private static final Template OVERLOADED = Template.compile(
+            "{\"error\":\"overloaded\"," +
+            "\"message\":\"The server is at capacity, retry later\"," +
+            "\"timestamp\":\"{timestamp}\"}");
+
+    private static final Template RATE_LIMITED = Template.compile(
+            "{\"error\":\"rate_limited\"," +
+            "\"message\":\"Too many requests from this client, retry later\"," +
+            "\"timestamp\":\"{timestamp}\"}");
+
+    private ErrorResponseWriter() {
+    }
+
+    /**
+     * 400 body for requests the application rejects itself (e.g. an invalid batch)
+     */
+    public static byte[] badRequest(String message) {
+        return BAD_REQUEST.render(message);
+    }
+
+    /**
+     * 401 body for the Keycloak entry points
+     */
+    public static byte[] unauthorized(String loginUrl) {
+        return UNAUTHORIZED.render(loginUrl);
+    }
+
+    /**
+     * 403 body for the access denied handlers
+     */
+    public static byte[] accessDenied(String username, String path) {
+        return ACCESS_DENIED.render(username, path);
+    }
+
+    /**
+     * 503 body for requests shed by the concurrency limit
+     */
+    public static byte[] overloaded() {
+        return OVERLOADED.render();
+    }
+
+    /**
+     * 429 body for clients over their request rate
+     */
+    public static byte[] rateLimited() {
+        return RATE_LIMITED.render();
+    }
+
+    /**
+     * Write a JSON body with status and Content-Length directly to the servlet output stream
+     */
+    public static void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * A JSON document with "{}" value slots and an optional "{timestamp}" slot.
+     * Values are inserted as JSON string contents (escaped); null is written as "".
+     */
+    public static final class Template {
+
+        /** Length of "yyyy-MM-ddTHH:mm:ss.SSSZ" */
+        private static final int TIMESTAMP_LENGTH = 24;
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        private static volatile CachedSecond cachedSecond = new CachedSecond(Long.MIN_VALUE, null);
+
+        /** Literal bytes; slot i sits between literals[i] and literals[i + 1] */
+        private final byte[][] literals;
+        /** Index of the timestamp slot, or -1 */
+        private final int timestampSlot;
+        private final int valueSlots;
+        private final int fixedLength;
+
+        private Template(byte[][] literals, int timestampSlot) {
+            this.literals = literals;
+            this.timestampSlot = timestampSlot;
+            int slots = literals.length - 1;
+            this.valueSlots = timestampSlot >= 0 ? slots - 1 : slots;
+            int length = timestampSlot >= 0 ? TIMESTAMP_LENGTH : 0;
+            for (byte[] literal : literals) {
+                length += literal.length;
+            }
+            this.fixedLength = length;
+        }
+
+        public static Template compile(String json) {
+            List<byte[]> literals = new ArrayList<>();
+            int timestampSlot = -1;
+            int start = 0;
+            while (true) {
+                int value = json.indexOf("{}", start);
+                int timestamp = json.indexOf("{timestamp}", start);
+                int next = value < 0 ? timestamp : (timestamp < 0 ? value : Math.min(value, timestamp));
+                if (next < 0) {
+                    break;
+                }
+                literals.add(json.substring(start, next).getBytes(StandardCharsets.UTF_8));
+                if (next == timestamp) {
+                    if (timestampSlot >= 0) {
+                        throw new IllegalArgumentException("More than one {timestamp} slot: " + json);
+                    }
+                    timestampSlot = literals.size() - 1;
+                    start = next + "{timestamp}".length();
+                } else {
+                    start = next + 2;
+                }
+            }
+            literals.add(json.substring(start).getBytes(StandardCharsets.UTF_8));
+            return new Template(literals.toArray(new byte[0][]), timestampSlot);
+        }
+
+        public byte[] render() {
+            return render(null, null, 0);
+        }
+
+        public byte[] render(String value) {
+            return render(value, null, 1);
+        }
+
+        public byte[] render(String first, String second) {
+            return render(first, second, 2);
+        }
+
+        private byte[] render(String first, String second, int count) {
+            if (count != valueSlots) {
+                throw new IllegalArgumentException("Template expects " + valueSlots + " values, got " + count);
+            }
+            byte[] body = new byte[fixedLength + encodedLength(first) + encodedLength(second)];
+
+            int pos = 0;
+            int valueIndex = 0;
+            for (int slot = 0; slot < literals.length; slot++) {
+                byte[] literal = literals[slot];
+                System.arraycopy(literal, 0, body, pos, literal.length);
+                pos += literal.length;
+                if (slot == literals.length - 1) {
+                    break;
+                }
+                if (slot == timestampSlot) {
+                    pos = writeTimestamp(body, pos);
+                } else {
+                    pos = writeEscaped(valueIndex++ == 0 ? first : second, body, pos);
+                }
+            }
+            return body;
+        }
+
+        /**
+         * Number of bytes value takes once JSON-escaped and UTF-8 encoded
+         */
+        private static int encodedLength(String value) {
+            if (value == null) {
+                return 0;
+            }
+            int length = 0;
+            int n = value.length();
+            for (int i = 0; i < n; i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') {
+                    length += 2;
+                } else if (c < 0x20) {
+                    length += 6;
+                } else if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate, written as '?' like String.getBytes does
+                    length += 1;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        private static int writeEscaped(String value, byte[] dst, int pos) {
+            if (value == null) {
+                return pos;
+            }
+            int n = value.length();
+            for (int i = 0; i < n; i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> { dst[pos++] = '\\'; dst[pos++] = '"'; }
+                    case '\\' -> { dst[pos++] = '\\'; dst[pos++] = '\\'; }
+                    case '\n' -> { dst[pos++] = '\\'; dst[pos++] = 'n'; }
+                    case '\r' -> { dst[pos++] = '\\'; dst[pos++] = 'r'; }
+                    case '\t' -> { dst[pos++] = '\\'; dst[pos++] = 't'; }
+                    case '\b' -> { dst[pos++] = '\\'; dst[pos++] = 'b'; }
+                    case '\f' -> { dst[pos++] = '\\'; dst[pos++] = 'f'; }
+                    default -> {
+                        if (c < 0x20) {
+                            dst[pos++] = '\\';
+                            dst[pos++] = 'u';
+                            dst[pos++] = '0';
+                            dst[pos++] = '0';
+                            dst[pos++] = HEX[c >> 4];
+                            dst[pos++] = HEX[c & 0xF];
+                        } else if (c < 0x80) {
+                            dst[pos++] = (byte) c;
+                        } else if (c < 0x800) {
+                            dst[pos++] = (byte) (0xC0 | (c >> 6));
+                            dst[pos++] = (byte) (0x80 | (c & 0x3F));
+                        } else if (Character.isHighSurrogate(c) && i + 1 < n
+                                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                            int cp = Character.toCodePoint(c, value.charAt(++i));
+                            dst[pos++] = (byte) (0xF0 | (cp >> 18));
+                            dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                            dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                            dst[pos++] = (byte) (0x80 | (cp & 0x3F));
+                        } else if (Character.isSurrogate(c)) {
+                            dst[pos++] = '?';
+                        } else {
+                            dst[pos++] = (byte) (0xE0 | (c >> 12));
+                            dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                            dst[pos++] = (byte) (0x80 | (c & 0x3F));
+                        }
+                    }
+                }
+            }
+            return pos;
+        }
+
+        /**
+         * Write the current UTC time as ISO-8601 with millisecond precision
+         */
+        private static int writeTimestamp(byte[] dst, int pos) {
+            long now = System.currentTimeMillis();
+            long epochSecond = Math.floorDiv(now, 1000L);
+            int millis = (int) Math.floorMod(now, 1000L);
+
+            CachedSecond cached = cachedSecond;
+            if (cached.epochSecond() != epochSecond) {
+                cached = new CachedSecond(epochSecond, formatSecond(epochSecond));
+                cachedSecond = cached;
+            }
+
+            byte[] second = cached.bytes();
+            System.arraycopy(second, 0, dst, pos, second.length);
+            pos += second.length;
+            dst[pos++] = '.';
+            dst[pos++] = (byte) ('0' + millis / 100);
+            dst[pos++] = (byte) ('0' + millis / 10 % 10);
+            dst[pos++] = (byte) ('0' + millis % 10);
+            dst[pos++] = 'Z';
+            return pos;
+        }
+
+        /**
+         * "yyyy-MM-ddTHH:mm:ss"
+         */
+        private static byte[] formatSecond(long epochSecond) {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            return String.format("%04d-%02d-%02dT%02d:%02d:%02d",
+                    time.getYear(), time.getMonthValue(), time.getDayOfMonth(),
+                    time.getHour(), time.getMinute(), time.getSecond())
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private record CachedSecond(long epochSecond, byte[] bytes) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps Keycloak group paths (groups claim, e.g. "/org/eng/backend") to
+ * ROLE_ authority names.
+ *
+ * - Group names: the group's own name becomes a role ("/org/ADMIN" -> ROLE_ADMIN)
+ * - Rules: every rule whose pattern matches the group path adds its roles
+ *   (all matching rules apply, not only the first). Patterns use the
+ *   PathPatternTrie syntax: literal segments, "*" for one segment and a
+ *   trailing "**" for the group and all its subgroups ("/org/eng/**")
+ * - Parent inheritance: a member of /org/eng/backend is also treated as a
+ *   member of /org/eng and /org, so their names and exact-path rules apply
+ *
+ * Rules are compiled at startup into a trie of path segments; mapping a group
+ * walks its path once, branching only where a "*" exists, so the cost
+ * depends on the path depth, not on the number of rules. The result for each
+ * group path is cached (up to maxCachedPaths distinct paths, beyond which
+ * paths are mapped on every call).
+ */
+public final class GroupRoleMapper {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    /**
+     * @param pattern group path pattern
+     * @param roles   roles granted to members of matching groups (without ROLE_)
+     */
+    public record Rule(String pattern, List<String> roles) {
+
+        public Rule {
+            roles = roles != null ? List.copyOf(roles) : List.of();
+        }
+    }
+
+    private final Node root = new Node();
+    private final boolean groupNames;
+    private final boolean inheritParents;
+    private final int maxCachedPaths;
+    private final ConcurrentMap<String, List<String>> byPath = new ConcurrentHashMap<>();
+
+    public GroupRoleMapper(List<Rule> rules, boolean groupNames, boolean inheritParents, int maxCachedPaths) {
+        this.groupNames = groupNames;
+        this.inheritParents = inheritParents;
+        this.maxCachedPaths = maxCachedPaths;
+        rules.forEach(this::add);
+    }
+
+    /**
+     * The previous fixed mapping: each group's own name, no rules
+     */
+    public static GroupRoleMapper groupNames() {
+        return new GroupRoleMapper(List.of(), true, false, 10_000);
+    }
+
+    /**
+     * ROLE_ authority names for a member of group
+     */
+    public List<String> authorities(String group) {
+        List<String> authorities = byPath.get(group);
+        if (authorities != null) {
+            return authorities;
+        }
+        if (byPath.size() >= maxCachedPaths) {
+            return map(group);
+        }
+        return byPath.computeIfAbsent(group, this::map);
+    }
+
+    private void add(Rule rule) {
+        PathPatternTrie.Segments parsed = PathPatternTrie.Segments.parse(rule.pattern());
+        Node node = root;
+        for (String segment : parsed.literals()) {
+            node = "*".equals(segment) ? node.wildcard() : node.child(segment);
+        }
+        for (String role : rule.roles()) {
+            String authority = ROLE_PREFIX + role.toUpperCase();
+            if (parsed.trailingWildcard()) {
+                node.subtreeAuthorities.add(authority);
+            } else {
+                node.exactAuthorities.add(authority);
+            }
+        }
+    }
+
+    private List<String> map(String group) {
+        // "/org/eng/" is the same group as "/org/eng"
+        int end = group.length();
+        while (end > 0 && group.charAt(end - 1) == '/') {
+            end--;
+        }
+        Set<String> authorities = new LinkedHashSet<>();
+        if (groupNames) {
+            addNames(group, end, authorities);
+        }
+        collect(root, group, group.startsWith("/") ? 0 : -1, end, authorities);
+        return List.copyOf(authorities);
+    }
+
+    /**
+     * The last segment's name, or every segment's with parent inheritance
+     */
+    private void addNames(String group, int end, Set<String> authorities) {
+        int segmentEnd = end;
+        while (segmentEnd > 0) {
+            int slash = group.lastIndexOf('/', segmentEnd - 1);
+            if (segmentEnd > slash + 1) {
+                authorities.add(ROLE_PREFIX + group.substring(slash + 1, segmentEnd).toUpperCase());
+            }
+            if (!inheritParents) {
+                return;
+            }
+            segmentEnd = slash;
+        }
+    }
+
+    /**
+     * pos is the index of the '/' before the next segment, or end once the path is consumed
+     */
+    private void collect(Node node, String group, int pos, int end, Set<String> authorities) {
+        // A trailing "**" here covers this group and everything below it
+        authorities.addAll(node.subtreeAuthorities);
+        if (pos >= end) {
+            authorities.addAll(node.exactAuthorities);
+            return;
+        }
+        if (inheritParents && node != root) {
+            // This node is a parent group of the member's group
+            authorities.addAll(node.exactAuthorities);
+        }
+
+        int start = pos + 1;
+        int segmentEnd = group.indexOf('/', start);
+        if (segmentEnd < 0 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        Node child = node.children.get(group.substring(start, segmentEnd));
+        if (child != null) {
+            collect(child, group, segmentEnd, end, authorities);
+        }
+        if (node.wildcard != null && segmentEnd > start) {
+            collect(node.wildcard, group, segmentEnd, end, authorities);
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard;
+        private final List<String> exactAuthorities = new ArrayList<>();
+        private final List<String> subtreeAuthorities = new ArrayList<>();
+
+        Node child(String segment) {
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+
+        Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.security;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only reader for the top-level members of a JSON object, used by
+ * BearerTokenPrecheck to read a few header/payload members without a full
+ * JSON parse.
+ *
+ * Not a validating parser: anything unexpected ends the scan (next() returns
+ * false), and names or values containing escapes are reported as unknown,
+ * so callers only ever act on what they could read with certainty and leave
+ * everything else to the real JWT parser.
+ */
+final class JsonMemberScanner {
+
+    private final byte[] json;
+    private int pos;
+    private boolean started;
+    private boolean valuePending;
+
+    private int nameStart;
+    private int nameEnd;
+    private boolean nameEscaped;
+
+    JsonMemberScanner(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Advance to the next member, skipping the current value if it was not read.
+     * False at the end of the object or if the input is not what we expect.
+     */
+    boolean next() {
+        if (valuePending && !skipValue()) {
+            return false;
+        }
+        skipWhitespace();
+        if (!started) {
+            if (!consume('{')) {
+                return false;
+            }
+            started = true;
+            skipWhitespace();
+            if (peek() == '}') {
+                return false;
+            }
+        } else if (!consume(',')) {
+            // '}' or garbage: either way there are no more members to read
+            return false;
+        } else {
+            skipWhitespace();
+        }
+
+        if (!consume('"')) {
+            return false;
+        }
+        nameStart = pos;
+        int end = skipStringBody();
+        if (end < 0) {
+            return false;
+        }
+        nameEnd = end;
+        nameEscaped = hasEscape(nameStart, nameEnd);
+        skipWhitespace();
+        if (!consume(':')) {
+            return false;
+        }
+        skipWhitespace();
+        valuePending = true;
+        return true;
+    }
+
+    /**
+     * Whether the current member name is name (ASCII), compared without allocating
+     */
+    boolean nameIs(String name) {
+        if (nameEscaped || nameEnd - nameStart != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (json[nameStart + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The current value as a string; null if it is not a string or contains escapes
+     */
+    String readString() {
+        valuePending = false;
+        if (!consume('"')) {
+            valuePending = true;
+            return null;
+        }
+        int start = pos;
+        int end = skipStringBody();
+        if (end < 0 || hasEscape(start, end)) {
+            return null;
+        }
+        return new String(json, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The integer part of the current numeric value; Long.MIN_VALUE if it is
+     * not a number or does not fit in a long
+     */
+    long readLong() {
+        valuePending = true;
+        int p = pos;
+        boolean negative = p < json.length && json[p] == '-';
+        if (negative) {
+            p++;
+        }
+        if (p >= json.length || json[p] < '0' || json[p] > '9') {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        while (p < json.length && json[p] >= '0' && json[p] <= '9') {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (json[p++] - '0');
+        }
+        if (p < json.length && (json[p] == 'e' || json[p] == 'E')) {
+            // Exponent notation: not worth interpreting here
+            return Long.MIN_VALUE;
+        }
+        // Fraction digits, if any, are skipped with the value
+        return negative ? -value : value;
+    }
+
+    private boolean skipValue() {
+        valuePending = false;
+        int depth = 0;
+        while (pos < json.length) {
+            byte b = json[pos];
+            if (b == '"') {
+                pos++;
+                if (skipStringBody() < 0) {
+                    return false;
+                }
+            } else if (b == '{' || b == '[') {
+                depth++;
+                pos++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    return true;
+                }
+                depth--;
+                pos++;
+            } else if (b == ',' && depth == 0) {
+                return true;
+            } else {
+                pos++;
+            }
+            if (depth == 0 && (b == '"' || b == '}' || b == ']')) {
+                return true;
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * Skip past the closing quote of a string whose opening quote was consumed.
+     * Returns the index of the closing quote, or -1 if the string is unterminated.
+     */
+    private int skipStringBody() {
+        while (pos < json.length) {
+            byte b = json[pos++];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return pos - 1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasEscape(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (json[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length && (json[pos] == ' ' || json[pos] == '\t' || json[pos] == '\n' || json[pos] == '\r')) {
+            pos++;
+        }
+    }
+
+    private int peek() {
+        return pos < json.length ? json[pos] : -1;
+    }
+
+    private boolean consume(char c) {
+        if (pos < json.length && json[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+}
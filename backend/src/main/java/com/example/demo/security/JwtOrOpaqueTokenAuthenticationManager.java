@@ -0,0 +1,58 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authenticates bearer tokens that look like a JWT (three segments) with the
+ * JWT manager and all others with the introspection manager, so a JWT that
+ * fails verification is rejected without asking Keycloak about it.
+ */
+public class JwtOrOpaqueTokenAuthenticationManager implements AuthenticationManager {
+
+    private final AuthenticationManager jwtManager;
+    private final AuthenticationManager opaqueTokenManager;
+
+    public JwtOrOpaqueTokenAuthenticationManager(AuthenticationManager jwtManager,
+                                                 AuthenticationManager opaqueTokenManager) {
+        this.jwtManager = jwtManager;
+        this.opaqueTokenManager = opaqueTokenManager;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        return isOpaque(authentication)
+                ? opaqueTokenManager.authenticate(authentication)
+                : jwtManager.authenticate(authentication);
+    }
+
+    private static boolean isOpaque(Authentication authentication) {
+        return authentication instanceof BearerTokenAuthenticationToken bearer
+                && !JwtSegments.isCompactJws(bearer.getToken());
+    }
+
+    /**
+     * The same routing for the reactive stack
+     */
+    public static class Reactive implements ReactiveAuthenticationManager {
+
+        private final ReactiveAuthenticationManager jwtManager;
+        private final ReactiveAuthenticationManager opaqueTokenManager;
+
+        public Reactive(ReactiveAuthenticationManager jwtManager, ReactiveAuthenticationManager opaqueTokenManager) {
+            this.jwtManager = jwtManager;
+            this.opaqueTokenManager = opaqueTokenManager;
+        }
+
+        @Override
+        public Mono<Authentication> authenticate(Authentication authentication) {
+            return isOpaque(authentication)
+                    ? opaqueTokenManager.authenticate(authentication)
+                    : jwtManager.authenticate(authentication);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.security;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-light access to the segments of a compact JWS, without parsing
+ * or verifying it: base64url decoding of a segment and reading the unverified
+ * iss claim. Only for routing and early rejection; never trust what it returns
+ * unless the signature over the segments is verified (ProjectingJwtDecoder).
+ */
+final class JwtSegments {
+
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private JwtSegments() {
+    }
+
+    /**
+     * Whether token has the three dot-separated segments of a compact JWS;
+     * anything else is an opaque token
+     */
+    static boolean isCompactJws(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        return headerEnd >= 0 && payloadEnd >= 0 && token.indexOf('.', payloadEnd + 1) < 0;
+    }
+
+    /**
+     * The unverified iss claim of token, or null if it is not a three-segment
+     * token or iss cannot be read with certainty (missing, not a plain string)
+     */
+    static String issuer(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0) {
+            return null;
+        }
+        byte[] payload = decode(token, headerEnd + 1, payloadEnd);
+        if (payload == null) {
+            return null;
+        }
+        JsonMemberScanner scanner = new JsonMemberScanner(payload);
+        while (scanner.next()) {
+            if (scanner.nameIs("iss")) {
+                return scanner.readString();
+            }
+        }
+        return null;
+    }
+
+    static boolean isBase64Url(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || BASE64URL[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode unpadded base64url s[start, end), or null if it is not valid
+     */
+    static byte[] decode(String s, int start, int end) {
+        int length = end - start;
+        if (length % 4 == 1) {
+            return null;
+        }
+        byte[] out = new byte[length * 3 / 4];
+        int bits = 0;
+        int buffer = 0;
+        int o = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                return null;
+            }
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[o++] = (byte) (buffer >> bits);
+            }
+        }
+        return out;
+    }
+}
@@ -2,56 +2,56 @@ package com.example.demo.security;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.time.Instant;
 
 /**
  * Custom Access Denied Handler for authenticated users who lack required permissions.
  * This handles cases where a user is logged in but doesn't have the ADMIN role.
+ * Every 403 is also recorded in the AuditLog, when auditing is enabled.
  */
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class KeycloakAccessDeniedHandler implements AccessDeniedHandler {
 
+    private final AuthMetrics metrics;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public KeycloakAccessDeniedHandler(AuthMetrics metrics, ObjectProvider<AuditLog> auditLog) {
+        this(metrics, auditLog.getIfAvailable());
+    }
+
+    /**
+     * @param auditLog null if auditing is disabled
+     */
+    public KeycloakAccessDeniedHandler(AuthMetrics metrics, AuditLog auditLog) {
+        this.metrics = metrics;
+        this.auditLog = auditLog;
+    }
+
     @Override
     public void handle(HttpServletRequest request,
                        HttpServletResponse response,
                        AccessDeniedException accessDeniedException) throws IOException {
-        
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
 
-        String username = request.getUserPrincipal() != null 
-            ? request.getUserPrincipal().getName() 
-            : "unknown";
+        metrics.recordForbidden(request.getRequestURI());
 
-        String jsonResponse = String.format(
-            "{" +
-            "\"error\":\"access_denied\"," +
-            "\"message\":\"You don't have permission to access this resource. ADMIN role is required.\"," +
-            "\"user\":\"%s\"," +
-            "\"required_role\":\"ADMIN\"," +
-            "\"path\":\"%s\"," +
-            "\"timestamp\":\"%s\"" +
-            "}",
-            escapeJson(username),
-            escapeJson(request.getRequestURI()),
-            Instant.now().toString()
-        );
-
-        response.getWriter().write(jsonResponse);
-    }
+        String username = request.getUserPrincipal() != null
+            ? request.getUserPrincipal().getName()
+            : "unknown";
+        if (auditLog != null) {
+            auditLog.publish(AuditEvent.Type.FORBIDDEN, username,
+                    request.getMethod() + " " + request.getRequestURI(), request.getRemoteAddr(), null);
+        }
 
-    private String escapeJson(String value) {
-        if (value == null) return "";
-        return value.replace("\\", "\\\\")
-                    .replace("\"", "\\\"")
-                    .replace("\n", "\\n")
-                    .replace("\r", "\\r")
-                    .replace("\t", "\\t");
+        ErrorResponseWriter.write(response, HttpServletResponse.SC_FORBIDDEN,
+                ErrorResponseWriter.accessDenied(username, request.getRequestURI()));
     }
 }
@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+
+/**
+ * JwtAuthenticationToken that also carries its authorities as a RoleSet,
+ * so RoleAuthorizationManager checks need not scan the authority collection.
+ */
+public class KeycloakAuthenticationToken extends JwtAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RoleSet roles;
+
+    public KeycloakAuthenticationToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities,
+                                       String name, RoleSet roles) {
+        super(jwt, authorities, name);
+        this.roles = roles;
+    }
+
+    public RoleSet getRoles() {
+        return roles;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JWKS key store for a Keycloak realm.
+ *
+ * - Keys are served from memory; a background task refreshes them ahead of expiry
+ * - Concurrent lookups of an unknown kid share a single fetch, and such
+ *   fetches are rate limited so a flood of bogus kids cannot hammer Keycloak
+ * - The last good key set is written to a local file and loaded on startup,
+ *   so a restarted node can verify tokens while Keycloak is unreachable. The
+ *   file records the JWKS URI and fetch time; a file written for another URI
+ *   is ignored, and its keys are fresh for at most refreshInterval after the
+ *   recorded fetch (never after a fetch time in the future)
+ * - If a refresh fails, the previous (stale) key set keeps being served
+ */
+public class KeycloakJwksStore implements JWKSource<SecurityContext> {
+
+    private static final Logger log = LoggerFactory.getLogger(KeycloakJwksStore.class);
+
+    /** Members the cache file adds to the JWK set */
+    private static final String JWKS_URI_MEMBER = "jwks_uri";
+    private static final String SAVED_AT_MEMBER = "saved_at";
+
+    private final URI jwkSetUri;
+    private final RestOperations restOperations;
+    private final Path cacheFile;
+    private final Duration refreshInterval;
+    private final Duration refreshAhead;
+    private final long unknownKidMinIntervalNanos;
+    private final AuthMetrics metrics;
+
+    private volatile KeySnapshot current;
+    private final AtomicReference<CompletableFuture<KeySnapshot>> inflight = new AtomicReference<>();
+    private final AtomicLong lastUnknownKidFetch = new AtomicLong();
+
+    public KeycloakJwksStore(URI jwkSetUri,
+                             Path cacheFile,
+                             Duration refreshInterval,
+                             Duration refreshAhead,
+                             Duration unknownKidMinInterval,
+                             Duration connectTimeout,
+                             Duration readTimeout,
+                             AuthMetrics metrics) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+
+        this.jwkSetUri = jwkSetUri;
+        this.restOperations = new RestTemplate(requestFactory);
+        this.cacheFile = cacheFile;
+        this.refreshInterval = refreshInterval;
+        this.refreshAhead = refreshAhead;
+        this.unknownKidMinIntervalNanos = unknownKidMinInterval.toNanos();
+        this.metrics = metrics;
+        // Allow an unknown-kid fetch right away
+        this.lastUnknownKidFetch.set(System.nanoTime() - unknownKidMinIntervalNanos);
+
+        loadFromFile();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        KeySnapshot snapshot = current;
+        if (snapshot == null) {
+            // Nothing loaded yet (no cache file, first refresh still pending)
+            snapshot = fetchCoalesced();
+        }
+
+        List<JWK> matches = jwkSelector.select(snapshot.keys());
+        if (!matches.isEmpty()) {
+            return matches;
+        }
+
+        // Unknown kid: keys may have rotated. Join a running fetch, or start
+        // one if the rate limit allows; otherwise reject with what we have.
+        if (inflight.get() == null && !tryAcquireUnknownKidFetch()) {
+            log.debug("Unknown key requested, JWKS refresh rate limited");
+            return matches;
+        }
+        return jwkSelector.select(fetchCoalesced().keys());
+    }
+
+    /**
+     * Refresh the key set if it is missing or about to expire.
+     * Called periodically by the background scheduler.
+     */
+    public void refreshIfDue() {
+        KeySnapshot snapshot = current;
+        if (snapshot != null && Instant.now().isBefore(snapshot.expiresAt().minus(refreshAhead))) {
+            return;
+        }
+        try {
+            fetchCoalesced();
+        } catch (KeySourceException e) {
+            log.warn("Background JWKS refresh from {} failed: {}", jwkSetUri, e.getMessage());
+        }
+    }
+
+    /**
+     * Currently loaded key set, or null if none has been loaded yet
+     */
+    public JWKSet currentKeys() {
+        KeySnapshot snapshot = current;
+        return snapshot != null ? snapshot.keys() : null;
+    }
+
+    /**
+     * Whether a token signed with kid could find its key: the key is loaded,
+     * or nothing is loaded yet, or get() would fetch keys for it right now.
+     * Does not use up the unknown-kid fetch allowance.
+     */
+    public boolean mayResolve(String kid) {
+        KeySnapshot snapshot = current;
+        if (snapshot == null || snapshot.keys().getKeyByKeyId(kid) != null || inflight.get() != null) {
+            return true;
+        }
+        return System.nanoTime() - lastUnknownKidFetch.get() >= unknownKidMinIntervalNanos;
+    }
+
+    private boolean tryAcquireUnknownKidFetch() {
+        long now = System.nanoTime();
+        long last = lastUnknownKidFetch.get();
+        return now - last >= unknownKidMinIntervalNanos && lastUnknownKidFetch.compareAndSet(last, now);
+    }
+
+    /**
+     * Fetch the key set, sharing one request among concurrent callers.
+     * Falls back to the current key set if the fetch fails.
+     */
+    private KeySnapshot fetchCoalesced() throws KeySourceException {
+        CompletableFuture<KeySnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<KeySnapshot> running = inflight.compareAndExchange(null, mine);
+        if (running != null) {
+            return await(running);
+        }
+
+        long start = System.nanoTime();
+        try {
+            KeySnapshot fetched = fetch();
+            metrics.recordJwksFetch(start, true);
+            current = fetched;
+            mine.complete(fetched);
+            writeToFile(fetched.keys(), Instant.now());
+        } catch (Exception e) {
+            metrics.recordJwksFetch(start, false);
+            KeySnapshot stale = current;
+            if (stale != null) {
+                log.warn("JWKS fetch from {} failed, keeping previous key set: {}", jwkSetUri, e.getMessage());
+                mine.complete(stale);
+            } else {
+                mine.completeExceptionally(e);
+            }
+        } finally {
+            inflight.set(null);
+        }
+        return await(mine);
+    }
+
+    private KeySnapshot await(CompletableFuture<KeySnapshot> future) throws KeySourceException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new KeySourceException("Couldn't retrieve JWK set from " + jwkSetUri, e.getCause());
+        }
+    }
+
+    private KeySnapshot fetch() throws ParseException {
+        String body = restOperations.getForObject(jwkSetUri, String.class);
+        if (body == null) {
+            throw new ParseException("Empty JWK set response", 0);
+        }
+        JWKSet keys = JWKSet.parse(body);
+        Instant now = Instant.now();
+        log.debug("Fetched {} keys from {}", keys.getKeys().size(), jwkSetUri);
+        return new KeySnapshot(keys, now.plus(refreshInterval));
+    }
+
+    private void loadFromFile() {
+        if (cacheFile == null || !Files.isReadable(cacheFile)) {
+            return;
+        }
+        try {
+            JWKSet saved = JWKSet.parse(Files.readString(cacheFile, StandardCharsets.UTF_8));
+            Map<String, Object> members = saved.getAdditionalMembers();
+            if (!jwkSetUri.toString().equals(members.get(JWKS_URI_MEMBER))) {
+                log.warn("Ignoring JWKS cache file {}: not written for {}", cacheFile, jwkSetUri);
+                return;
+            }
+            if (!(members.get(SAVED_AT_MEMBER) instanceof Number savedAtSeconds)) {
+                log.warn("Ignoring JWKS cache file {}: no fetch time", cacheFile);
+                return;
+            }
+            // A fetch time in the future must not keep the keys fresh (and the refresh off)
+            Instant now = Instant.now();
+            Instant savedAt = Instant.ofEpochSecond(savedAtSeconds.longValue());
+            Instant fetchedAt = savedAt.isBefore(now) ? savedAt : now;
+            current = new KeySnapshot(new JWKSet(saved.getKeys()), fetchedAt.plus(refreshInterval));
+            log.info("Loaded {} keys from JWKS cache file {}", saved.getKeys().size(), cacheFile);
+        } catch (IOException | ParseException e) {
+            log.warn("Ignoring unreadable JWKS cache file {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private void writeToFile(JWKSet keys, Instant savedAt) {
+        if (cacheFile == null) {
+            return;
+        }
+        try {
+            Path parent = cacheFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // Write then rename so a crash never leaves a truncated file behind
+            Path tmp = Files.createTempFile(parent, "jwks", ".tmp");
+            Files.writeString(tmp, cacheFileContent(jwkSetUri, keys, savedAt), StandardCharsets.UTF_8);
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write JWKS cache file {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Cache file content for keys fetched from jwkSetUri at savedAt: the public
+     * keys, plus the URI and fetch time the file is checked against on load
+     */
+    public static String cacheFileContent(URI jwkSetUri, JWKSet keys, Instant savedAt) {
+        return new JWKSet(keys.getKeys(), Map.of(
+                JWKS_URI_MEMBER, jwkSetUri.toString(),
+                SAVED_AT_MEMBER, savedAt.getEpochSecond())).toString(true);
+    }
+
+    private record KeySnapshot(JWKSet keys, Instant expiresAt) {
+    }
+}
@@ -1,39 +1,132 @@
 package com.example.demo.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Custom JWT converter that extracts roles from Keycloak JWT tokens.
  * Supports roles from:
  * - realm_access.roles (realm roles)
  * - resource_access.{client_id}.roles (client roles)
- * - groups claim (group memberships mapped to roles)
+ * - groups claim (group memberships mapped to roles by GroupRoleMapper)
+ * Which of these are mapped is set per realm (KeycloakRealms.RoleMapping);
+ * the realm is the one named by the token's iss claim.
+ *
+ * Many users share the same few role/group combinations, so the resulting
+ * authority set is memoized per fingerprint of the role-bearing claims
+ * (realm_access, resource_access, groups, scope) and realm. Cached sets are immutable
+ * and hold interned GrantedAuthority instances, together with their RoleSet
+ * encoding, which the returned KeycloakAuthenticationToken carries for
+ * RoleAuthorizationManager checks.
+ * Conversion latency is recorded in AuthMetrics; the memo's hit/miss counts
+ * are published as cache.* metrics (cache=authorities).
  */
 @Component
-public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken>, MeterBinder {
 
-    private final JwtGrantedAuthoritiesConverter defaultGrantedAuthoritiesConverter = 
+    /** Upper bound on distinct interned authority names */
+    private static final int MAX_INTERNED_AUTHORITIES = 10_000;
+
+    private final JwtGrantedAuthoritiesConverter defaultGrantedAuthoritiesConverter =
             new JwtGrantedAuthoritiesConverter();
 
+    private final Cache<RoleClaims, Authorities> authorityCache;
+
+    private final ConcurrentMap<String, GrantedAuthority> internedAuthorities = new ConcurrentHashMap<>();
+
+    private final KeycloakRealms realms;
+    private final RoleDictionary roleDictionary;
+    private final GroupRoleMapper groupRoleMapper;
+    private final AuthMetrics metrics;
+
+    public KeycloakJwtAuthenticationConverter(
+            @Value("${app.security.authority-cache.maximum-size:1000}") long authorityCacheMaximumSize,
+            KeycloakRealms realms,
+            RoleDictionary roleDictionary,
+            GroupRoleMapper groupRoleMapper,
+            AuthMetrics metrics) {
+        this.realms = realms;
+        this.roleDictionary = roleDictionary;
+        this.groupRoleMapper = groupRoleMapper;
+        this.metrics = metrics;
+        this.authorityCache = Caffeine.newBuilder()
+                .maximumSize(authorityCacheMaximumSize)
+                .recordStats()
+                .build();
+    }
+
     @Override
     public AbstractAuthenticationToken convert(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = Stream.concat(
-                defaultGrantedAuthoritiesConverter.convert(jwt).stream(),
-                extractKeycloakAuthorities(jwt).stream()
-        ).collect(Collectors.toSet());
+        long start = System.nanoTime();
+        KeycloakRealms.Realm realm = realmOf(jwt);
+        RoleClaims roleClaims = RoleClaims.of(realm.name(), jwt);
+        Authorities authorities = authorityCache.get(roleClaims,
+                key -> encode(buildAuthorities(jwt, realm.roleMapping())));
+        if (!roleDictionary.isCurrent(authorities.roles())) {
+            // A rule registered new roles since this set was encoded
+            authorities = encode(authorities.granted());
+            authorityCache.put(roleClaims, authorities);
+        }
+
+        KeycloakAuthenticationToken token = new KeycloakAuthenticationToken(
+                jwt, authorities.granted(), getPrincipalName(jwt), authorities.roles());
+        metrics.recordConversion(start);
+        return token;
+    }
+
+    /**
+     * Hit/miss statistics of the authority set cache
+     */
+    public CacheStats authorityCacheStats() {
+        return authorityCache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, authorityCache, "authorities");
+    }
+
+    /**
+     * Realm of the token's issuer; the decoder only accepts trusted issuers,
+     * so the default realm is a fallback for tokens built without one
+     */
+    private KeycloakRealms.Realm realmOf(Jwt jwt) {
+        Object issuer = jwt.getClaims().get(JwtClaimNames.ISS);
+        KeycloakRealms.Realm realm = issuer != null ? realms.forIssuer(issuer.toString()) : null;
+        return realm != null ? realm : realms.defaultRealm();
+    }
+
+    private Authorities encode(Set<GrantedAuthority> granted) {
+        return new Authorities(granted, roleDictionary.encode(granted));
+    }
+
+    private Set<GrantedAuthority> buildAuthorities(Jwt jwt, KeycloakRealms.RoleMapping roleMapping) {
+        Set<GrantedAuthority> authorities = new HashSet<>();
+
+        // Scope authorities (SCOPE_xxx) from the default converter
+        defaultGrantedAuthoritiesConverter.convert(jwt)
+                .forEach(authority -> authorities.add(intern(authority.getAuthority())));
 
-        return new JwtAuthenticationToken(jwt, authorities, getPrincipalName(jwt));
+        authorities.addAll(extractKeycloakAuthorities(jwt, roleMapping));
+
+        return Set.copyOf(authorities);
     }
 
     private String getPrincipalName(Jwt jwt) {
@@ -44,17 +137,21 @@ public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, Abstra
         return jwt.getSubject();
     }
 
-    private Collection<GrantedAuthority> extractKeycloakAuthorities(Jwt jwt) {
+    private Collection<GrantedAuthority> extractKeycloakAuthorities(Jwt jwt, KeycloakRealms.RoleMapping roleMapping) {
         Set<GrantedAuthority> authorities = new HashSet<>();
 
         // Extract realm roles from realm_access.roles
-        authorities.addAll(extractRealmRoles(jwt));
+        if (roleMapping.realmRoles()) {
+            authorities.addAll(extractRealmRoles(jwt));
+        }
 
         // Extract client roles from resource_access.{client_id}.roles
-        authorities.addAll(extractResourceRoles(jwt));
+        authorities.addAll(extractResourceRoles(jwt, roleMapping));
 
         // Extract groups and convert to roles
-        authorities.addAll(extractGroupRoles(jwt));
+        if (roleMapping.groups()) {
+            authorities.addAll(extractGroupRoles(jwt));
+        }
 
         return authorities;
     }
@@ -74,30 +171,31 @@ public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, Abstra
             return Collections.emptySet();
         }
 
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
-                .collect(Collectors.toSet());
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        roles.forEach(role -> authorities.add(intern("ROLE_" + role.toUpperCase())));
+        return authorities;
     }
 
     /**
-     * Extract roles from resource_access.{client_id}.roles claims
+     * Extract roles from resource_access.{client_id}.roles claims of the
+     * clients the realm's role mapping includes
      */
     @SuppressWarnings("unchecked")
-    private Collection<GrantedAuthority> extractResourceRoles(Jwt jwt) {
+    private Collection<GrantedAuthority> extractResourceRoles(Jwt jwt, KeycloakRealms.RoleMapping roleMapping) {
         Map<String, Object> resourceAccess = jwt.getClaim("resource_access");
         if (resourceAccess == null) {
             return Collections.emptySet();
         }
 
         Set<GrantedAuthority> authorities = new HashSet<>();
-        
+
         resourceAccess.forEach((clientId, clientAccess) -> {
-            if (clientAccess instanceof Map) {
+            if (clientAccess instanceof Map && roleMapping.mapsClient(clientId)) {
                 Map<String, Object> clientAccessMap = (Map<String, Object>) clientAccess;
                 List<String> roles = (List<String>) clientAccessMap.get("roles");
                 if (roles != null) {
-                    roles.forEach(role -> 
-                        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
+                    roles.forEach(role ->
+                        authorities.add(intern("ROLE_" + role.toUpperCase()))
                     );
                 }
             }
@@ -107,27 +205,59 @@ public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, Abstra
     }
 
     /**
-     * Extract groups from the groups claim and convert to role authorities.
-     * Groups in Keycloak typically start with "/" (e.g., "/ADMIN", "/users/moderators")
-     * We extract the group name and convert to ROLE_GROUP_XXX format.
+     * Extract groups from the groups claim and map them to role authorities.
+     * Groups in Keycloak are paths (e.g., "/ADMIN", "/users/moderators");
+     * GroupRoleMapper turns each into its configured ROLE_ authorities.
      */
-    @SuppressWarnings("unchecked")
     private Collection<GrantedAuthority> extractGroupRoles(Jwt jwt) {
         List<String> groups = jwt.getClaim("groups");
         if (groups == null) {
             return Collections.emptySet();
         }
 
-        return groups.stream()
-                .map(group -> {
-                    // Remove leading slash if present
-                    String groupName = group.startsWith("/") ? group.substring(1) : group;
-                    // Handle nested groups - take the last part or the full path
-                    // For "/ADMIN" -> "ADMIN", for "/org/ADMIN" -> "ADMIN"
-                    String[] parts = groupName.split("/");
-                    String roleName = parts[parts.length - 1];
-                    return new SimpleGrantedAuthority("ROLE_" + roleName.toUpperCase());
-                })
-                .collect(Collectors.toSet());
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        groups.forEach(group -> groupRoleMapper.authorities(group)
+                .forEach(authority -> authorities.add(intern(authority))));
+        return authorities;
+    }
+
+    /**
+     * Return the shared authority instance for this name
+     */
+    private GrantedAuthority intern(String authority) {
+        GrantedAuthority interned = internedAuthorities.get(authority);
+        if (interned != null) {
+            return interned;
+        }
+        if (internedAuthorities.size() >= MAX_INTERNED_AUTHORITIES) {
+            return new SimpleGrantedAuthority(authority);
+        }
+        return internedAuthorities.computeIfAbsent(authority, SimpleGrantedAuthority::new);
+    }
+
+    /**
+     * Memoized authority set and its bitset encoding
+     */
+    private record Authorities(Set<GrantedAuthority> granted, RoleSet roles) {
+    }
+
+    /**
+     * Fingerprint of every claim that contributes to the authority set, and of
+     * the realm whose role mapping applies to them.
+     * Record equality compares the claim values (maps/lists) structurally.
+     */
+    private record RoleClaims(String realm, Object realmAccess, Object resourceAccess, Object groups,
+                              Object scope, Object scp) {
+
+        static RoleClaims of(String realm, Jwt jwt) {
+            Map<String, Object> claims = jwt.getClaims();
+            return new RoleClaims(
+                    realm,
+                    claims.get("realm_access"),
+                    claims.get("resource_access"),
+                    claims.get("groups"),
+                    claims.get("scope"),
+                    claims.get("scp"));
+        }
     }
 }
@@ -0,0 +1,99 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keycloak login redirect logic shared by the servlet and reactive entry points:
+ * builds the authorization URL and decides between redirect and 401 JSON.
+ *
+ * The login goes to the realm chosen by KeycloakRealms.forLogin. Everything but
+ * the state is the same for every request to a realm, so the URL up to "state="
+ * is built once per realm; the state (signed by LoginState, base64url and
+ * therefore already URL-safe) is appended per request.
+ */
+@Component
+public class KeycloakLoginRedirect {
+
+    private final LoginState loginState;
+    private final KeycloakRealms realms;
+    private final String keycloakBaseUrl;
+    private final String redirectUri;
+    private final boolean enableRedirect;
+    private final String defaultRealmUrlPrefix;
+    private final ConcurrentMap<String, String> realmUrlPrefixes = new ConcurrentHashMap<>();
+
+    public KeycloakLoginRedirect(LoginState loginState,
+                                 KeycloakRealms realms,
+                                 @Value("${keycloak.auth-server-url:http://192.168.1.30:8180}") String keycloakBaseUrl,
+                                 @Value("${keycloak.redirect-uri:http://192.168.1.30:7371/callback}") String redirectUri,
+                                 @Value("${keycloak.enable-redirect:true}") boolean enableRedirect) {
+        this.loginState = loginState;
+        this.realms = realms;
+        this.keycloakBaseUrl = keycloakBaseUrl;
+        this.redirectUri = redirectUri;
+        this.enableRedirect = enableRedirect;
+        this.defaultRealmUrlPrefix = authorizationUrlPrefix(realms.defaultRealm());
+    }
+
+    /**
+     * Whether this request should be redirected to the Keycloak login page
+     * (browser) rather than answered with 401 JSON (API client)
+     */
+    public boolean shouldRedirect(String acceptHeader, String xRequestedWith) {
+        return enableRedirect && !isApiRequest(acceptHeader, xRequestedWith);
+    }
+
+    /**
+     * Build the Keycloak authorization URL for a request to host with the
+     * given Authorization header (may be null); the state carries originalPath
+     * back to /api/public/auth/callback.
+     *
+     * host is client-supplied: it only picks one of the realms configured
+     * with hosts (anything else gets the default realm) and never ends up in
+     * the URL or the state.
+     */
+    public String buildLoginUrl(String host, String authorization, String originalPath) {
+        KeycloakRealms.Realm realm = realms.forLogin(host, BearerTokenPrecheckFilter.bearerToken(authorization));
+        String prefix = realm == realms.defaultRealm()
+                ? defaultRealmUrlPrefix
+                : realmUrlPrefixes.computeIfAbsent(realm.name(), name -> authorizationUrlPrefix(realm));
+        return prefix.concat(loginState.issue(originalPath));
+    }
+
+    private String authorizationUrlPrefix(KeycloakRealms.Realm realm) {
+        return UriComponentsBuilder
+                .fromHttpUrl(keycloakBaseUrl + "/realms/" + realm.name() + "/protocol/openid-connect/auth")
+                .queryParam("client_id", realm.clientId())
+                .queryParam("redirect_uri", redirectUri)
+                .queryParam("response_type", "code")
+                .queryParam("scope", "openid profile email groups")
+                .encode()
+                .toUriString() + "&state=";
+    }
+
+    /**
+     * Determine if this is an API request (vs browser request)
+     */
+    private boolean isApiRequest(String acceptHeader, String xRequestedWith) {
+        // XMLHttpRequest indicates AJAX call
+        if ("XMLHttpRequest".equals(xRequestedWith)) {
+            return true;
+        }
+
+        // Check Accept header for JSON preference
+        if (acceptHeader != null) {
+            // If client explicitly wants JSON and doesn't want HTML
+            if (acceptHeader.contains("application/json") &&
+                !acceptHeader.contains("text/html")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenAuthenticationConverter;
+
+/**
+ * Turns an introspected opaque token into the same authentication as a JWT.
+ *
+ * Keycloak's introspection response carries the token's claims (iss,
+ * realm_access, resource_access, groups, scope, ...), so they are wrapped in
+ * an unsigned Jwt (alg "none", token value = the opaque token) and handed to
+ * KeycloakJwtAuthenticationConverter. Role mapping, @RequiresRole checks and
+ * controllers reading Jwt claims then work unchanged.
+ *
+ * Introspection results are cached until exp, so the token is also checked
+ * against the RevocationIndex (when enabled) on every request.
+ */
+public class KeycloakOpaqueTokenConverter implements OpaqueTokenAuthenticationConverter {
+
+    private final KeycloakJwtAuthenticationConverter jwtConverter;
+    private final RevocationIndex revocations;
+
+    /**
+     * @param revocations null if revocation is disabled
+     */
+    public KeycloakOpaqueTokenConverter(KeycloakJwtAuthenticationConverter jwtConverter,
+                                        RevocationIndex revocations) {
+        this.jwtConverter = jwtConverter;
+        this.revocations = revocations;
+    }
+
+    @Override
+    public Authentication convert(String introspectedToken, OAuth2AuthenticatedPrincipal principal) {
+        Jwt jwt = Jwt.withTokenValue(introspectedToken)
+                .header("alg", "none")
+                .claims(claims -> claims.putAll(principal.getAttributes()))
+                .build();
+        if (revocations != null && revocations.isRevoked(jwt)) {
+            throw new InvalidBearerTokenException("Token has been revoked",
+                    new RevokedJwtException("Token has been revoked"));
+        }
+        return jwtConverter.convert(jwt);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.text.ParseException;
+
+/**
+ * ReactiveJwtDecoder on top of the servlet JwtDecoder chain, so both stacks
+ * share the same key stores, validators and verified-token cache.
+ *
+ * Decoding is CPU-only while the signing key is already in the key store of
+ * the token's realm, and then runs inline on the event loop. Other tokens may
+ * build that realm's key store or trigger a JWKS fetch, so they are moved to
+ * boundedElastic.
+ */
+public class KeycloakReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final KeycloakRealms realms;
+
+    public KeycloakReactiveJwtDecoder(JwtDecoder delegate, KeycloakRealms realms) {
+        this.delegate = delegate;
+        this.realms = realms;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        Mono<Jwt> decode = Mono.fromCallable(() -> delegate.decode(token));
+        return hasSigningKey(token) ? decode : decode.subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private boolean hasSigningKey(String token) {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            // Malformed; the delegate rejects it without any I/O
+            return true;
+        }
+        String issuer = JwtSegments.issuer(token);
+        if (issuer == null) {
+            // Unreadable here, so its realm is unknown: assume it may need I/O
+            return false;
+        }
+        KeycloakRealms.Realm realm = realms.forIssuer(issuer);
+        if (realm == null) {
+            // Untrusted issuer; the delegate rejects it without any I/O
+            return true;
+        }
+        KeycloakJwksStore jwksStore = realms.builtJwksStore(realm);
+        JWKSet keys = jwksStore != null ? jwksStore.currentKeys() : null;
+        if (keys == null) {
+            return false;
+        }
+        try {
+            String kid = JWSHeader.parse(new Base64URL(token.substring(0, headerEnd))).getKeyID();
+            return kid == null || keys.getKeyByKeyId(kid) != null;
+        } catch (ParseException | RuntimeException e) {
+            // Malformed header; the delegate rejects it without any I/O
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.ReactiveOpaqueTokenIntrospector;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * ReactiveOpaqueTokenIntrospector on top of the servlet introspector, so both
+ * stacks share one introspection cache.
+ *
+ * Cached tokens are answered inline on the event loop; the others need a
+ * blocking call to Keycloak and are moved to boundedElastic.
+ */
+public class KeycloakReactiveOpaqueTokenIntrospector implements ReactiveOpaqueTokenIntrospector {
+
+    private final CachingOpaqueTokenIntrospector delegate;
+
+    public KeycloakReactiveOpaqueTokenIntrospector(CachingOpaqueTokenIntrospector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<OAuth2AuthenticatedPrincipal> introspect(String token) {
+        Mono<OAuth2AuthenticatedPrincipal> introspect = Mono.fromCallable(() -> delegate.introspect(token));
+        return delegate.isCached(token) ? introspect : introspect.subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.JWTClaimsSetAwareJWSKeySelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The Keycloak realms this resource server accepts tokens from, keyed by issuer.
+ *
+ * All tokens go through one Nimbus JWT processor. keySelector() hands it the
+ * signing keys of the realm named by the iss claim. Nimbus has already parsed
+ * that claim, so routing a token costs a map lookup, not a second parse.
+ *
+ * A realm's key store and key selector are built when its first token arrives,
+ * then cached. The default realm is the exception: it is built at startup.
+ * Tokens whose issuer is not configured find no keys and fail verification.
+ *
+ * Realms also carry the settings that differ per tenant: which roles become
+ * authorities (KeycloakJwtAuthenticationConverter) and the client and hosts
+ * used for login redirects (KeycloakLoginRedirect).
+ */
+public class KeycloakRealms {
+
+    private static final Logger log = LoggerFactory.getLogger(KeycloakRealms.class);
+
+    /**
+     * Which Keycloak roles in a realm's tokens become ROLE_ authorities
+     *
+     * @param realmRoles  map realm_access.roles
+     * @param clientRoles resource_access clients whose roles are mapped; empty = all
+     * @param groups      map group memberships from the groups claim
+     */
+    public record RoleMapping(boolean realmRoles, Set<String> clientRoles, boolean groups) {
+
+        public static final RoleMapping ALL = new RoleMapping(true, Set.of(), true);
+
+        public RoleMapping {
+            clientRoles = clientRoles != null ? Set.copyOf(clientRoles) : Set.of();
+        }
+
+        public boolean mapsClient(String clientId) {
+            return clientRoles.isEmpty() || clientRoles.contains(clientId);
+        }
+    }
+
+    /**
+     * A trusted realm
+     *
+     * @param name          realm name, as in {auth-server-url}/realms/{name}
+     * @param issuer        exact iss claim of its tokens
+     * @param jwkSetUri     where its signing keys are published
+     * @param jwksCacheFile where its last good key set is saved (null = not saved)
+     * @param clientId      client used for login redirects to this realm
+     * @param hosts         request hosts whose login redirects go to this realm
+     * @param roleMapping   which of its roles become authorities
+     */
+    public record Realm(String name, String issuer, URI jwkSetUri, Path jwksCacheFile,
+                        String clientId, List<String> hosts, RoleMapping roleMapping) {
+
+        public Realm {
+            hosts = hosts != null ? List.copyOf(hosts) : List.of();
+            roleMapping = roleMapping != null ? roleMapping : RoleMapping.ALL;
+        }
+    }
+
+    private record RealmKeys(KeycloakJwksStore jwksStore, JWSKeySelector<SecurityContext> keySelector) {
+    }
+
+    private final Realm defaultRealm;
+    private final Map<String, Realm> byIssuer = new HashMap<>();
+    private final Map<String, Realm> byHost = new HashMap<>();
+    private final Set<JWSAlgorithm> algorithms;
+    private final Function<Realm, KeycloakJwksStore> jwksStoreFactory;
+    private final ConcurrentMap<String, RealmKeys> keys = new ConcurrentHashMap<>();
+
+    public KeycloakRealms(Realm defaultRealm,
+                          Collection<Realm> otherRealms,
+                          Set<JWSAlgorithm> algorithms,
+                          Function<Realm, KeycloakJwksStore> jwksStoreFactory) {
+        this.defaultRealm = defaultRealm;
+        this.algorithms = Set.copyOf(algorithms);
+        this.jwksStoreFactory = jwksStoreFactory;
+
+        register(defaultRealm);
+        otherRealms.forEach(this::register);
+
+        // Most tokens come from the default realm: have its keys ready, as before
+        keys(defaultRealm);
+    }
+
+    public Realm defaultRealm() {
+        return defaultRealm;
+    }
+
+    /**
+     * Realm whose tokens carry iss issuer, or null if it is not trusted
+     */
+    public Realm forIssuer(String issuer) {
+        return issuer != null ? byIssuer.get(issuer) : null;
+    }
+
+    /**
+     * Realm to send a login redirect for a request to host. This is the
+     * realm named by the (probably rejected) bearer token if it is trusted,
+     * else the realm mapped to host, else the default realm.
+     */
+    public Realm forLogin(String host, String bearerToken) {
+        Realm realm = bearerToken != null ? forIssuer(JwtSegments.issuer(bearerToken)) : null;
+        if (realm == null && host != null && !byHost.isEmpty()) {
+            realm = byHost.get(host.toLowerCase(Locale.ROOT));
+        }
+        return realm != null ? realm : defaultRealm;
+    }
+
+    /**
+     * Key store of realm if it has been built already, else null
+     */
+    public KeycloakJwksStore builtJwksStore(Realm realm) {
+        RealmKeys realmKeys = keys.get(realm.issuer());
+        return realmKeys != null ? realmKeys.jwksStore() : null;
+    }
+
+    /**
+     * Key selector for the shared JWT processor: the keys of the token's
+     * realm, or none when its issuer is not trusted
+     */
+    public JWTClaimsSetAwareJWSKeySelector<SecurityContext> keySelector() {
+        return (header, claims, context) -> {
+            Realm realm = forIssuer(claims.getIssuer());
+            if (realm == null) {
+                // Nimbus rejects the token: no matching key
+                return List.of();
+            }
+            return keys(realm).keySelector().selectJWSKeys(header, context);
+        };
+    }
+
+    /**
+     * Refresh the key sets of the realms built so far; called periodically
+     */
+    public void refreshIfDue() {
+        keys.values().forEach(realmKeys -> realmKeys.jwksStore().refreshIfDue());
+    }
+
+    private void register(Realm realm) {
+        if (byIssuer.putIfAbsent(realm.issuer(), realm) != null) {
+            throw new IllegalStateException("Realm " + realm.name() + " has the same issuer as another realm: "
+                    + realm.issuer());
+        }
+        for (String host : realm.hosts()) {
+            Realm previous = byHost.putIfAbsent(host.toLowerCase(Locale.ROOT), realm);
+            if (previous != null) {
+                throw new IllegalStateException("Host " + host + " is mapped to realms " + previous.name()
+                        + " and " + realm.name());
+            }
+        }
+    }
+
+    private RealmKeys keys(Realm realm) {
+        RealmKeys realmKeys = keys.get(realm.issuer());
+        if (realmKeys != null) {
+            return realmKeys;
+        }
+        return keys.computeIfAbsent(realm.issuer(), issuer -> {
+            log.info("Building key store of realm {} ({})", realm.name(), realm.jwkSetUri());
+            KeycloakJwksStore jwksStore = jwksStoreFactory.apply(realm);
+            return new RealmKeys(jwksStore, new JWSVerificationKeySelector<>(algorithms, jwksStore));
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.web.server.authorization.ServerAccessDeniedHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+/**
+ * Reactive counterpart of KeycloakAccessDeniedHandler.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class KeycloakServerAccessDeniedHandler implements ServerAccessDeniedHandler {
+
+    private final AuthMetrics metrics;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public KeycloakServerAccessDeniedHandler(AuthMetrics metrics, ObjectProvider<AuditLog> auditLog) {
+        this(metrics, auditLog.getIfAvailable());
+    }
+
+    /**
+     * @param auditLog null if auditing is disabled
+     */
+    public KeycloakServerAccessDeniedHandler(AuthMetrics metrics, AuditLog auditLog) {
+        this.metrics = metrics;
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, AccessDeniedException denied) {
+        metrics.recordForbidden(exchange.getRequest().getPath().value());
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("unknown")
+                .flatMap(username -> {
+                    audit(exchange.getRequest(), username);
+                    ServerHttpResponse response = exchange.getResponse();
+                    byte[] body = ErrorResponseWriter.accessDenied(
+                            username, exchange.getRequest().getPath().value());
+                    response.setStatusCode(HttpStatus.FORBIDDEN);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    response.getHeaders().setContentLength(body.length);
+                    DataBuffer buffer = response.bufferFactory().wrap(body);
+                    return response.writeWith(Mono.just(buffer));
+                });
+    }
+
+    private void audit(ServerHttpRequest request, String username) {
+        if (auditLog != null) {
+            InetSocketAddress client = request.getRemoteAddress();
+            auditLog.publish(AuditEvent.Type.FORBIDDEN, username,
+                    request.getMethod().name() + " " + request.getPath().value(),
+                    client != null ? client.getHostString() : null, null);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Reactive counterpart of KeycloakAuthenticationEntryPoint:
+ * redirects browsers to Keycloak login and returns 401 JSON to API clients.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class KeycloakServerAuthenticationEntryPoint implements ServerAuthenticationEntryPoint {
+
+    private final KeycloakLoginRedirect loginRedirect;
+    private final AuthMetrics metrics;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public KeycloakServerAuthenticationEntryPoint(KeycloakLoginRedirect loginRedirect, AuthMetrics metrics,
+                                                  ObjectProvider<AuditLog> auditLog) {
+        this(loginRedirect, metrics, auditLog.getIfAvailable());
+    }
+
+    /**
+     * @param auditLog null if auditing is disabled
+     */
+    public KeycloakServerAuthenticationEntryPoint(KeycloakLoginRedirect loginRedirect, AuthMetrics metrics,
+                                                  AuditLog auditLog) {
+        this.loginRedirect = loginRedirect;
+        this.metrics = metrics;
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public Mono<Void> commence(ServerWebExchange exchange, AuthenticationException authException) {
+        // Deferred: callers may assemble this Mono without subscribing to it
+        return Mono.defer(() -> respond(exchange, authException));
+    }
+
+    private Mono<Void> respond(ServerWebExchange exchange, AuthenticationException authException) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+
+        String acceptHeader = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        String xRequestedWith = request.getHeaders().getFirst("X-Requested-With");
+        String loginUrl = loginRedirect.buildLoginUrl(request.getURI().getHost(),
+                request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION), originalPath(request));
+
+        boolean redirect = loginRedirect.shouldRedirect(acceptHeader, xRequestedWith);
+        metrics.recordUnauthorized(authException, redirect);
+        if (auditLog != null) {
+            InetSocketAddress client = request.getRemoteAddress();
+            auditLog.publish(AuditEvent.Type.UNAUTHORIZED, null,
+                    request.getMethod().name() + " " + request.getPath().value(),
+                    client != null ? client.getHostString() : null, AuthFailureReason.of(authException).tag());
+        }
+
+        if (!redirect) {
+            // Return 401 JSON response for API clients
+            byte[] body = ErrorResponseWriter.unauthorized(loginUrl);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(body.length);
+            DataBuffer buffer = response.bufferFactory().wrap(body);
+            return response.writeWith(Mono.just(buffer));
+        }
+
+        // Redirect browser requests to Keycloak login
+        // (set verbatim, like HttpServletResponse.sendRedirect does)
+        response.setStatusCode(HttpStatus.FOUND);
+        response.getHeaders().set(HttpHeaders.LOCATION, loginUrl);
+        return response.setComplete();
+    }
+
+    /**
+     * The requested path and query (not the client-supplied host), signed into the login state
+     */
+    private static String originalPath(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        String path = request.getURI().getRawPath();
+        return query != null ? path + '?' + query : path;
+    }
+}
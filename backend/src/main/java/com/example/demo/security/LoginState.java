@@ -0,0 +1,173 @@
+package com.example.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stateless OAuth2 "state" parameter: an expiring, HMAC-SHA256 signed token
+ * carrying the path (and query) the user originally requested.
+ *
+ * Format: base64url(expiresAt[8] | nonce[16] | originalPath) "." base64url(hmac)
+ *
+ * Only the path is signed: the scheme and host of the request come from the
+ * client (Host header), and signing them would vouch for a redirect to any
+ * host an attacker sends. verify resolves the path against the configured
+ * keycloak.public-base-url (or returns it as a relative URL if none is set).
+ *
+ * Nothing is stored server-side, so any instance sharing the secret can check
+ * a state issued by another one. The nonce only makes states unique; it is not
+ * a secret (the HMAC key is), so it comes from ThreadLocalRandom rather than a
+ * shared SecureRandom, and each thread signs with its own Mac instance.
+ */
+@Component
+public class LoginState {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginState.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int HEADER_LENGTH = Long.BYTES + 16;
+    private static final int MAC_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public enum Status {
+        VALID, EXPIRED, INVALID_SIGNATURE, MALFORMED
+    }
+
+    /**
+     * Outcome of verify; originalUrl (on this application's public base URL)
+     * is only set when status is VALID
+     */
+    public record Verification(Status status, String originalUrl) {
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final String publicBaseUrl;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param publicBaseUrl scheme://host[:port] this application is reached
+     *                      at, prepended to the signed path; may be empty
+     */
+    public LoginState(@Value("${keycloak.state.secret:}") String secret,
+                      @Value("${keycloak.state.ttl:10m}") Duration ttl,
+                      @Value("${keycloak.public-base-url:}") String publicBaseUrl) {
+        this.key = new SecretKeySpec(keyBytes(secret), ALGORITHM);
+        this.ttlMillis = ttl.toMillis();
+        this.publicBaseUrl = StringUtils.trimTrailingCharacter(publicBaseUrl.trim(), '/');
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        // Fail at startup rather than on the first login redirect
+        newMac();
+    }
+
+    /**
+     * Sign a new state for the requested path (raw, with its query string if
+     * any), valid for the configured TTL
+     */
+    public String issue(String originalPath) {
+        byte[] url = localPath(originalPath).getBytes(StandardCharsets.UTF_8);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] payload = ByteBuffer.allocate(HEADER_LENGTH + url.length)
+                .putLong(System.currentTimeMillis() + ttlMillis)
+                .putLong(random.nextLong())
+                .putLong(random.nextLong())
+                .put(url)
+                .array();
+        return ENCODER.encodeToString(payload) + '.' + ENCODER.encodeToString(sign(payload));
+    }
+
+    public Verification verify(String state) {
+        int dot = state == null ? -1 : state.indexOf('.');
+        if (dot < 0) {
+            return new Verification(Status.MALFORMED, null);
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(state.substring(0, dot));
+            signature = DECODER.decode(state.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return new Verification(Status.MALFORMED, null);
+        }
+        if (payload.length < HEADER_LENGTH || signature.length != MAC_LENGTH) {
+            return new Verification(Status.MALFORMED, null);
+        }
+        // Constant-time comparison
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return new Verification(Status.INVALID_SIGNATURE, null);
+        }
+        if (ByteBuffer.wrap(payload).getLong() < System.currentTimeMillis()) {
+            return new Verification(Status.EXPIRED, null);
+        }
+        String originalPath = new String(payload, HEADER_LENGTH, payload.length - HEADER_LENGTH, StandardCharsets.UTF_8);
+        return new Verification(Status.VALID, publicBaseUrl + localPath(originalPath));
+    }
+
+    /**
+     * path if it can only be read as a path on this application, else "/":
+     * "//host" and "/\host" are taken by browsers as a URL on another host,
+     * and states signed before only paths were signed hold absolute URLs
+     */
+    private static String localPath(String path) {
+        if (path == null || !path.startsWith("/") || path.startsWith("//") || path.startsWith("/\\")) {
+            return "/";
+        }
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) < 0x21 || path.charAt(i) == 0x7f) {
+                // Whitespace and control characters are not part of a raw path
+                return "/";
+            }
+        }
+        return path;
+    }
+
+    private byte[] sign(byte[] payload) {
+        // doFinal resets the Mac for the next call on this thread
+        return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    private static byte[] keyBytes(String secret) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("keycloak.state.secret is not set; using a random key. " +
+                    "Login states will not verify on other instances or after a restart.");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            return random;
+        }
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            throw new IllegalStateException("keycloak.state.secret must be at least 32 bytes");
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered path patterns compiled into a path-segment trie, with
+ * first-match-wins semantics: match returns the value of the earliest
+ * inserted pattern that matches, like a list of request matchers checked
+ * in order.
+ *
+ * Supported patterns (a subset of Spring's PathPattern syntax):
+ * - literal segments: /actuator/health
+ * - "*" for exactly one non-empty segment: /api/users/*
+ * - a trailing "**" for zero or more segments: /api/admin/**
+ *
+ * Lookup walks the request path once segment by segment (branching only
+ * where a "*" exists), so its cost depends on the path depth, not on the
+ * number of patterns. It does not allocate.
+ */
+public final class PathPatternTrie<T> {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final Node root = new Node();
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * Add a pattern; patterns added earlier take precedence
+     */
+    public void add(String pattern, T value) {
+        Segments parsed = Segments.parse(pattern);
+        int order = values.size();
+        values.add(value);
+
+        Node node = root;
+        for (String segment : parsed.literals()) {
+            node = "*".equals(segment) ? node.wildcard() : node.child(segment);
+        }
+        if (parsed.trailingWildcard()) {
+            node.prefixOrder = Math.min(node.prefixOrder, order);
+        } else {
+            node.exactOrder = Math.min(node.exactOrder, order);
+        }
+    }
+
+    /**
+     * Value of the first pattern matching path, or null
+     */
+    public T match(String path) {
+        int order = match(root, path, path.length() == 1 ? 1 : 0, NO_MATCH);
+        return order == NO_MATCH ? null : values.get(order);
+    }
+
+    /**
+     * pos is the index of the '/' before the next segment, or path.length() at the end
+     */
+    private static int match(Node node, String path, int pos, int best) {
+        // A trailing "**" here matches whatever remains
+        best = Math.min(best, node.prefixOrder);
+        if (pos >= path.length()) {
+            return Math.min(best, node.exactOrder);
+        }
+
+        int start = pos + 1;
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+
+        Node child = node.find(path, start, end);
+        if (child != null) {
+            best = match(child, path, end, best);
+        }
+        if (node.wildcard != null && end > start) {
+            best = match(node.wildcard, path, end, best);
+        }
+        return best;
+    }
+
+    /**
+     * Whether every path matched by pattern is also matched by earlier,
+     * i.e. earlier makes pattern unreachable when listed before it
+     */
+    public static boolean shadows(String earlier, String pattern) {
+        Segments outer = Segments.parse(earlier);
+        Segments inner = Segments.parse(pattern);
+        List<String> a = outer.literals();
+        List<String> b = inner.literals();
+
+        if (outer.trailingWildcard()) {
+            if (b.size() < a.size()) {
+                return false;
+            }
+        } else if (inner.trailingWildcard() || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!"*".equals(a.get(i)) && !a.get(i).equals(b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+
+        private String[] labels = new String[0];
+        private Node[] children = new Node[0];
+        private Node wildcard;
+        private int exactOrder = NO_MATCH;
+        private int prefixOrder = NO_MATCH;
+
+        Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+
+        /**
+         * Child for segment, created if missing. Labels stay sorted for find.
+         */
+        Node child(String segment) {
+            int index = Arrays.binarySearch(labels, segment);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insert = -index - 1;
+            Node node = new Node();
+            labels = insert(labels, insert, segment);
+            children = insert(children, insert, node);
+            return node;
+        }
+
+        /**
+         * Binary search for the child labelled path[start, end)
+         */
+        Node find(String path, int start, int end) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(labels[mid], path, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * String.compareTo of label against path[start, end), without a substring
+         */
+        private static int compare(String label, String path, int start, int end) {
+            int length = end - start;
+            int n = Math.min(label.length(), length);
+            for (int i = 0; i < n; i++) {
+                int diff = label.charAt(i) - path.charAt(start + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return label.length() - length;
+        }
+
+        private static <E> E[] insert(E[] array, int index, E element) {
+            E[] copy = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, index, copy, index + 1, array.length - index);
+            copy[index] = element;
+            return copy;
+        }
+    }
+
+    /**
+     * A pattern split into segments, with a trailing "**" flagged separately
+     * (also used by GroupRoleMapper)
+     */
+    record Segments(List<String> literals, boolean trailingWildcard) {
+
+        static Segments parse(String pattern) {
+            if (pattern == null || !pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Path pattern must start with '/': " + pattern);
+            }
+            List<String> literals = new ArrayList<>();
+            if (pattern.length() > 1) {
+                literals.addAll(Arrays.asList(pattern.substring(1).split("/", -1)));
+            }
+
+            boolean trailingWildcard = !literals.isEmpty() && "**".equals(literals.get(literals.size() - 1));
+            if (trailingWildcard) {
+                literals.remove(literals.size() - 1);
+            }
+            for (String segment : literals) {
+                if (!"*".equals(segment) && (segment.contains("*") || segment.contains("{") || segment.contains("?"))) {
+                    throw new IllegalArgumentException("Unsupported path pattern segment '" + segment + "' in "
+                            + pattern + " (use literals, '*' or a trailing '**')");
+                }
+            }
+            return new Segments(List.copyOf(literals), trailingWildcard);
+        }
+    }
+}
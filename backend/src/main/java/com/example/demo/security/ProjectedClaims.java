@@ -0,0 +1,285 @@
+package com.example.demo.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Claims of a JWT payload, read in one streaming pass (Jackson JsonParser)
+ * instead of a full tree parse followed by map copies.
+ *
+ * Only the claims the application reads are built up front (PROJECTED):
+ * registered claims, the role claims mapped by KeycloakJwtAuthenticationConverter,
+ * sid for RevocationIndex and the profile claims HelloController returns.
+ * Any other member is skipped and only its position in the payload kept;
+ * it is decoded the first time it is read. The whole payload is still
+ * checked for valid JSON and duplicate members in the first pass; unlike
+ * Nimbus, that includes duplicates inside nested objects.
+ *
+ * Values have the types NimbusJwtDecoder produces: exp/iat/nbf are Instants,
+ * aud is a list of strings, numbers are Long or Double, objects and arrays
+ * are (unmodifiable) maps and lists.
+ */
+final class ProjectedClaims extends AbstractMap<String, Object> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Claims built while parsing; everything else is decoded on first read */
+    static final Set<String> PROJECTED = Set.of(
+            JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.AUD, JwtClaimNames.EXP,
+            JwtClaimNames.NBF, JwtClaimNames.IAT, JwtClaimNames.JTI,
+            "azp", "sid", "scope", "scp", "realm_access", "resource_access", "groups",
+            "preferred_username", "email", "email_verified", "name", "given_name", "family_name");
+
+    /** Claims MappedJwtClaimSetConverter converts by default */
+    private static final Set<String> CONVERTED = Set.of(
+            JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.AUD, JwtClaimNames.EXP,
+            JwtClaimNames.NBF, JwtClaimNames.IAT, JwtClaimNames.JTI);
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+            .build();
+
+    private final Map<String, Object> projected;
+    private final byte[] payload;
+    private final String[] deferredNames;
+    /** Start and end offset in payload of each deferred member's value */
+    private final int[] deferredRanges;
+    private final AtomicReferenceArray<Object> deferredValues;
+
+    private ProjectedClaims(Map<String, Object> projected, byte[] payload, List<String> deferredNames,
+                            int[] deferredRanges) {
+        this.projected = Collections.unmodifiableMap(projected);
+        this.deferredNames = deferredNames.toArray(new String[0]);
+        // Kept only while there is something left to decode
+        this.payload = this.deferredNames.length > 0 ? payload : null;
+        this.deferredRanges = deferredRanges;
+        this.deferredValues = new AtomicReferenceArray<>(this.deferredNames.length);
+    }
+
+    /**
+     * Read a decoded JWT payload
+     *
+     * @throws ParseException if it is not a JSON object, or a registered claim has the wrong type
+     */
+    static ProjectedClaims parse(byte[] payload) throws ParseException {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        List<String> deferredNames = new ArrayList<>();
+        int[] deferredRanges = new int[8];
+        try (JsonParser parser = JSON.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ParseException("Payload is not a JSON object", 0);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    // As NimbusJwtDecoder: MappedJwtClaimSetConverter drops the claims it
+                    // converts when null, other claims are kept with a null value
+                    if (!CONVERTED.contains(name)) {
+                        projected.put(name, null);
+                    }
+                    continue;
+                }
+                if (PROJECTED.contains(name)) {
+                    projected.put(name, registeredClaim(name, readValue(parser, token)));
+                } else {
+                    int index = deferredNames.size();
+                    if (deferredRanges.length < 2 * index + 2) {
+                        deferredRanges = Arrays.copyOf(deferredRanges, deferredRanges.length * 2);
+                    }
+                    deferredRanges[2 * index] = (int) parser.currentTokenLocation().getByteOffset();
+                    // Scalars are read lazily by Jackson too: finish them so the end offset is past the value
+                    parser.skipChildren();
+                    parser.finishToken();
+                    deferredRanges[2 * index + 1] = (int) parser.currentLocation().getByteOffset();
+                    deferredNames.add(name);
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new ParseException("Unexpected content after the payload object", 0);
+            }
+        } catch (IOException e) {
+            ParseException parseException = new ParseException("Invalid payload JSON: " + e.getMessage(), 0);
+            parseException.initCause(e);
+            throw parseException;
+        }
+        return new ProjectedClaims(projected, payload, deferredNames, deferredRanges);
+    }
+
+    /**
+     * The claims built while parsing, without the deferred ones
+     */
+    Map<String, Object> projected() {
+        return projected;
+    }
+
+    @Override
+    public Object get(Object name) {
+        Object value = projected.get(name);
+        if (value != null || !(name instanceof String claim)) {
+            return value;
+        }
+        int index = deferredIndex(claim);
+        return index >= 0 ? deferredValue(index) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return projected.containsKey(name) || (name instanceof String claim && deferredIndex(claim) >= 0);
+    }
+
+    @Override
+    public int size() {
+        return projected.size() + deferredNames.length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> projectedEntries = projected.entrySet().iterator();
+                return new Iterator<>() {
+                    private int deferred;
+
+                    @Override
+                    public boolean hasNext() {
+                        return projectedEntries.hasNext() || deferred < deferredNames.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (projectedEntries.hasNext()) {
+                            return projectedEntries.next();
+                        }
+                        if (deferred >= deferredNames.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = deferred++;
+                        return new SimpleImmutableEntry<>(deferredNames[index], deferredValue(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ProjectedClaims.this.size();
+            }
+        };
+    }
+
+    private int deferredIndex(String name) {
+        // A handful of members at most; a linear scan beats building a map per token
+        for (int i = 0; i < deferredNames.length; i++) {
+            if (deferredNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object deferredValue(int index) {
+        Object value = deferredValues.get(index);
+        if (value == null) {
+            // Racing readers decode the same immutable value; either result may win
+            value = decode(deferredRanges[2 * index], deferredRanges[2 * index + 1]);
+            deferredValues.compareAndSet(index, null, value);
+        }
+        return value;
+    }
+
+    private Object decode(int start, int end) {
+        // Already parsed once, so this only fails if the payload was modified
+        try (JsonParser parser = JSON.createParser(payload, start, end - start)) {
+            return readValue(parser, parser.nextToken());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode claim", e);
+        }
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                    ? (Object) parser.getDoubleValue()
+                    : (Object) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            case START_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser, next));
+                }
+                yield Collections.unmodifiableList(list);
+            }
+            case START_OBJECT -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    map.put(name, readValue(parser, parser.nextToken()));
+                }
+                yield Collections.unmodifiableMap(map);
+            }
+            default -> throw new IOException("Unexpected token " + token);
+        };
+    }
+
+    /**
+     * Registered claims converted and type-checked as by Nimbus and Spring's
+     * MappedJwtClaimSetConverter; other claims as read
+     */
+    private static Object registeredClaim(String name, Object value) throws ParseException {
+        switch (name) {
+            case JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.JTI -> {
+                if (!(value instanceof String)) {
+                    throw new ParseException("Unexpected type of " + name + " claim", 0);
+                }
+                return value;
+            }
+            case JwtClaimNames.EXP, JwtClaimNames.IAT, JwtClaimNames.NBF -> {
+                if (!(value instanceof Number seconds)) {
+                    throw new ParseException("Unexpected type of " + name + " claim", 0);
+                }
+                return Instant.ofEpochSecond(seconds.longValue());
+            }
+            case JwtClaimNames.AUD -> {
+                if (value instanceof String audience) {
+                    return List.of(audience);
+                }
+                if (value instanceof List<?> audiences && audiences.stream().allMatch(String.class::isInstance)) {
+                    return value;
+                }
+                throw new ParseException("Unexpected type of aud claim", 0);
+            }
+            default -> {
+                return value;
+            }
+        }
+    }
+}
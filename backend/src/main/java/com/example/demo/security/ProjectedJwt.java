@@ -0,0 +1,34 @@
+package com.example.demo.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+
+import java.io.Serial;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Jwt whose claims are a ProjectedClaims view: getClaims() and every
+ * JwtClaimAccessor method built on it see all claims of the token, but
+ * claims outside ProjectedClaims.PROJECTED are only decoded when read.
+ */
+final class ProjectedJwt extends Jwt {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectedClaims claims;
+
+    ProjectedJwt(String tokenValue, Map<String, Object> headers, ProjectedClaims claims) {
+        // Jwt copies the map it is given: hand it the small projected part only
+        super(tokenValue, (Instant) claims.projected().get(JwtClaimNames.IAT),
+                (Instant) claims.projected().get(JwtClaimNames.EXP), headers,
+                claims.projected().isEmpty() ? claims : claims.projected());
+        this.claims = claims;
+    }
+
+    @Override
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.Header;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.PlainHeader;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.proc.BadJWSException;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.JOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.proc.JWTClaimsSetAwareJWSKeySelector;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+
+import java.security.Key;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JwtDecoder for tokens with large payloads (hundreds of groups, 8-16 KB).
+ *
+ * NimbusJwtDecoder copies the token into segment strings and a signing-input
+ * string, base64-decodes the payload through more strings, parses it into a
+ * JSON tree, copies that into a JWTClaimsSet, converts it into a new map and
+ * copies it twice more building the Jwt. This decoder verifies the signature
+ * with the same Nimbus primitives (header parsing, realm key selection, JWS
+ * verifiers) but decodes the payload straight from the token (JwtSegments)
+ * and reads it once with ProjectedClaims: claims the application uses are
+ * built directly, all others are skipped until read (ProjectedJwt).
+ *
+ * Failures are reported with the exception types and causes NimbusJwtDecoder
+ * uses, so AuthFailureReason and BearerTokenPrecheck classify them the same.
+ */
+public class ProjectingJwtDecoder implements JwtDecoder {
+
+    private static final String DECODING_ERROR_MESSAGE_TEMPLATE =
+            "An error occurred while attempting to decode the Jwt: %s";
+
+    /** DefaultJWTProcessor's default: typ "JWT" or none */
+    private static final JOSEObjectTypeVerifier<SecurityContext> TYPE_VERIFIER =
+            new DefaultJOSEObjectTypeVerifier<>(JOSEObjectType.JWT, null);
+
+    private final JWTClaimsSetAwareJWSKeySelector<SecurityContext> keySelector;
+    private final JWSVerifierFactory verifierFactory = new DefaultJWSVerifierFactory();
+    private OAuth2TokenValidator<Jwt> jwtValidator = JwtValidators.createDefault();
+
+    public ProjectingJwtDecoder(JWTClaimsSetAwareJWSKeySelector<SecurityContext> keySelector) {
+        this.keySelector = keySelector;
+    }
+
+    /**
+     * Validator applied to every verified token, as NimbusJwtDecoder#setJwtValidator
+     */
+    public void setJwtValidator(OAuth2TokenValidator<Jwt> jwtValidator) {
+        this.jwtValidator = jwtValidator;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        JWSHeader header;
+        ProjectedClaims claims;
+        try {
+            // Every signed character must be base64url, so the signing input below is plain ASCII
+            if (headerEnd <= 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0
+                    || !JwtSegments.isBase64Url(token, 0, headerEnd)
+                    || !JwtSegments.isBase64Url(token, payloadEnd + 1, token.length())) {
+                throw new ParseException("Invalid serialized unsecured/JWS/JWE object", 0);
+            }
+            Header parsed = Header.parse(new Base64URL(token.substring(0, headerEnd)));
+            if (parsed instanceof PlainHeader && payloadEnd == token.length() - 1) {
+                // Rejected like NimbusJwtDecoder rejects a PlainJWT
+                throw new BadJwtException("Unsupported algorithm of " + parsed.getAlgorithm());
+            }
+            if (!(parsed instanceof JWSHeader jwsHeader)) {
+                throw new ParseException("Not a JWS header", 0);
+            }
+            header = jwsHeader;
+            byte[] payload = JwtSegments.decode(token, headerEnd + 1, payloadEnd);
+            if (payload == null) {
+                throw new ParseException("Invalid payload encoding", headerEnd + 1);
+            }
+            claims = ProjectedClaims.parse(payload);
+        } catch (BadJwtException e) {
+            throw e;
+        } catch (ParseException | RuntimeException e) {
+            // Nimbus' header parsing can also fail unchecked on garbage
+            throw new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+
+        verify(header, signingInput(token, payloadEnd), new Base64URL(token.substring(payloadEnd + 1)),
+                (String) claims.get(JwtClaimNames.ISS));
+
+        Jwt jwt;
+        try {
+            jwt = new ProjectedJwt(token, header.toJSONObject(), claims);
+        } catch (IllegalArgumentException e) {
+            // e.g. exp not after iat
+            throw new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+        OAuth2TokenValidatorResult result = jwtValidator.validate(jwt);
+        if (result.hasErrors()) {
+            Collection<OAuth2Error> errors = result.getErrors();
+            throw new JwtValidationException(validationMessage(errors), errors);
+        }
+        return jwt;
+    }
+
+    /**
+     * Signature check as DefaultJWTProcessor does it: typ, then each key of
+     * the issuer's realm that fits the header until one verifies
+     */
+    private void verify(JWSHeader header, byte[] signingInput, Base64URL signature, String issuer) {
+        try {
+            TYPE_VERIFIER.verify(header.getType(), null);
+            List<? extends Key> keys = keySelector.selectKeys(header,
+                    new JWTClaimsSet.Builder().issuer(issuer).build(), null);
+            for (Key key : keys) {
+                JWSVerifier verifier = verifierFactory.createJWSVerifier(header, key);
+                if (verifier.verify(header, signingInput, signature)) {
+                    return;
+                }
+            }
+            throw keys.isEmpty()
+                    ? new BadJOSEException("Signed JWT rejected: Another algorithm expected, or no matching key(s) found")
+                    : new BadJWSException("Signed JWT rejected: Invalid signature");
+        } catch (BadJOSEException e) {
+            throw new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        } catch (JOSEException e) {
+            // KeySourceException (JWKS outage) included: not the token's fault
+            throw new JwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * The header and payload segments as bytes, copied once from the token
+     * instead of through a substring; exact because they are ASCII
+     */
+    @SuppressWarnings("deprecation")
+    private static byte[] signingInput(String token, int payloadEnd) {
+        byte[] signingInput = new byte[payloadEnd];
+        token.getBytes(0, payloadEnd, signingInput, 0);
+        return signingInput;
+    }
+
+    private static String validationMessage(Collection<OAuth2Error> errors) {
+        for (OAuth2Error error : errors) {
+            if (error.getDescription() != null && !error.getDescription().isEmpty()) {
+                return String.format(DECODING_ERROR_MESSAGE_TEMPLATE, error.getDescription());
+            }
+        }
+        return "Unable to validate Jwt";
+    }
+}
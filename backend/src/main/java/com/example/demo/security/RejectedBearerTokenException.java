@@ -0,0 +1,21 @@
+package com.example.demo.security;
+
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+
+/**
+ * A bearer token rejected by BearerTokenPrecheck, carrying the reason the
+ * decoder would have reported so auth.unauthorized stays accurate.
+ */
+public class RejectedBearerTokenException extends InvalidBearerTokenException {
+
+    private final AuthFailureReason reason;
+
+    public RejectedBearerTokenException(AuthFailureReason reason) {
+        super("Bearer token rejected: " + reason.tag());
+        this.reason = reason;
+    }
+
+    public AuthFailureReason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * The path a request is matched against by path rules (AuthorizationRuleTable,
+ * load shedding priorities): the path within the application as Spring MVC
+ * and WebFlux route it, i.e. with every segment percent-decoded and stripped
+ * of its ;matrix parameters. /api/h%65llo and /api/hello;x=1 are both checked
+ * as /api/hello, the handler they end up in.
+ *
+ * Empty segments and a trailing '/' are dropped as well, so a rule for
+ * /api/hello also covers /api/hello/ and /api//hello, should the dispatcher
+ * be configured to route those there.
+ *
+ * Null if the path cannot be matched reliably (a malformed escape, or a
+ * segment that decodes to one containing '/'); callers treat it as matching
+ * no rule and deny it.
+ *
+ * Paths that are already canonical (no '%', ';', "//" or trailing '/') are
+ * returned as they are, without parsing or allocating.
+ */
+public final class RequestPaths {
+
+    private RequestPaths() {
+    }
+
+    public static String of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (!contextPath.isEmpty()) {
+            path = path.substring(contextPath.length());
+        }
+        if (isCanonical(path)) {
+            return path;
+        }
+        try {
+            return of(RequestPath.parse(request.getRequestURI(), contextPath).pathWithinApplication());
+        } catch (IllegalArgumentException e) {
+            // Malformed percent-encoding
+            return null;
+        }
+    }
+
+    public static String of(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        return isCanonical(path.value()) ? path.value() : of(path);
+    }
+
+    /**
+     * The decoded segments of path, joined with '/'
+     */
+    public static String of(PathContainer path) {
+        StringBuilder matched = new StringBuilder(path.value().length());
+        for (PathContainer.Element element : path.elements()) {
+            if (element instanceof PathContainer.PathSegment segment) {
+                String value = segment.valueToMatch();
+                if (value.indexOf('/') >= 0) {
+                    return null;
+                }
+                if (!value.isEmpty()) {
+                    matched.append('/').append(value);
+                }
+            }
+        }
+        return matched.isEmpty() ? "/" : matched.toString();
+    }
+
+    private static boolean isCanonical(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        int last = path.length() - 1;
+        for (int i = 0; i <= last; i++) {
+            char c = path.charAt(i);
+            if (c == '%' || c == ';') {
+                return false;
+            }
+            if (c == '/' && i > 0 && (i == last || path.charAt(i + 1) == '/')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Method security without SpEL: the caller must have any of the given roles.
+ * Equivalent to {@code @PreAuthorize("hasAnyRole('A', 'B')")}, but checked
+ * against the token's RoleSet by RequiresRoleAuthorizationManager.
+ * On a type, applies to every method that is not annotated itself.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequiresRole {
+
+    /**
+     * Role names without the ROLE_ prefix
+     */
+    String[] value();
+}
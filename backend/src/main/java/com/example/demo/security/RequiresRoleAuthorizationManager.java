@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Authorizes methods annotated with @RequiresRole.
+ * The annotation is resolved and compiled into a RoleAuthorizationManager
+ * once per method; later invocations are a map lookup plus a mask test.
+ *
+ * Decisions are recorded in the AuditLog when auditing is enabled: every
+ * denial, and grants as sampled by the audit log.
+ */
+public class RequiresRoleAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    private final RoleDictionary roleDictionary;
+    private final Supplier<AuditLog> auditLog;
+    private final ConcurrentMap<Method, CompiledMethod> methods = new ConcurrentHashMap<>();
+
+    public RequiresRoleAuthorizationManager(RoleDictionary roleDictionary) {
+        this(roleDictionary, () -> null);
+    }
+
+    /**
+     * @param auditLog supplies the audit log (null if auditing is disabled) when a
+     *                 method is first checked, so creating this manager with the
+     *                 method security infrastructure does not create the audit log early
+     */
+    public RequiresRoleAuthorizationManager(RoleDictionary roleDictionary, Supplier<AuditLog> auditLog) {
+        this.roleDictionary = roleDictionary;
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        CompiledMethod compiled = methods.get(method);
+        if (compiled == null) {
+            compiled = methods.computeIfAbsent(method, this::compile);
+        }
+        AuthorizationDecision decision = compiled.manager().check(authentication, invocation);
+        if (compiled.auditLog() != null) {
+            audit(compiled, decision != null && decision.isGranted(), authentication);
+        }
+        return decision;
+    }
+
+    private void audit(CompiledMethod compiled, boolean granted, Supplier<Authentication> authentication) {
+        if (granted && !compiled.auditLog().sampleSuccess()) {
+            return;
+        }
+        Authentication current = authentication.get();
+        compiled.auditLog().publish(granted ? AuditEvent.Type.METHOD_GRANTED : AuditEvent.Type.METHOD_DENIED,
+                current != null ? current.getName() : null, compiled.target(), null, compiled.roles());
+    }
+
+    private CompiledMethod compile(Method method) {
+        RequiresRole requiresRole = AnnotatedElementUtils.findMergedAnnotation(method, RequiresRole.class);
+        if (requiresRole == null) {
+            requiresRole = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), RequiresRole.class);
+        }
+        if (requiresRole == null) {
+            throw new IllegalStateException("No @RequiresRole on " + method);
+        }
+        if (requiresRole.value().length == 0) {
+            throw new IllegalStateException("@RequiresRole on " + method + " names no roles");
+        }
+        return new CompiledMethod(roleDictionary.hasAnyRole(requiresRole.value()),
+                method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                String.join(",", requiresRole.value()), auditLog.get());
+    }
+
+    /**
+     * @param target   audit name of the method
+     * @param roles    the roles it requires, as audited
+     * @param auditLog null if auditing is disabled
+     */
+    private record CompiledMethod(RoleAuthorizationManager<MethodInvocation> manager, String target, String roles,
+                                  AuditLog auditLog) {
+    }
+}
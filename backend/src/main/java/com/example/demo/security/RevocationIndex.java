@@ -0,0 +1,344 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sessions, tokens and users whose access tokens must be rejected before
+ * they expire: fed by Keycloak back-channel logouts and admin revocations.
+ *
+ * Every authenticated request is checked against its sid, jti and sub claims.
+ * A Bloom filter answers "not revoked" for almost all of them without
+ * touching the exact map, and when nothing is revoked the check is a single
+ * volatile read. Writes are rare and serialized; reads take no lock.
+ *
+ * A revoked session or subject rejects tokens issued at or before the
+ * revocation, so logging in again works; a revoked jti rejects that token.
+ * Entries are kept until expiresAt (at least as long as any access token
+ * issued before them is valid). Expired entries are purged, and the filter
+ * rebuilt, by purgeExpired().
+ *
+ * The entries are saved to snapshotFile (if set) by saveSnapshot() and
+ * loaded at startup, so a restart does not re-admit logged-out sessions.
+ */
+public class RevocationIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x52455631; // "REV1"
+
+    /**
+     * Claim a revocation applies to
+     */
+    public enum Kind {
+        SESSION("sid"),
+        TOKEN("jti"),
+        SUBJECT("sub");
+
+        private final String claim;
+
+        Kind(String claim) {
+            this.claim = claim;
+        }
+
+        public String claim() {
+            return claim;
+        }
+    }
+
+    /**
+     * @param revokedAt tokens issued at or before this are rejected (any time for TOKEN)
+     * @param expiresAt the entry is dropped after this
+     */
+    public record Revocation(Kind kind, String value, Instant revokedAt, Instant expiresAt) {
+    }
+
+    private record Key(Kind kind, String value) {
+    }
+
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final Duration retention;
+    private final Path snapshotFile;
+    private final Map<Key, Revocation> entries = new ConcurrentHashMap<>();
+    private final Counter[] revoked = new Counter[Kind.values().length];
+
+    private volatile BloomFilter filter;
+    /** entries.size(), readable without summing ConcurrentHashMap counters */
+    private volatile int size;
+    private boolean dirty;
+
+    public RevocationIndex(int expectedEntries, double falsePositiveRate, Duration retention, Path snapshotFile) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.retention = retention;
+        this.snapshotFile = snapshotFile;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        loadSnapshot();
+    }
+
+    /**
+     * Reject tokens issued at or before revokedAt with value in the kind
+     * claim, for the configured retention
+     */
+    public void revoke(Kind kind, String value, Instant revokedAt) {
+        revoke(new Revocation(kind, value, revokedAt, Instant.now().plus(retention)));
+    }
+
+    public synchronized void revoke(Revocation revocation) {
+        if (!revocation.expiresAt().isAfter(Instant.now())) {
+            return;
+        }
+        Key key = new Key(revocation.kind(), revocation.value());
+        // A later revocation of the same value widens the previous one
+        Revocation merged = entries.merge(key, revocation, (previous, next) -> new Revocation(next.kind(),
+                next.value(), max(previous.revokedAt(), next.revokedAt()), max(previous.expiresAt(), next.expiresAt())));
+        if (entries.size() > filter.capacity()) {
+            rebuildFilter();
+        } else {
+            filter.add(key.kind(), key.value());
+        }
+        size = entries.size();
+        dirty = true;
+        Counter counter = revoked[revocation.kind().ordinal()];
+        if (counter != null) {
+            counter.increment();
+        }
+        log.debug("Revoked {}={} until {}", revocation.kind().claim(), revocation.value(), merged.expiresAt());
+    }
+
+    /**
+     * Whether the token's session, jti or subject has been revoked since it was issued
+     */
+    public boolean isRevoked(Jwt jwt) {
+        if (size == 0) {
+            return false;
+        }
+        Map<String, Object> claims = jwt.getClaims();
+        BloomFilter current = filter;
+        return isRevoked(current, Kind.SESSION, claims.get("sid"), jwt)
+                || isRevoked(current, Kind.TOKEN, claims.get("jti"), jwt)
+                || isRevoked(current, Kind.SUBJECT, claims.get("sub"), jwt);
+    }
+
+    /**
+     * decoder, rejecting revoked tokens with a RevokedJwtException. Applied
+     * outside the verified-token cache, so cached tokens are checked too.
+     */
+    public JwtDecoder rejectRevoked(JwtDecoder decoder) {
+        return token -> {
+            Jwt jwt = decoder.decode(token);
+            if (isRevoked(jwt)) {
+                throw new RevokedJwtException("Token has been revoked");
+            }
+            return jwt;
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drop expired entries and rebuild the filter without them; called periodically
+     */
+    public synchronized void purgeExpired() {
+        Instant now = Instant.now();
+        if (entries.values().removeIf(revocation -> !revocation.expiresAt().isAfter(now))) {
+            rebuildFilter();
+            size = entries.size();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Write the entries to snapshotFile if they changed since the last save
+     */
+    public void saveSnapshot() {
+        List<Revocation> snapshot;
+        synchronized (this) {
+            if (snapshotFile == null || !dirty) {
+                return;
+            }
+            snapshot = new ArrayList<>(entries.values());
+            dirty = false;
+        }
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // Write then rename so a crash never leaves a truncated file behind
+            Path tmp = Files.createTempFile(parent, "revocations", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(snapshot.size());
+                for (Revocation revocation : snapshot) {
+                    out.writeByte(revocation.kind().ordinal());
+                    out.writeUTF(revocation.value());
+                    out.writeLong(revocation.revokedAt().toEpochMilli());
+                    out.writeLong(revocation.expiresAt().toEpochMilli());
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.warn("Could not write revocation snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.revocation.entries", this, RevocationIndex::size)
+                .description("Revoked sessions, tokens and subjects held in memory")
+                .register(registry);
+        for (Kind kind : Kind.values()) {
+            revoked[kind.ordinal()] = Counter.builder("auth.revocation.revoked")
+                    .description("Revocations received, by claim")
+                    .tag("claim", kind.claim())
+                    .register(registry);
+        }
+    }
+
+    private boolean isRevoked(BloomFilter current, Kind kind, Object claim, Jwt jwt) {
+        if (!(claim instanceof String value) || !current.mightContain(kind, value)) {
+            return false;
+        }
+        Revocation revocation = entries.get(new Key(kind, value));
+        if (revocation == null || !revocation.expiresAt().isAfter(Instant.now())) {
+            return false;
+        }
+        // Read only here: getIssuedAt() goes through Spring's claim conversion
+        Instant issuedAt = jwt.getIssuedAt();
+        return kind == Kind.TOKEN || issuedAt == null || !issuedAt.isAfter(revocation.revokedAt());
+    }
+
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, entries.size() * 2), falsePositiveRate);
+        entries.keySet().forEach(key -> rebuilt.add(key.kind(), key.value()));
+        filter = rebuilt;
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null || !Files.isReadable(snapshotFile)) {
+            return;
+        }
+        Instant now = Instant.now();
+        Kind[] kinds = Kind.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("not a revocation snapshot");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Kind kind = kinds[in.readUnsignedByte()];
+                String value = in.readUTF();
+                Instant revokedAt = Instant.ofEpochMilli(in.readLong());
+                Instant expiresAt = Instant.ofEpochMilli(in.readLong());
+                if (expiresAt.isAfter(now)) {
+                    entries.put(new Key(kind, value), new Revocation(kind, value, revokedAt, expiresAt));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+            log.warn("Ignoring unreadable revocation snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        rebuildFilter();
+        size = entries.size();
+        log.info("Loaded {} revocations from {}", size, snapshotFile);
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Bloom filter over (kind, value) pairs. Bits are only ever set, so
+     * concurrent readers at worst miss an entry added at the same moment.
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long mask;
+        private final int hashes;
+        private final int capacity;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            this.capacity = Math.max(capacity, 1);
+            // m = -n ln p / (ln 2)^2, rounded up to a power of two so positions are masked, not divided
+            long m = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            long bitCount = Math.max(64, Long.highestOneBit(m - 1) << 1);
+            this.bits = new AtomicLongArray((int) (bitCount >>> 6));
+            this.mask = bitCount - 1;
+            // k = m/n ln 2, for the m actually allocated
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / this.capacity * Math.log(2)));
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        void add(Kind kind, String value) {
+            long hash = hash(kind, value);
+            long h1 = hash & 0xffffffffL;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & mask;
+                long word = 1L << bit;
+                bits.getAndUpdate((int) (bit >>> 6), w -> w | word);
+            }
+        }
+
+        boolean mightContain(Kind kind, String value) {
+            long hash = hash(kind, value);
+            long h1 = hash & 0xffffffffL;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & mask;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * String.hashCode (cached in the claim strings, which a cached Jwt
+         * reuses on every request) spread to 64 bits by a finalizer, so both
+         * halves are usable as independent hashes
+         */
+        private static long hash(Kind kind, String value) {
+            long h = ((long) value.hashCode() << 2) ^ kind.ordinal() ^ ((long) value.length() << 34);
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93fe1a85ec3L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
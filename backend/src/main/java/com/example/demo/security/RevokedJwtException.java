@@ -0,0 +1,14 @@
+package com.example.demo.security;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+/**
+ * A valid token whose session, jti or subject has been revoked (RevocationIndex).
+ * A BadJwtException, so it ends in a 401 like any other rejected token.
+ */
+public class RevokedJwtException extends BadJwtException {
+
+    public RevokedJwtException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.security;
+
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.function.Supplier;
+
+/**
+ * Grants access if the authentication holds any of the required authorities.
+ *
+ * For a KeycloakAuthenticationToken this is a mask test against its RoleSet,
+ * independent of how many authorities the token carries. Other
+ * authentications, and tokens encoded before one of the required authorities
+ * was registered, are checked against the authority collection like
+ * AuthorityAuthorizationManager does (no role hierarchy).
+ * Created by RoleDictionary.
+ */
+public final class RoleAuthorizationManager<T> implements AuthorizationManager<T> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final String[] authorities;
+    private final long[] mask;
+    private final int highestBit;
+
+    RoleAuthorizationManager(String[] authorities, int[] bits) {
+        this.authorities = authorities;
+        int highest = -1;
+        for (int bit : bits) {
+            highest = Math.max(highest, bit);
+        }
+        this.highestBit = highest;
+        this.mask = new long[(highest >>> 6) + 1];
+        for (int bit : bits) {
+            mask[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+        return isGranted(authentication.get()) ? GRANTED : DENIED;
+    }
+
+    /**
+     * The same check for WebFlux: unauthenticated requests are denied
+     */
+    public <R> ReactiveAuthorizationManager<R> reactive() {
+        return (authentication, object) -> authentication
+                .filter(Authentication::isAuthenticated)
+                .map(auth -> isGranted(auth) ? GRANTED : DENIED)
+                .defaultIfEmpty(DENIED);
+    }
+
+    public boolean isGranted(Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        if (authentication instanceof KeycloakAuthenticationToken token) {
+            RoleSet roles = token.getRoles();
+            if (roles.covers(highestBit)) {
+                return roles.intersects(mask);
+            }
+        }
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            String name = granted.getAuthority();
+            for (String authority : authorities) {
+                if (authority.equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "RoleAuthorizationManager[authorities=" + String.join(",", authorities) + "]";
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns a bit to every authority that some authorization rule checks.
+ *
+ * Only required authorities are registered (by the RoleAuthorizationManager
+ * factories below), never the authorities found in tokens, so the dictionary
+ * stays as small as the set of rules and cannot be grown by clients.
+ * KeycloakJwtAuthenticationConverter encodes each memoized authority set
+ * into a RoleSet once; rules then check a precomputed mask against it.
+ */
+@Component
+public class RoleDictionary {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final ConcurrentMap<String, Integer> bits = new ConcurrentHashMap<>();
+    private volatile int size;
+
+    /**
+     * Same semantics as AuthorityAuthorizationManager.hasRole: requires ROLE_{role}
+     */
+    public <T> RoleAuthorizationManager<T> hasRole(String role) {
+        return hasAnyRole(role);
+    }
+
+    public <T> RoleAuthorizationManager<T> hasAnyRole(String... roles) {
+        Assert.notEmpty(roles, "roles cannot be empty");
+        String[] authorities = new String[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            String role = roles[i];
+            Assert.notNull(role, "role cannot be null");
+            Assert.isTrue(!role.startsWith(ROLE_PREFIX), () -> role + " should not start with "
+                    + ROLE_PREFIX + " since " + ROLE_PREFIX + " is automatically prepended when using hasAnyRole");
+            authorities[i] = ROLE_PREFIX + role;
+        }
+        return hasAnyAuthority(authorities);
+    }
+
+    public <T> RoleAuthorizationManager<T> hasAuthority(String authority) {
+        return hasAnyAuthority(authority);
+    }
+
+    public <T> RoleAuthorizationManager<T> hasAnyAuthority(String... authorities) {
+        // An empty set would grant nobody, and the mask is sized by its highest bit
+        Assert.notEmpty(authorities, "authorities cannot be empty");
+        int[] required = new int[authorities.length];
+        for (int i = 0; i < authorities.length; i++) {
+            Assert.notNull(authorities[i], "authority cannot be null");
+            required[i] = register(authorities[i]);
+        }
+        return new RoleAuthorizationManager<>(authorities.clone(), required);
+    }
+
+    /**
+     * Bitset of the registered authorities among the given ones
+     */
+    public RoleSet encode(Collection<? extends GrantedAuthority> authorities) {
+        // Read size first: bits registered concurrently are beyond coveredBits
+        int covered = size;
+        if (covered == 0) {
+            return RoleSet.EMPTY;
+        }
+        long[] words = new long[(covered + 63) >>> 6];
+        for (GrantedAuthority authority : authorities) {
+            Integer bit = bits.get(authority.getAuthority());
+            if (bit != null && bit < covered) {
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new RoleSet(words, covered);
+    }
+
+    /**
+     * Whether roles was encoded with every currently registered authority
+     */
+    public boolean isCurrent(RoleSet roles) {
+        return roles.coveredBits() == size;
+    }
+
+    private synchronized int register(String authority) {
+        Integer existing = bits.get(authority);
+        if (existing != null) {
+            return existing;
+        }
+        int bit = size;
+        bits.put(authority, bit);
+        size = bit + 1;
+        return bit;
+    }
+}
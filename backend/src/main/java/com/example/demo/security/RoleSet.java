@@ -0,0 +1,49 @@
+package com.example.demo.security;
+
+import java.io.Serializable;
+
+/**
+ * Authorities of one token as a bitset over the RoleDictionary.
+ *
+ * Only bits below coveredBits are meaningful: roles registered in the
+ * dictionary after this set was encoded are unknown to it, and callers must
+ * fall back to the authority collection for those.
+ */
+public final class RoleSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final RoleSet EMPTY = new RoleSet(new long[0], 0);
+
+    private final long[] words;
+    private final int coveredBits;
+
+    RoleSet(long[] words, int coveredBits) {
+        this.words = words;
+        this.coveredBits = coveredBits;
+    }
+
+    /**
+     * Whether every bit below highestBit + 1 was known when this set was encoded
+     */
+    boolean covers(int highestBit) {
+        return highestBit < coveredBits;
+    }
+
+    int coveredBits() {
+        return coveredBits;
+    }
+
+    /**
+     * Whether any bit of mask is set
+     */
+    boolean intersects(long[] mask) {
+        int n = Math.min(words.length, mask.length);
+        for (int i = 0; i < n; i++) {
+            if ((words[i] & mask[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * JwtDecoder decorator that records decode/verify latency in AuthMetrics.
+ */
+public class TimedJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final AuthMetrics metrics;
+
+    public TimedJwtDecoder(JwtDecoder delegate, AuthMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Jwt jwt = delegate.decode(token);
+            success = true;
+            return jwt;
+        } finally {
+            metrics.recordDecode(start, success);
+        }
+    }
+}
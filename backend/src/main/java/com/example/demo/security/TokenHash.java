@@ -0,0 +1,51 @@
+package com.example.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 fingerprint of a raw bearer token.
+ * Used as a cache key so raw tokens are never held as map keys.
+ */
+public final class TokenHash {
+
+    private static final MessageDigest PROTOTYPE;
+
+    static {
+        try {
+            PROTOTYPE = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private TokenHash() {
+    }
+
+    /**
+     * Hash the token and return it as an unpadded base64url string (43 chars)
+     */
+    public static String of(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest(token));
+    }
+
+    /**
+     * Raw 32-byte SHA-256 digest of the token
+     */
+    public static byte[] digest(String token) {
+        // Cloning a prepared digest is much cheaper than a provider lookup per call
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 not available", ex);
+            }
+        }
+        return digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+    }
+}
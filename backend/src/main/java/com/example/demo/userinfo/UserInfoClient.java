@@ -0,0 +1,47 @@
+package com.example.demo.userinfo;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keycloak's userinfo endpoint ({issuer}/protocol/openid-connect/userinfo),
+ * called with the user's own access token.
+ */
+public class UserInfoClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> USERINFO_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestTemplate restTemplate;
+    private final String userInfoPath;
+
+    /**
+     * @param userInfoPath appended to the token's issuer
+     */
+    public UserInfoClient(RestTemplate restTemplate, String userInfoPath) {
+        this.restTemplate = restTemplate;
+        this.userInfoPath = userInfoPath;
+    }
+
+    /**
+     * Claims of the token's user, or an empty map if Keycloak returned no body
+     *
+     * @throws org.springframework.web.client.RestClientException if the call failed
+     */
+    public Map<String, Object> fetch(String issuer, String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        Map<String, Object> claims = restTemplate.exchange(issuer + userInfoPath, HttpMethod.GET,
+                new HttpEntity<>(headers), USERINFO_RESPONSE).getBody();
+        return claims != null ? claims : Map.of();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.userinfo;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Profile attributes of a user, as returned by Keycloak's userinfo endpoint
+ *
+ * @param attributes claims of the userinfo response (filtered by app.userinfo-enrichment.attributes),
+ *                   null if the request failed
+ * @param fetchedAt  when they were fetched; identifies this version of the profile
+ */
+public record UserProfile(Map<String, Object> attributes, Instant fetchedAt) {
+}
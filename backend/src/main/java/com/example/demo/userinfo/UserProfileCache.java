@@ -0,0 +1,180 @@
+package com.example.demo.userinfo;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Userinfo profiles by user (issuer + sub), fetched from Keycloak on the
+ * executor with the access token of the request that needed them.
+ *
+ * - Concurrent misses for one user share a single userinfo request (one
+ *   future per key), and a request waits for it at most waitTimeout: past
+ *   that it is answered without a profile, which is cached once it arrives.
+ * - A profile older than refreshAfter is still served, while the first
+ *   request to see it starts fetching a fresh one in the background.
+ * - A profile not refreshed within ttl is dropped. A failed fetch is
+ *   remembered like a profile (requests get none until it is retried after
+ *   refreshAfter), and a failed refresh keeps serving the previous profile.
+ *
+ * So a user costs at most one userinfo request per refreshAfter, and only
+ * while they are active. Hit/miss counts are published as cache.* metrics
+ * (cache=user-profiles).
+ */
+public class UserProfileCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(UserProfileCache.class);
+
+    private final UserInfoClient client;
+    private final Executor executor;
+    private final Set<String> attributes;
+    private final Duration refreshAfter;
+    private final Duration waitTimeout;
+    private final AsyncCache<String, UserProfile> cache;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param attributes userinfo claims to keep, all of them if empty
+     */
+    public UserProfileCache(UserInfoClient client, Executor executor, Set<String> attributes, long maximumSize,
+                            Duration ttl, Duration refreshAfter, Duration waitTimeout) {
+        this.client = client;
+        this.executor = executor;
+        this.attributes = Set.copyOf(attributes);
+        this.refreshAfter = refreshAfter;
+        this.waitTimeout = waitTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * The profile of the token's user, or null if it is not available in time
+     */
+    public UserProfile get(Jwt jwt) {
+        String issuer = jwt.getClaimAsString(JwtClaimNames.ISS);
+        String subject = jwt.getSubject();
+        if (issuer == null || subject == null) {
+            return null;
+        }
+        String key = issuer + '|' + subject;
+        CompletableFuture<UserProfile> future = cache.get(key,
+                (k, cacheExecutor) -> CompletableFuture.supplyAsync(() -> fetch(issuer, jwt), cacheExecutor));
+        UserProfile profile = future.isDone() ? completed(future) : await(future);
+        if (profile == null) {
+            return null;
+        }
+        if (Instant.now().isAfter(profile.fetchedAt().plus(refreshAfter))) {
+            refresh(key, issuer, jwt, profile);
+        }
+        return profile.attributes() != null ? profile : null;
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "user-profiles");
+        counter(registry, refreshes, "refresh", "Stale profiles served while a fresh one was fetched");
+        counter(registry, timeouts, "timeout", "Requests answered without a profile that was still being fetched");
+        counter(registry, failures, "failure", "Userinfo requests that failed");
+    }
+
+    /**
+     * Fetch a fresh profile in the background, unless one is already being fetched
+     */
+    private void refresh(String key, String issuer, Jwt jwt, UserProfile previous) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        refreshes.increment();
+        try {
+            CompletableFuture.supplyAsync(() -> fetch(issuer, jwt), executor).whenComplete((profile, e) -> {
+                if (profile != null && (profile.attributes() != null || previous.attributes() == null)) {
+                    cache.put(key, CompletableFuture.completedFuture(profile));
+                }
+                refreshing.remove(key);
+            });
+        } catch (RejectedExecutionException e) {
+            // Busy: the stale profile is still good, the next request tries again
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * The user's profile, or one without attributes if the request failed
+     */
+    private UserProfile fetch(String issuer, Jwt jwt) {
+        Map<String, Object> claims;
+        try {
+            claims = client.fetch(issuer, jwt.getTokenValue());
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.debug("Userinfo request for {} failed: {}", jwt.getSubject(), e.getMessage());
+            return new UserProfile(null, Instant.now());
+        }
+        Map<String, Object> profile = new LinkedHashMap<>();
+        claims.forEach((name, value) -> {
+            if (!JwtClaimNames.SUB.equals(name) && (attributes.isEmpty() || attributes.contains(name))) {
+                profile.put(name, value);
+            }
+        });
+        return new UserProfile(Collections.unmodifiableMap(profile), Instant.now());
+    }
+
+    private UserProfile await(CompletableFuture<UserProfile> future) {
+        try {
+            return future.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static UserProfile completed(CompletableFuture<UserProfile> future) {
+        return future.isCompletedExceptionally() ? null : future.join();
+    }
+
+    private static void counter(MeterRegistry registry, LongAdder adder, String result, String description) {
+        FunctionCounter.builder("userinfo.enrichment", adder, LongAdder::sum)
+                .description(description)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AuditEvent;
+import com.example.demo.security.AuditLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-thread cost of recording one audit event with 4 threads publishing:
+ * AuditLog (lock-free ring buffer, background writer) against writing each
+ * line to the file on the calling thread under a lock, as a synchronous
+ * logger with immediate flush does. The events dropped by AuditLog when its
+ * writer falls behind are printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AuditLogBenchmark {
+
+    private Path directory;
+    private AuditLog auditLog;
+    private FileOutputStream synchronousFile;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("audit-benchmark");
+        auditLog = new AuditLog(directory.resolve("audit.log"), 8192, 256, Duration.ofMillis(200),
+                64L * 1024 * 1024, 2, 1.0);
+        auditLog.start();
+        synchronousFile = new FileOutputStream(directory.resolve("synchronous.log").toFile(), true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        auditLog.close();
+        synchronousFile.close();
+        System.out.printf("%nAuditLog: %d written, %d dropped%n", auditLog.written(), auditLog.dropped());
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean auditLog() {
+        return auditLog.publish(AuditEvent.Type.FORBIDDEN, "regular-user", "GET /api/hello/me", "127.0.0.1", null);
+    }
+
+    @Benchmark
+    public boolean synchronousFile() throws IOException {
+        byte[] line = ("{\"t\":" + System.currentTimeMillis() + ",\"e\":\"403\",\"p\":\"regular-user\","
+                + "\"r\":\"GET /api/hello/me\",\"a\":\"127.0.0.1\"}\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (synchronousFile) {
+            synchronousFile.write(line);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.GroupRoleMapper;
+import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.RoleDictionary;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.MetricsFixtures;
+import com.example.demo.support.RealmFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KeycloakJwtAuthenticationConverter.convert with small and very large role/group claims.
+ *
+ * Each invocation sees a different Jwt instance with equal (but not identical)
+ * claims, as when many users share a role combination. authorityCacheSize=0
+ * disables memoization and measures the raw extraction cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorityConversionBenchmark {
+
+    private static final int DISTINCT_TOKENS = 64;
+
+    @Param({"small", "large"})
+    public String claims;
+
+    @Param({"0", "1000"})
+    public long authorityCacheSize;
+
+    private KeycloakJwtAuthenticationConverter converter;
+    private Jwt[] jwts;
+    private int next;
+
+    @Setup
+    public void setup() {
+        converter = new KeycloakJwtAuthenticationConverter(
+                authorityCacheSize, RealmFixtures.realms(), new RoleDictionary(), GroupRoleMapper.groupNames(),
+                MetricsFixtures.authMetrics());
+        jwts = new Jwt[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            Map<String, Object> claimSet = "large".equals(claims) ? ClaimFixtures.large() : ClaimFixtures.small();
+            jwts[i] = Jwt.withTokenValue("bench-" + i)
+                    .header("alg", "RS256")
+                    .subject("user-" + i)
+                    .claims(c -> c.putAll(claimSet))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convert() {
+        Jwt jwt = jwts[next++ & (DISTINCT_TOKENS - 1)];
+        return converter.convert(jwt);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AuthorizationRuleTable;
+import com.example.demo.security.RoleDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Path rule lookup with a growing rule table: Spring's ordered matcher list
+ * (RequestMatcherDelegatingAuthorizationManager, as built by
+ * authorizeHttpRequests) against the trie-backed AuthorizationRuleTable.
+ * lastRule hits the rule listed last, the worst case for the list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizationRuleBenchmark {
+
+    @Param({"6", "100", "500"})
+    public int rules;
+
+    private RequestMatcherDelegatingAuthorizationManager matcherList;
+    private AuthorizationRuleTable ruleTable;
+
+    private RequestAuthorizationContext firstRuleRequest;
+    private RequestAuthorizationContext lastRuleRequest;
+    private final Authentication user = new TestingAuthenticationToken("bench-user", null, "ROLE_ADMIN");
+    private final Supplier<Authentication> authentication = () -> user;
+
+    @Setup
+    public void setup() {
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder();
+        ruleTable = new AuthorizationRuleTable();
+        RoleDictionary roleDictionary = new RoleDictionary();
+
+        builder.add(new AntPathRequestMatcher("/api/public/**"), (a, o) -> new AuthorizationDecision(true));
+        ruleTable.permitAll("/api/public/**");
+        for (int i = 0; i < rules - 2; i++) {
+            String pattern = "/api/service-" + i + "/**";
+            builder.add(new AntPathRequestMatcher(pattern), AuthorityAuthorizationManager.hasRole("ADMIN"));
+            ruleTable.access(pattern, roleDictionary.hasRole("ADMIN"));
+        }
+        builder.add(new AntPathRequestMatcher("/api/**"), AuthenticatedAuthorizationManager.authenticated());
+        ruleTable.authenticated("/api/**");
+        builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+        matcherList = builder.build();
+
+        firstRuleRequest = context("/api/public/health");
+        lastRuleRequest = context("/api/other/items/42");
+    }
+
+    private static RequestAuthorizationContext context(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setServletPath(uri);
+        return new RequestAuthorizationContext(request);
+    }
+
+    @Benchmark
+    public AuthorizationDecision matcherListFirstRule() {
+        return matcherList.check(authentication, firstRuleRequest.getRequest());
+    }
+
+    @Benchmark
+    public AuthorizationDecision matcherListLastRule() {
+        return matcherList.check(authentication, lastRuleRequest.getRequest());
+    }
+
+    @Benchmark
+    public AuthorizationDecision ruleTableFirstRule() {
+        return ruleTable.check(authentication, firstRuleRequest);
+    }
+
+    @Benchmark
+    public AuthorizationDecision ruleTableLastRule() {
+        return ruleTable.check(authentication, lastRuleRequest);
+    }
+}
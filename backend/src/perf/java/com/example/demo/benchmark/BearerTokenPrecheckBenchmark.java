@@ -0,0 +1,114 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AuthFailureReason;
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.BearerTokenPrecheck;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.TimedJwtDecoder;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalIssuer;
+import com.example.demo.support.MetricsFixtures;
+import com.example.demo.support.RealmFixtures;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning away a junk bearer token: the decoder alone (parse and,
+ * where it gets that far, signature verification) against BearerTokenPrecheck
+ * in front of it. "valid" shows what the precheck adds to a good token.
+ * "forged" has a valid header and payload but a tampered RS256 signature;
+ * it is decoded once in setup, so the precheck answers it from the negative cache.
+ * "untrustedIssuer" is validly signed by a realm that is not configured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BearerTokenPrecheckBenchmark {
+
+    @Param({"valid", "garbage", "unknownAlg", "expired", "forged", "untrustedIssuer"})
+    public String token;
+
+    private LocalIssuer issuer;
+    private LocalIssuer untrustedIssuer;
+    private JwtDecoder decoder;
+    private JwtDecoder rememberingDecoder;
+    private BearerTokenPrecheck precheck;
+    private String bearer;
+
+    @Setup
+    public void setup() {
+        issuer = LocalIssuer.start("bench");
+        untrustedIssuer = LocalIssuer.start("untrusted");
+        AuthMetrics metrics = MetricsFixtures.authMetrics();
+        KeycloakRealms realms = RealmFixtures.realms(metrics, issuer.issuer());
+
+        // Same decorator chain as JwtDecoderConfig (without the verified-token cache)
+        decoder = new TimedJwtDecoder(RealmFixtures.decoder(realms), metrics);
+        precheck = new BearerTokenPrecheck(Set.of("RS256"), realms, 8192, false, Duration.ofSeconds(60),
+                10_000, Duration.ofMinutes(10), metrics);
+        rememberingDecoder = precheck.rememberRejections(decoder);
+
+        String valid = issuer.mint(JWSAlgorithm.RS256, ClaimFixtures.small(), Duration.ofHours(1));
+        bearer = switch (token) {
+            case "valid" -> valid;
+            case "garbage" -> "eyJhbGciOiJSUzI1NiJ9.bm90IGpzb24.c2lnbmF0dXJl%";
+            case "unknownAlg" -> base64("{\"alg\":\"HS256\",\"typ\":\"JWT\"}") + valid.substring(valid.indexOf('.'));
+            case "expired" -> issuer.mint(JWSAlgorithm.RS256, ClaimFixtures.small(), Duration.ofMinutes(-5));
+            case "forged" -> tamper(valid);
+            case "untrustedIssuer" -> untrustedIssuer.mint(JWSAlgorithm.RS256, ClaimFixtures.small(), Duration.ofHours(1));
+            default -> throw new IllegalArgumentException(token);
+        };
+        // Load keys; a forged token lands in the negative cache
+        decode(rememberingDecoder, valid);
+        decode(rememberingDecoder, bearer);
+    }
+
+    @TearDown
+    public void tearDown() {
+        issuer.close();
+        untrustedIssuer.close();
+    }
+
+    @Benchmark
+    public Object decoderOnly() {
+        return decode(decoder, bearer);
+    }
+
+    @Benchmark
+    public Object precheckThenDecoder() {
+        AuthFailureReason rejected = precheck.check(bearer);
+        return rejected != null ? rejected : decode(rememberingDecoder, bearer);
+    }
+
+    private static Object decode(JwtDecoder decoder, String token) {
+        try {
+            return decoder.decode(token);
+        } catch (JwtException e) {
+            return e;
+        }
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Flip one character in the middle of the signature
+     */
+    private static String tamper(String token) {
+        int i = token.lastIndexOf('.') + 20;
+        char c = token.charAt(i) == 'A' ? 'B' : 'A';
+        return token.substring(0, i) + c + token.substring(i + 1);
+    }
+}
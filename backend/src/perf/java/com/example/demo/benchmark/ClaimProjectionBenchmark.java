@@ -0,0 +1,91 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.GroupRoleMapper;
+import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.RoleDictionary;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalIssuer;
+import com.example.demo.support.MetricsFixtures;
+import com.example.demo.support.RealmFixtures;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT decode with NimbusJwtDecoder against ProjectingJwtDecoder, for a
+ * typical token and one with hundreds of groups (ClaimFixtures.large, about
+ * 16 KB). Both carry the other members of a Keycloak access token (typ, acr,
+ * allowed-origins, ...), which the projecting decoder leaves undecoded.
+ * decodeAndConvert adds the role mapping, as on every request.
+ *
+ * Run with -prof gc to compare gc.alloc.rate.norm (bytes per decode).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClaimProjectionBenchmark {
+
+    @Param({"nimbus", "projecting"})
+    public String decoder;
+
+    @Param({"small", "large"})
+    public String claims;
+
+    private LocalIssuer issuer;
+    private JwtDecoder jwtDecoder;
+    private KeycloakJwtAuthenticationConverter converter;
+    private String token;
+
+    @Setup
+    public void setup() {
+        issuer = LocalIssuer.start("bench");
+        AuthMetrics metrics = MetricsFixtures.authMetrics();
+        KeycloakRealms realms = RealmFixtures.realms(metrics, issuer.issuer());
+        jwtDecoder = "projecting".equals(decoder)
+                ? RealmFixtures.projectingDecoder(realms)
+                : RealmFixtures.decoder(realms);
+        converter = new KeycloakJwtAuthenticationConverter(
+                1000, realms, new RoleDictionary(), GroupRoleMapper.groupNames(), metrics);
+
+        Map<String, Object> claimSet = "large".equals(claims) ? ClaimFixtures.large() : ClaimFixtures.small();
+        claimSet.put("typ", "Bearer");
+        claimSet.put("azp", "react-client");
+        claimSet.put("session_state", UUID.randomUUID().toString());
+        claimSet.put("sid", UUID.randomUUID().toString());
+        claimSet.put("acr", "1");
+        claimSet.put("auth_time", System.currentTimeMillis() / 1000);
+        claimSet.put("allowed-origins", List.of("http://localhost:5173", "http://localhost:7371"));
+        claimSet.put("email_verified", true);
+        token = issuer.mint(JWSAlgorithm.RS256, claimSet, Duration.ofHours(1));
+        // Load keys before measuring
+        jwtDecoder.decode(token);
+    }
+
+    @TearDown
+    public void tearDown() {
+        issuer.close();
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return jwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken decodeAndConvert() {
+        return converter.convert(jwtDecoder.decode(token));
+    }
+}
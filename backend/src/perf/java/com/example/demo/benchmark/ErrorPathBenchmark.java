@@ -0,0 +1,113 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.GlobalExceptionHandler;
+import com.example.demo.security.AuditLog;
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.ErrorResponseWriter;
+import com.example.demo.security.KeycloakAccessDeniedHandler;
+import com.example.demo.security.KeycloakAuthenticationEntryPoint;
+import com.example.demo.security.KeycloakLoginRedirect;
+import com.example.demo.support.LoginFixtures;
+import com.example.demo.support.MetricsFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 401/403 response generation in KeycloakAuthenticationEntryPoint,
+ * KeycloakAccessDeniedHandler and GlobalExceptionHandler, reported both as
+ * throughput and as time per response.
+ * mockResponseBaseline is the cost of the MockHttpServletResponse alone;
+ * render* measure the ErrorResponseWriter body alone. The mock's output stream
+ * copies byte by byte, so its share of the commence and accessDenied results is
+ * larger than Tomcat's would be.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+
+    private KeycloakAuthenticationEntryPoint entryPoint;
+    private KeycloakAccessDeniedHandler accessDeniedHandler;
+    private GlobalExceptionHandler globalExceptionHandler;
+
+    private MockHttpServletRequest apiRequest;
+    private MockHttpServletRequest browserRequest;
+    private MockHttpServletRequest deniedRequest;
+
+    private final AuthenticationException authException =
+            new InsufficientAuthenticationException("Full authentication is required");
+    private final AccessDeniedException accessDeniedException = new AccessDeniedException("Access Denied");
+
+    @Setup
+    public void setup() {
+        KeycloakLoginRedirect loginRedirect = LoginFixtures.loginRedirect(LoginFixtures.loginState());
+        AuthMetrics metrics = MetricsFixtures.authMetrics();
+        entryPoint = new KeycloakAuthenticationEntryPoint(loginRedirect, metrics, (AuditLog) null);
+
+        accessDeniedHandler = new KeycloakAccessDeniedHandler(metrics, (AuditLog) null);
+        globalExceptionHandler = new GlobalExceptionHandler(metrics);
+
+        apiRequest = new MockHttpServletRequest("GET", "/api/hello/userinfo");
+        apiRequest.addHeader("Accept", "application/json");
+        apiRequest.setQueryString("view=full");
+
+        browserRequest = new MockHttpServletRequest("GET", "/api/hello/userinfo");
+        browserRequest.addHeader("Accept", "text/html,application/xhtml+xml");
+
+        deniedRequest = new MockHttpServletRequest("GET", "/api/hello/me");
+        deniedRequest.setUserPrincipal(new TestingAuthenticationToken("regular-user", null));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse mockResponseBaseline() {
+        return new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse commenceJson() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        entryPoint.commence(apiRequest, response, authException);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse commenceRedirect() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        entryPoint.commence(browserRequest, response, authException);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse accessDenied() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        accessDeniedHandler.handle(deniedRequest, response, accessDeniedException);
+        return response;
+    }
+
+    @Benchmark
+    public Object globalAccessDenied() {
+        return globalExceptionHandler.handleAccessDeniedException(accessDeniedException, deniedRequest);
+    }
+
+    @Benchmark
+    public byte[] renderUnauthorized() {
+        return ErrorResponseWriter.unauthorized(
+                "http://127.0.0.1:8180/realms/demo/protocol/openid-connect/auth?client_id=react-client");
+    }
+
+    @Benchmark
+    public byte[] renderAccessDenied() {
+        return ErrorResponseWriter.accessDenied("regular-user", "/api/hello/me");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.GroupRoleMapper;
+import com.example.demo.support.ClaimFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping every group of one token (ClaimFixtures.large, 400 groups) to roles
+ * with a growing number of group rules: each group checked against every
+ * rule (AntPathMatcher) against the compiled GroupRoleMapper trie, with and
+ * without its per-path cache.
+ *
+ * Half the rules name one team group, half a department subtree, so a
+ * group matches a few rules whatever their number.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupMappingBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    public int rules;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private List<GroupRoleMapper.Rule> ruleList;
+    private GroupRoleMapper cachedMapper;
+    private GroupRoleMapper uncachedMapper;
+    private List<String> groups;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ruleList = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            ruleList.add(i % 2 == 0
+                    ? new GroupRoleMapper.Rule("/org/department-" + (i % 17) + "/team-" + i, List.of("TEAM_" + i))
+                    : new GroupRoleMapper.Rule("/org/department-" + i + "/**", List.of("DEPT_" + i)));
+        }
+        cachedMapper = new GroupRoleMapper(ruleList, true, false, 10_000);
+        uncachedMapper = new GroupRoleMapper(ruleList, true, false, 0);
+        groups = (List<String>) ClaimFixtures.large().get("groups");
+    }
+
+    @Benchmark
+    public Set<String> ruleList() {
+        Set<String> authorities = new HashSet<>();
+        for (String group : groups) {
+            authorities.add("ROLE_" + group.substring(group.lastIndexOf('/') + 1).toUpperCase());
+            for (GroupRoleMapper.Rule rule : ruleList) {
+                if (pathMatcher.match(rule.pattern(), group)) {
+                    rule.roles().forEach(role -> authorities.add("ROLE_" + role));
+                }
+            }
+        }
+        return authorities;
+    }
+
+    @Benchmark
+    public Set<String> trie() {
+        return map(uncachedMapper);
+    }
+
+    @Benchmark
+    public Set<String> trieCached() {
+        return map(cachedMapper);
+    }
+
+    private Set<String> map(GroupRoleMapper mapper) {
+        Set<String> authorities = new HashSet<>();
+        for (String group : groups) {
+            authorities.addAll(mapper.authorities(group));
+        }
+        return authorities;
+    }
+}
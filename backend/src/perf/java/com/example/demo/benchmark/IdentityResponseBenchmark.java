@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.controller.HelloController;
+import com.example.demo.controller.IdentityResponseCache;
+import com.example.demo.downstream.AdminActionForwarder;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.userinfo.UserProfileCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HelloController.helloMe and getUserInfo for a token seen before: rendering
+ * and serializing the claims on every request (memoize=false, which still
+ * hashes the body for its ETag) vs. the per-token IdentityResponseCache.
+ * Message converter and network costs are excluded; with memoization the
+ * converter only copies the cached bytes, and a 304 skips even that.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdentityResponseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean memoize;
+
+    @Param({"small", "large"})
+    public String claims;
+
+    private HelloController controller;
+    private Jwt jwt;
+    private Authentication authentication;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        controller = new HelloController(
+                new IdentityResponseCache(objectMapper, memoize, 1000, Duration.ofMinutes(10)),
+                (AdminActionForwarder) null, (UserProfileCache) null);
+        Map<String, Object> claimSet = "large".equals(claims) ? ClaimFixtures.large() : ClaimFixtures.small();
+        Instant now = Instant.now();
+        jwt = Jwt.withTokenValue("bench")
+                .header("alg", "RS256")
+                .issuer("http://localhost:8180/realms/demo")
+                .jti(UUID.randomUUID().toString())
+                .subject("user-1")
+                .issuedAt(now)
+                .expiresAt(now.plus(Duration.ofHours(1)))
+                .claim("preferred_username", "alice")
+                .claim("email", "alice@example.com")
+                .claim("name", "Alice Example")
+                .claims(c -> c.putAll(claimSet))
+                .build();
+        authentication = new JwtAuthenticationToken(jwt,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER"), "alice");
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> me() {
+        return controller.helloMe(jwt);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> userinfo() {
+        return controller.getUserInfo(authentication, jwt);
+    }
+}
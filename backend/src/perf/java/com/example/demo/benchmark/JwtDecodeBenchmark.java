@@ -0,0 +1,85 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.CachingJwtDecoder;
+import com.example.demo.security.TimedJwtDecoder;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalIssuer;
+import com.example.demo.support.MetricsFixtures;
+import com.example.demo.support.RealmFixtures;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full JWT decode: parse, RS256/ES256 signature check and claim validation,
+ * with keys served by KeycloakJwksStore from a locally generated key set.
+ * decodeCached measures a repeat token answered by CachingJwtDecoder.
+ * With realms > 1 the token comes from the last of that many trusted realms,
+ * whose keys are only built by its first token; routing by iss should cost
+ * the same for any number of realms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtDecodeBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    @Param({"small", "large"})
+    public String claims;
+
+    @Param({"1", "8"})
+    public int realms;
+
+    private LocalIssuer issuer;
+    private JwtDecoder decoder;
+    private JwtDecoder cachingDecoder;
+    private String token;
+
+    @Setup
+    public void setup() {
+        issuer = LocalIssuer.start("bench");
+        AuthMetrics metrics = MetricsFixtures.authMetrics();
+
+        // Other realms are never contacted: none of their tokens is decoded
+        String[] issuers = new String[realms];
+        for (int i = 0; i < realms - 1; i++) {
+            issuers[i] = "http://127.0.0.1:1/realms/tenant-" + i;
+        }
+        issuers[realms - 1] = issuer.issuer();
+
+        // Same decorator chain as JwtDecoderConfig
+        decoder = new TimedJwtDecoder(RealmFixtures.decoder(RealmFixtures.realms(metrics, issuers)), metrics);
+        cachingDecoder = new CachingJwtDecoder(decoder, 10_000, Duration.ofMinutes(10));
+
+        token = issuer.mint(JWSAlgorithm.parse(algorithm),
+                "large".equals(claims) ? ClaimFixtures.large() : ClaimFixtures.small(),
+                Duration.ofHours(1));
+        // Load keys and populate the cache before measuring
+        cachingDecoder.decode(token);
+    }
+
+    @TearDown
+    public void tearDown() {
+        issuer.close();
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt decodeCached() {
+        return cachingDecoder.decode(token);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.limit.AdaptiveConcurrencyLimit;
+import com.example.demo.limit.ClientRateLimiter;
+import com.example.demo.limit.LoadShedder;
+import com.example.demo.limit.RequestPriority;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request cost of admission control with 4 threads competing:
+ * LoadShedder (CAS on the in-flight count, striped GCRA buckets) against a
+ * conventional Semaphore plus synchronized per-client token bucket map.
+ * Limits are set high enough that nothing is rejected; this measures overhead.
+ * Run on a multi-core machine for the contention numbers; on a single CPU
+ * the threads mostly measure preemption (use -t 1 there).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoadSheddingBenchmark {
+
+    private LoadShedder loadShedder;
+    private Semaphore semaphore;
+    private final Map<String, double[]> buckets = new HashMap<>();
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        Authentication authentication;
+        String name;
+
+        @Setup
+        public void setup() {
+            name = "client-" + NEXT.incrementAndGet();
+            Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject(name).build();
+            authentication = new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        loadShedder = new LoadShedder(
+                new AdaptiveConcurrencyLimit(1000, 10, 1000, Duration.ofSeconds(1), 0.9),
+                new ClientRateLimiter(1e9, 1_000_000, 4096),
+                List.of("/actuator/health/**", "/api/public/**"));
+        semaphore = new Semaphore(1000);
+    }
+
+    @Benchmark
+    public LoadShedder.Decision loadShedder(Client client) {
+        RequestPriority priority = loadShedder.priority("/api/hello/me", true);
+        if (loadShedder.tryAdmit(priority) != LoadShedder.Decision.ADMITTED) {
+            return LoadShedder.Decision.OVERLOADED;
+        }
+        long start = System.nanoTime();
+        LoadShedder.Decision decision = loadShedder.tryAcquireRate("/api/hello/me", client.authentication,
+                "10.0.0.1", start);
+        loadShedder.release(start);
+        return decision;
+    }
+
+    @Benchmark
+    public boolean semaphoreAndSynchronizedBuckets(Client client) {
+        if (!tryTakeToken(client.name) || !semaphore.tryAcquire()) {
+            return false;
+        }
+        semaphore.release();
+        return true;
+    }
+
+    private synchronized boolean tryTakeToken(String client) {
+        long now = System.nanoTime();
+        double[] bucket = buckets.computeIfAbsent(client, c -> new double[]{1_000_000, now});
+        bucket[0] = Math.min(1_000_000, bucket[0] + (now - bucket[1]) * 1e9 / 1e9);
+        bucket[1] = now;
+        if (bucket[0] < 1) {
+            return false;
+        }
+        bucket[0]--;
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.KeycloakLoginRedirect;
+import com.example.demo.security.LoginState;
+import com.example.demo.support.LoginFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login URL generation during a login storm (4 threads): the previous
+ * implementation (shared SecureRandom, authorize URL rebuilt per request)
+ * against KeycloakLoginRedirect with the precomputed prefix and signed state,
+ * plus the cost of checking a state in the callback.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoginRedirectBenchmark {
+
+    private static final String ORIGINAL_PATH = "/api/hello/userinfo?view=full";
+
+    private KeycloakLoginRedirect loginRedirect;
+    private LoginState loginState;
+    private String issuedState;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Setup
+    public void setup() {
+        loginState = LoginFixtures.loginState();
+        loginRedirect = LoginFixtures.loginRedirect(loginState);
+        issuedState = loginState.issue(ORIGINAL_PATH);
+    }
+
+    @Benchmark
+    public String previousBuildLoginUrl() {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String state = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String authorizationEndpoint = String.format("%s/realms/%s/protocol/openid-connect/auth",
+                "http://127.0.0.1:8180", "demo");
+        return UriComponentsBuilder.fromHttpUrl(authorizationEndpoint)
+                .queryParam("client_id", "react-client")
+                .queryParam("redirect_uri", "http://127.0.0.1:7371/callback")
+                .queryParam("response_type", "code")
+                .queryParam("scope", "openid profile email groups")
+                .queryParam("state", state)
+                .queryParam("original_url", URLEncoder.encode(ORIGINAL_PATH, StandardCharsets.UTF_8))
+                .build()
+                .toUriString();
+    }
+
+    @Benchmark
+    public String buildLoginUrl() {
+        return loginRedirect.buildLoginUrl("127.0.0.1", null, ORIGINAL_PATH);
+    }
+
+    @Benchmark
+    public LoginState.Verification verifyState() {
+        return loginState.verify(issuedState);
+    }
+}
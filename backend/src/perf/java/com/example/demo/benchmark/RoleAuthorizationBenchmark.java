@@ -0,0 +1,122 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.GroupRoleMapper;
+import com.example.demo.security.KeycloakJwtAuthenticationConverter;
+import com.example.demo.security.RequiresRole;
+import com.example.demo.security.RequiresRoleAuthorizationManager;
+import com.example.demo.security.RoleAuthorizationManager;
+import com.example.demo.security.RoleDictionary;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.MetricsFixtures;
+import com.example.demo.support.RealmFixtures;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Role checks for one authenticated Keycloak token with small and very large
+ * authority sets: Spring's string-scanning AuthorityAuthorizationManager and
+ * SpEL @PreAuthorize against the RoleSet bitset (RoleAuthorizationManager,
+ * @RequiresRole). *Missing checks roles the user does not have, which is the
+ * worst case for a scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleAuthorizationBenchmark {
+
+    @Param({"small", "large"})
+    public String claims;
+
+    private Supplier<Authentication> authentication;
+
+    private AuthorityAuthorizationManager<Object> authorityHasRole;
+    private AuthorityAuthorizationManager<Object> authorityHasAnyRoleMissing;
+    private RoleAuthorizationManager<Object> bitsetHasRole;
+    private RoleAuthorizationManager<Object> bitsetHasAnyRoleMissing;
+
+    private PreAuthorizeAuthorizationManager preAuthorize;
+    private RequiresRoleAuthorizationManager requiresRole;
+    private MethodInvocation preAuthorizeInvocation;
+    private MethodInvocation requiresRoleInvocation;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        // Rules are compiled at startup, before any token is converted
+        RoleDictionary roleDictionary = new RoleDictionary();
+        bitsetHasRole = roleDictionary.hasRole("ADMIN");
+        bitsetHasAnyRoleMissing = roleDictionary.hasAnyRole("AUDITOR", "SUPPORT");
+        authorityHasRole = AuthorityAuthorizationManager.hasRole("ADMIN");
+        authorityHasAnyRoleMissing = AuthorityAuthorizationManager.hasAnyRole("AUDITOR", "SUPPORT");
+
+        preAuthorize = new PreAuthorizeAuthorizationManager();
+        requiresRole = new RequiresRoleAuthorizationManager(roleDictionary);
+        Endpoints target = new Endpoints();
+        preAuthorizeInvocation = new SimpleMethodInvocation(target, Endpoints.class.getMethod("preAuthorize"));
+        requiresRoleInvocation = new SimpleMethodInvocation(target, Endpoints.class.getMethod("requiresRole"));
+
+        KeycloakJwtAuthenticationConverter converter = new KeycloakJwtAuthenticationConverter(
+                1000, RealmFixtures.realms(), roleDictionary, GroupRoleMapper.groupNames(), MetricsFixtures.authMetrics());
+        Map<String, Object> claimSet = "large".equals(claims) ? ClaimFixtures.large() : ClaimFixtures.small();
+        Authentication token = converter.convert(Jwt.withTokenValue("bench")
+                .header("alg", "RS256")
+                .subject("bench-user")
+                .claims(c -> c.putAll(claimSet))
+                .build());
+        authentication = () -> token;
+    }
+
+    @Benchmark
+    public AuthorizationDecision authorityHasRole() {
+        return authorityHasRole.check(authentication, null);
+    }
+
+    @Benchmark
+    public AuthorizationDecision authorityHasAnyRoleMissing() {
+        return authorityHasAnyRoleMissing.check(authentication, null);
+    }
+
+    @Benchmark
+    public AuthorizationDecision bitsetHasRole() {
+        return bitsetHasRole.check(authentication, null);
+    }
+
+    @Benchmark
+    public AuthorizationDecision bitsetHasAnyRoleMissing() {
+        return bitsetHasAnyRoleMissing.check(authentication, null);
+    }
+
+    @Benchmark
+    public AuthorizationDecision preAuthorizeSpel() {
+        return preAuthorize.check(authentication, preAuthorizeInvocation);
+    }
+
+    @Benchmark
+    public AuthorizationDecision requiresRoleAnnotation() {
+        return requiresRole.check(authentication, requiresRoleInvocation);
+    }
+
+    public static class Endpoints {
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public void preAuthorize() {
+        }
+
+        @RequiresRole("ADMIN")
+        public void requiresRole() {
+        }
+    }
+}
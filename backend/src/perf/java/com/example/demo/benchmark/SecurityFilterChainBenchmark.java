@@ -0,0 +1,86 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalApplication;
+import com.example.demo.support.LocalIssuer;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * One request through the full SecurityFilterChain and DispatcherServlet via MockMvc,
+ * against the real application context and a local issuer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityFilterChainBenchmark {
+
+    @Param({"false", "true"})
+    public boolean jwtCache;
+
+    private LocalIssuer issuer;
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String adminToken;
+    private String userToken;
+
+    @Setup
+    public void setup() {
+        issuer = LocalIssuer.start("bench");
+        context = LocalApplication.start(issuer, "app.security.jwt-cache.enabled=" + jwtCache);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        adminToken = issuer.mint(JWSAlgorithm.RS256, ClaimFixtures.small(), Duration.ofHours(1));
+        userToken = issuer.mint(JWSAlgorithm.RS256,
+                Map.of("preferred_username", "bench-user", "groups", List.of("/users")),
+                Duration.ofHours(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        issuer.close();
+    }
+
+    @Benchmark
+    public MvcResult authenticatedHello() throws Exception {
+        return mockMvc.perform(get("/api/hello")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult forbiddenHello() throws Exception {
+        return mockMvc.perform(get("/api/hello/me")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult anonymousApi() throws Exception {
+        return mockMvc.perform(get("/api/hello")
+                .header(HttpHeaders.ACCEPT, "application/json")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult publicHealth() throws Exception {
+        return mockMvc.perform(get("/api/public/health")).andReturn();
+    }
+}
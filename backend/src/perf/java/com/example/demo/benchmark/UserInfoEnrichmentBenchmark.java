@@ -0,0 +1,124 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.controller.HelloController;
+import com.example.demo.controller.IdentityResponseCache;
+import com.example.demo.downstream.AdminActionForwarder;
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalIssuer;
+import com.example.demo.userinfo.UserInfoClient;
+import com.example.demo.userinfo.UserProfileCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HelloController.getUserInfo for 256 users under 4 threads, against a local
+ * userinfo endpoint answering in about 20 ms (LocalIssuer):
+ * - tokenOnly: enrichment disabled
+ * - enriched: UserProfileCache, warmed up, with profiles going stale every
+ *   2s so background refreshes run during the measurement
+ * - fetchPerRequest: a userinfo request on every call, as without a cache
+ *
+ * Identity responses are memoized in all three, as by default. The userinfo
+ * requests of each trial are printed at the end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UserInfoEnrichmentBenchmark {
+
+    private static final int USERS = 256;
+
+    private LocalIssuer issuer;
+    private ExecutorService executor;
+    private UserInfoClient userInfoClient;
+    private HelloController tokenOnly;
+    private HelloController enriched;
+    private Jwt[] jwts;
+    private Authentication[] authentications;
+
+    @Setup
+    public void setup() {
+        issuer = LocalIssuer.start("demo");
+        issuer.setLatency(Duration.ofMillis(20));
+        executor = Executors.newFixedThreadPool(8);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        userInfoClient = new UserInfoClient(new RestTemplate(), "/protocol/openid-connect/userinfo");
+        UserProfileCache profiles = new UserProfileCache(userInfoClient, executor, Set.of(), 10_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(2), Duration.ofMillis(300));
+        tokenOnly = new HelloController(new IdentityResponseCache(objectMapper, true, 10_000, Duration.ofMinutes(10)),
+                (AdminActionForwarder) null, null);
+        enriched = new HelloController(new IdentityResponseCache(objectMapper, true, 10_000, Duration.ofMinutes(10)),
+                (AdminActionForwarder) null, profiles);
+
+        jwts = new Jwt[USERS];
+        authentications = new Authentication[USERS];
+        Instant now = Instant.now();
+        for (int i = 0; i < USERS; i++) {
+            Map<String, Object> claims = new HashMap<>(ClaimFixtures.small());
+            claims.put("sub", "user-" + i);
+            claims.put("preferred_username", "user" + i);
+            String token = issuer.mint(JWSAlgorithm.RS256, claims, Duration.ofHours(1));
+            jwts[i] = Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .issuer(issuer.issuer())
+                    .jti("jti-" + i)
+                    .subject("user-" + i)
+                    .issuedAt(now)
+                    .expiresAt(now.plus(Duration.ofHours(1)))
+                    .claims(c -> c.putAll(claims))
+                    .build();
+            authentications[i] = new JwtAuthenticationToken(jwts[i],
+                    AuthorityUtils.createAuthorityList("ROLE_ADMIN"), "user" + i);
+            tokenOnly.getUserInfo(authentications[i], jwts[i]);
+            enriched.getUserInfo(authentications[i], jwts[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nUserinfo requests: %d%n", issuer.userInfoRequests());
+        executor.shutdownNow();
+        issuer.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> tokenOnly() {
+        int user = ThreadLocalRandom.current().nextInt(USERS);
+        return tokenOnly.getUserInfo(authentications[user], jwts[user]);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> enriched() {
+        int user = ThreadLocalRandom.current().nextInt(USERS);
+        return enriched.getUserInfo(authentications[user], jwts[user]);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> fetchPerRequest() {
+        int user = ThreadLocalRandom.current().nextInt(USERS);
+        userInfoClient.fetch(issuer.issuer(), jwts[user].getTokenValue());
+        return tokenOnly.getUserInfo(authentications[user], jwts[user]);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalApplication;
+import com.example.demo.support.LocalIssuer;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * End-to-end load test of the API, with no Keycloak needed.
+ *
+ * Boots the application against a LocalIssuer and drives every endpoint of
+ * HelloController, plus the rejection paths, with a closed-loop client:
+ * - 200: GET /api/hello, /api/hello/me, /api/hello/userinfo, POST /api/hello/action
+ *   with an ADMIN token (the /api/hello/** path rule requires ADMIN)
+ * - 200: /api/hello/me with a token signed after the issuer rotated its keys
+ * - 401: no token, an expired token, a token signed by an untrusted issuer
+ * - 403: a valid token without the ADMIN role
+ * - 200: POST /api/batch of the three GETs above (servlet stack only), to
+ *   compare with three separate requests
+ *
+ * Prints throughput and latency percentiles per scenario, writes them to
+ * target/loadtest/endpoints.csv, and lists scenarios that got a status
+ * other than the expected one:
+ *
+ *   mvn -Pperf test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.demo.loadtest.EndpointLoadTest
+ *
+ * Tuning (system properties): loadtest.concurrency (64), loadtest.duration (PT10S),
+ * loadtest.warmup (PT3S), loadtest.algorithm (RS256 or ES256),
+ * loadtest.scenarios (comma-separated names, default all),
+ * loadtest.profiles (Spring profiles, e.g. reactive),
+ * loadtest.jwks-latency (delay of the issuer's JWKS responses, default PT0S)
+ */
+public final class EndpointLoadTest {
+
+    private record Scenario(String name, String method, String path, String token, String body, int expectedStatus) {
+    }
+
+    /** What the frontend loads on one page: /api/hello, /api/hello/me and /api/hello/userinfo */
+    private static final String BATCH_BODY = "{\"requests\":["
+            + "{\"id\":\"hello\",\"method\":\"GET\",\"path\":\"/api/hello\"},"
+            + "{\"id\":\"me\",\"method\":\"GET\",\"path\":\"/api/hello/me\"},"
+            + "{\"id\":\"userinfo\",\"method\":\"GET\",\"path\":\"/api/hello/userinfo\"}]}";
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 64);
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT10S"));
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT3S"));
+        JWSAlgorithm algorithm = JWSAlgorithm.parse(System.getProperty("loadtest.algorithm", "RS256"));
+        String selected = System.getProperty("loadtest.scenarios", "");
+        String profiles = System.getProperty("loadtest.profiles", "");
+        Duration jwksLatency = Duration.parse(System.getProperty("loadtest.jwks-latency", "PT0S"));
+
+        List<LoadResult> results = new ArrayList<>();
+        List<String> unexpected = new ArrayList<>();
+        LoadGenerator generator = new LoadGenerator();
+
+        try (LocalIssuer issuer = LocalIssuer.start("loadtest");
+             LocalIssuer untrustedIssuer = LocalIssuer.start("untrusted")) {
+            issuer.setLatency(jwksLatency);
+
+            String admin = issuer.mint(algorithm, ClaimFixtures.user("load-admin")
+                    .realmRoles("user")
+                    .clientRoles("react-client", "viewer")
+                    .groups("/ADMIN")
+                    .build(), Duration.ofHours(1));
+            String user = issuer.mint(algorithm, ClaimFixtures.user("load-user")
+                    .realmRoles("user")
+                    .groups("/users")
+                    .build(), Duration.ofHours(1));
+            String expired = issuer.mint(algorithm, ClaimFixtures.user("load-admin")
+                    .groups("/ADMIN")
+                    .build(), Duration.ofMinutes(-5));
+            String untrusted = untrustedIssuer.mint(algorithm, ClaimFixtures.user("load-admin")
+                    .groups("/ADMIN")
+                    .build(), Duration.ofHours(1));
+
+            List<Scenario> scenarios = new ArrayList<>(List.of(
+                    new Scenario("hello", "GET", "/api/hello", admin, null, 200),
+                    new Scenario("me", "GET", "/api/hello/me", admin, null, 200),
+                    new Scenario("userinfo", "GET", "/api/hello/userinfo", admin, null, 200),
+                    new Scenario("action", "POST", "/api/hello/action", admin, "{\"action\":\"load-test\"}", 200),
+                    new Scenario("no-token", "GET", "/api/hello/me", null, null, 401),
+                    new Scenario("expired", "GET", "/api/hello/me", expired, null, 401),
+                    new Scenario("untrusted-issuer", "GET", "/api/hello/me", untrusted, null, 401),
+                    new Scenario("forbidden", "GET", "/api/hello/me", user, null, 403)));
+            if (!profiles.contains("reactive")) {
+                scenarios.add(new Scenario("batch", "POST", "/api/batch", admin, BATCH_BODY, 200));
+            }
+            List<String> names = selected.isBlank() ? List.of() : Arrays.asList(selected.split(","));
+
+            List<String> properties = new ArrayList<>();
+            if (!profiles.isBlank()) {
+                properties.add("spring.profiles.active=" + profiles);
+            }
+            ConfigurableApplicationContext context = LocalApplication.start(issuer, properties.toArray(String[]::new));
+            try {
+                // Signed with a kid the application has not seen: it must fetch the new key set once
+                issuer.rotateKeys();
+                String rotated = issuer.mint(algorithm, ClaimFixtures.user("load-admin")
+                        .groups("/ADMIN")
+                        .build(), Duration.ofHours(1));
+                scenarios.add(new Scenario("rotated-key", "GET", "/api/hello/me", rotated, null, 200));
+
+                int port = LocalApplication.port(context);
+                for (Scenario scenario : scenarios) {
+                    if (!names.isEmpty() && !names.contains(scenario.name())) {
+                        continue;
+                    }
+                    HttpRequest request = request(port, scenario);
+                    generator.run("warmup", request, concurrency, warmup);
+                    LoadResult result = generator.run(
+                            scenario.name() + " " + scenario.method() + " " + scenario.path(),
+                            request, concurrency, duration);
+                    results.add(result);
+                    if (result.errors() > 0 || !result.statuses().keySet().equals(Set.of(scenario.expectedStatus()))) {
+                        unexpected.add(scenario.name() + ": expected " + scenario.expectedStatus()
+                                + ", got " + result.statuses() + " / " + result.errors() + " errors");
+                    }
+                }
+            } finally {
+                context.close();
+            }
+        }
+
+        System.out.println();
+        System.out.println(LoadResult.header());
+        results.forEach(result -> System.out.println(result.format()));
+        if (!unexpected.isEmpty()) {
+            System.out.println();
+            System.out.println("Unexpected responses:");
+            unexpected.forEach(line -> System.out.println("  " + line));
+        }
+        writeCsv(results, Path.of("target", "loadtest", "endpoints.csv"));
+    }
+
+    private static HttpRequest request(int port, Scenario scenario) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + scenario.path()))
+                .header("Accept", "application/json");
+        if (scenario.token() != null) {
+            builder.header("Authorization", "Bearer " + scenario.token());
+        }
+        if (scenario.body() != null) {
+            builder.header("Content-Type", "application/json")
+                    .method(scenario.method(), HttpRequest.BodyPublishers.ofString(scenario.body()));
+        } else {
+            builder.method(scenario.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    private static void writeCsv(List<LoadResult> results, Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(LoadResult.csvHeader());
+        results.forEach(result -> lines.add(result.csv()));
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+        System.out.println();
+        System.out.println("Results written to " + file.toAbsolutePath());
+    }
+}
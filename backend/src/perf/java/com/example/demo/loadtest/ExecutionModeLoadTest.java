@@ -0,0 +1,75 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalApplication;
+import com.example.demo.support.LocalIssuer;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the platform-thread and virtual-thread execution modes.
+ *
+ * Boots the application once per mode against a LocalIssuer and drives
+ * /api/hello and /api/hello/userinfo with a closed-loop client, reporting
+ * throughput and latency percentiles side by side. Virtual threads need Java 21:
+ *
+ *   mvn -Pperf,java21 test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.demo.loadtest.ExecutionModeLoadTest
+ *
+ * Tuning (system properties): loadtest.concurrency (256), loadtest.duration (PT20S),
+ * loadtest.warmup (PT5S), loadtest.tomcat-threads (200)
+ */
+public final class ExecutionModeLoadTest {
+
+    private static final List<String> ENDPOINTS = List.of("/api/hello", "/api/hello/userinfo");
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 256);
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT20S"));
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+        String tomcatThreads = System.getProperty("loadtest.tomcat-threads", "200");
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("WARNING: Java " + Runtime.version().feature()
+                    + " has no virtual threads; both runs will use platform threads");
+        }
+
+        List<LoadResult> results = new ArrayList<>();
+        LoadGenerator generator = new LoadGenerator();
+
+        try (LocalIssuer issuer = LocalIssuer.start("loadtest")) {
+            String token = issuer.mint(JWSAlgorithm.RS256, ClaimFixtures.small(), Duration.ofHours(1));
+
+            for (boolean virtual : new boolean[]{false, true}) {
+                String mode = virtual ? "virtual" : "platform";
+                ConfigurableApplicationContext context = LocalApplication.start(issuer,
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "server.tomcat.threads.max=" + tomcatThreads);
+                try {
+                    int port = LocalApplication.port(context);
+                    for (String endpoint : ENDPOINTS) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + endpoint))
+                                .header("Authorization", "Bearer " + token)
+                                .header("Accept", "application/json")
+                                .GET()
+                                .build();
+                        generator.run("warmup", request, concurrency, warmup);
+                        results.add(generator.run(mode + " GET " + endpoint, request, concurrency, duration));
+                    }
+                } finally {
+                    context.close();
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(LoadResult.header());
+        results.forEach(result -> System.out.println(result.format()));
+    }
+}
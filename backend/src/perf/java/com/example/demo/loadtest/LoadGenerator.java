@@ -0,0 +1,105 @@
+package com.example.demo.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop HTTP load generator: each worker sends the next request as soon
+ * as the previous one completes, recording per-request latency and status.
+ */
+public final class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * Drive one request shape for the given duration and summarise the results
+     */
+    public LoadResult run(String name, HttpRequest request, int concurrency, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<WorkerStats>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> drive(request, deadline)));
+            }
+
+            WorkerStats total = new WorkerStats();
+            for (Future<WorkerStats> future : futures) {
+                total.merge(future.get());
+            }
+            return total.toResult(name, concurrency, duration);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private WorkerStats drive(HttpRequest request, long deadline) {
+        WorkerStats stats = new WorkerStats();
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                stats.record(System.nanoTime() - start, response.statusCode());
+            } catch (Exception e) {
+                stats.errors++;
+            }
+        }
+        return stats;
+    }
+
+    private static final class WorkerStats {
+
+        private long[] latencies = new long[4096];
+        private int count;
+        private long errors;
+        private final Map<Integer, Long> statuses = new TreeMap<>();
+
+        void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status, 1L, Long::sum);
+        }
+
+        void merge(WorkerStats other) {
+            long[] merged = Arrays.copyOf(latencies, count + other.count);
+            System.arraycopy(other.latencies, 0, merged, count, other.count);
+            latencies = merged;
+            count += other.count;
+            errors += other.errors;
+            other.statuses.forEach((status, n) -> statuses.merge(status, n, Long::sum));
+        }
+
+        LoadResult toResult(String name, int concurrency, Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new LoadResult(name, concurrency, count, errors, statuses,
+                    count / (duration.toNanos() / 1e9),
+                    percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.loadtest;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput and latency percentiles of one load run (latencies in nanoseconds)
+ */
+public record LoadResult(String name,
+                         int concurrency,
+                         long requests,
+                         long errors,
+                         Map<Integer, Long> statuses,
+                         double throughputPerSecond,
+                         long p50,
+                         long p90,
+                         long p99,
+                         long p999,
+                         long max) {
+
+    public static String header() {
+        return String.format("%-40s %6s %10s %10s %9s %9s %9s %9s %9s  %s",
+                "scenario", "conc", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms",
+                "status counts / errors");
+    }
+
+    public String format() {
+        return String.format("%-40s %6d %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s / %d",
+                name, concurrency, requests, throughputPerSecond,
+                millis(p50), millis(p90), millis(p99), millis(p999), millis(max),
+                statuses, errors);
+    }
+
+    public static String csvHeader() {
+        return "scenario,concurrency,requests,errors,throughput_per_second,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+    }
+
+    public String csv() {
+        return String.format(Locale.ROOT, "\"%s\",%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                name, concurrency, requests, errors, throughputPerSecond,
+                millis(p50), millis(p90), millis(p99), millis(p999), millis(max));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.support.ClaimFixtures;
+import com.example.demo.support.LocalApplication;
+import com.example.demo.security.KeycloakJwksStore;
+import com.example.demo.support.LocalIssuer;
+import com.nimbusds.jose.JWSAlgorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Time to first authenticated request and resident memory of a freshly
+ * started instance, per startup mode, as when a new pod is scaled out.
+ *
+ * Each run launches the packaged application as a new process against a
+ * LocalIssuer, with the issuer's keys already in the JWKS snapshot file
+ * (app.security.jwks.cache-file), and polls GET /api/hello/me with an ADMIN
+ * token until it answers 200. Reported per mode, median of startup.runs runs:
+ * - time from launching the process to that first 200
+ * - resident set size (VmRSS of the process tree) right after it; Linux only
+ * - OIDC discovery and JWKS requests the issuer saw until then; expected 0
+ *
+ * Modes, each run if the build supports it:
+ * - jvm: java -jar, the baseline
+ * - cds: the jar unpacked onto the class path, with an AppCDS archive
+ *   recorded by a training run that exits after the context refresh
+ * - aot, aot-cds: the same with Spring AOT (jar built with -Paot)
+ * - crac: restore from a checkpoint taken after the context refresh
+ *   (jar built with -Pcrac, CRaC-enabled JDK)
+ * - native: the GraalVM executable (mvn -Pnative native:compile)
+ *
+ *   mvn -Paot package -DskipTests
+ *   mvn -Pperf test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.demo.loadtest.StartupProbe
+ *
+ * Options (system properties): startup.modes (comma-separated, default all),
+ * startup.runs (5), startup.timeout (PT60S), startup.java-options (added to
+ * every java command), startup.jar (target/keycloak-resource-server-1.0.0.jar),
+ * startup.native (target/keycloak-resource-server).
+ * Results are written to target/loadtest/startup.csv, process output to
+ * target/startup/{mode}-{run}.log.
+ */
+public final class StartupProbe {
+
+    private static final List<String> MODES = List.of("jvm", "cds", "aot", "aot-cds", "crac", "native");
+
+    private record Sample(long millis, long rssKb, long discoveryRequests, long jwksRequests) {
+    }
+
+    private final String java = ProcessHandle.current().info().command().orElse("java");
+    private final List<String> javaOptions;
+    private final Path jar;
+    private final Path nativeExecutable;
+    private final Path work = Path.of("target", "startup");
+    private final Duration timeout;
+    private final LocalIssuer issuer;
+    private final String token;
+    private final Path snapshot;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    /** Unpacked class path and main class, for the CDS modes */
+    private String classPath;
+    private String mainClass;
+    /** Port the CRaC checkpoint was taken with; restores listen on it */
+    private int checkpointPort;
+
+    private StartupProbe(LocalIssuer issuer) throws IOException {
+        String options = System.getProperty("startup.java-options", "");
+        this.javaOptions = options.isBlank() ? List.of() : Arrays.asList(options.trim().split("\\s+"));
+        this.jar = Path.of(System.getProperty("startup.jar", "target/keycloak-resource-server-1.0.0.jar"));
+        this.nativeExecutable = Path.of(System.getProperty("startup.native", "target/keycloak-resource-server"));
+        this.timeout = Duration.parse(System.getProperty("startup.timeout", "PT60S"));
+        this.issuer = issuer;
+        this.token = issuer.mint(JWSAlgorithm.RS256, ClaimFixtures.user("startup-admin")
+                .realmRoles("user")
+                .groups("/ADMIN")
+                .build(), Duration.ofHours(1));
+
+        Files.createDirectories(work);
+        this.snapshot = work.resolve("jwks-snapshot.json").toAbsolutePath();
+        writeSnapshot();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        String selected = System.getProperty("startup.modes", "");
+        List<String> modes = selected.isBlank() ? MODES : Arrays.asList(selected.split(","));
+
+        List<String> rows = new ArrayList<>();
+        List<String> csv = new ArrayList<>(List.of(
+                "mode,runs,median_ms,min_ms,max_ms,rss_mb,discovery_requests,jwks_requests"));
+        List<String> skipped = new ArrayList<>();
+        long baselineMillis = -1;
+
+        try (LocalIssuer issuer = LocalIssuer.start("startup")) {
+            StartupProbe probe = new StartupProbe(issuer);
+            for (String mode : modes) {
+                String unavailable = probe.prepare(mode);
+                if (unavailable != null) {
+                    skipped.add(mode + ": " + unavailable);
+                    continue;
+                }
+                List<Sample> samples = new ArrayList<>();
+                for (int run = 1; run <= runs; run++) {
+                    Sample sample = probe.launch(mode, run);
+                    System.out.printf("%-8s run %d: first 200 after %d ms, RSS %d MB%n",
+                            mode, run, sample.millis(), sample.rssKb() / 1024);
+                    samples.add(sample);
+                }
+
+                long[] millis = samples.stream().mapToLong(Sample::millis).sorted().toArray();
+                long[] rss = samples.stream().mapToLong(Sample::rssKb).sorted().toArray();
+                long median = millis[millis.length / 2];
+                long rssMb = rss[rss.length / 2] / 1024;
+                long discovery = samples.stream().mapToLong(Sample::discoveryRequests).max().orElse(0);
+                long jwks = samples.stream().mapToLong(Sample::jwksRequests).max().orElse(0);
+                if ("jvm".equals(mode)) {
+                    baselineMillis = median;
+                }
+                String versusBaseline = baselineMillis > 0 && !"jvm".equals(mode)
+                        ? String.format("%+.0f%%", 100.0 * (median - baselineMillis) / baselineMillis)
+                        : "";
+                rows.add(String.format("%-8s %5d %12d %8d %8d %9d %10d %6d %10s", mode, runs, median,
+                        millis[0], millis[millis.length - 1], rssMb, discovery, jwks, versusBaseline));
+                csv.add(String.join(",", mode, String.valueOf(runs), String.valueOf(median),
+                        String.valueOf(millis[0]), String.valueOf(millis[millis.length - 1]),
+                        String.valueOf(rssMb), String.valueOf(discovery), String.valueOf(jwks)));
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %5s %12s %8s %8s %9s %10s %6s %10s%n", "mode", "runs", "median (ms)",
+                "min", "max", "RSS (MB)", "discovery", "jwks", "vs jvm");
+        rows.forEach(System.out::println);
+        if (!skipped.isEmpty()) {
+            System.out.println();
+            System.out.println("Skipped:");
+            skipped.forEach(line -> System.out.println("  " + line));
+        }
+        Path file = Path.of("target", "loadtest", "startup.csv");
+        Files.createDirectories(file.getParent());
+        Files.write(file, csv);
+        System.out.println();
+        System.out.println("Results written to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Build whatever mode needs before its runs; returns why it cannot run, or null
+     */
+    private String prepare(String mode) throws IOException, InterruptedException {
+        if ("native".equals(mode)) {
+            return Files.isExecutable(nativeExecutable) ? null
+                    : "no executable at " + nativeExecutable + " (mvn -Pnative native:compile)";
+        }
+        if (!Files.isRegularFile(jar)) {
+            return "no jar at " + jar + " (mvn package)";
+        }
+        boolean aot = mode.startsWith("aot");
+        if (aot && !jarContains("BOOT-INF/classes/" + mainClassPath() + "__ApplicationContextInitializer.class")) {
+            return "jar is not AOT-processed (mvn -Paot package)";
+        }
+        if (mode.endsWith("cds")) {
+            unpack();
+            Path archive = cdsArchive(mode);
+            Files.deleteIfExists(archive);
+            // Training run: load what startup loads, then exit and dump the archive
+            List<String> command = javaCommand("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh");
+            if (aot) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            command.addAll(List.of("-cp", classPath, mainClass));
+            command.addAll(LocalApplication.arguments(issuer, applicationProperties(freePort())));
+            runToCompletion(command, work.resolve(mode + "-training.log"));
+            return Files.isRegularFile(archive) ? null : "training run wrote no CDS archive, see " + mode + "-training.log";
+        }
+        if ("crac".equals(mode)) {
+            if (!jarContains("BOOT-INF/lib/crac-")) {
+                return "jar has no org.crac (mvn -Pcrac package)";
+            }
+            Path checkpoint = work.resolve("crac").toAbsolutePath();
+            if (runToCompletion(javaCommand("-XX:CRaCCheckpointTo=" + checkpoint, "-version"),
+                    work.resolve("crac-check.log")) != 0) {
+                return "this JDK does not support CRaC";
+            }
+            deleteRecursively(checkpoint);
+            checkpointPort = freePort();
+            List<String> command = javaCommand("-XX:CRaCCheckpointTo=" + checkpoint,
+                    "-Dspring.context.checkpoint=onRefresh", "-jar", jar.toString());
+            command.addAll(LocalApplication.arguments(issuer, applicationProperties(checkpointPort)));
+            runToCompletion(command, work.resolve("crac-checkpoint.log"));
+            return Files.isDirectory(checkpoint) ? null : "no checkpoint written, see crac-checkpoint.log";
+        }
+        return null;
+    }
+
+    private Sample launch(String mode, int run) throws IOException, InterruptedException {
+        int port = "crac".equals(mode) ? checkpointPort : freePort();
+        List<String> command = command(mode, port);
+        // A pod restarting within the refresh interval: the snapshot is current
+        writeSnapshot();
+
+        long discoveryBefore = issuer.discoveryRequests();
+        long jwksBefore = issuer.jwksRequests();
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve(mode + "-" + run + ".log").toFile());
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            awaitAuthenticatedResponse(process, port, mode + "-" + run + ".log");
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Sample(millis, residentSetKb(process.toHandle()),
+                    issuer.discoveryRequests() - discoveryBefore, issuer.jwksRequests() - jwksBefore);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private List<String> command(String mode, int port) {
+        List<String> command = switch (mode) {
+            case "jvm" -> javaCommand("-jar", jar.toString());
+            case "aot" -> javaCommand("-Dspring.aot.enabled=true", "-jar", jar.toString());
+            case "cds" -> javaCommand("-XX:SharedArchiveFile=" + cdsArchive(mode), "-cp", classPath, mainClass);
+            case "aot-cds" -> javaCommand("-XX:SharedArchiveFile=" + cdsArchive(mode), "-Dspring.aot.enabled=true",
+                    "-cp", classPath, mainClass);
+            // The checkpointed process already has its arguments
+            case "crac" -> javaCommand("-XX:CRaCRestoreFrom=" + work.resolve("crac").toAbsolutePath());
+            case "native" -> new ArrayList<>(List.of(nativeExecutable.toString()));
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected one of " + MODES);
+        };
+        if (!"crac".equals(mode)) {
+            command.addAll(LocalApplication.arguments(issuer, applicationProperties(port)));
+        }
+        return command;
+    }
+
+    /** The issuer's keys as the application saves them, fetched just now */
+    private void writeSnapshot() throws IOException {
+        URI jwkSetUri = URI.create(issuer.issuer() + "/protocol/openid-connect/certs");
+        Files.writeString(snapshot, KeycloakJwksStore.cacheFileContent(jwkSetUri, issuer.publicKeys(), Instant.now()));
+    }
+
+    private String[] applicationProperties(int port) {
+        return new String[]{"server.port=" + port, "app.security.jwks.cache-file=" + snapshot};
+    }
+
+    private List<String> javaCommand(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(javaOptions);
+        command.addAll(Arrays.asList(arguments));
+        return command;
+    }
+
+    private void awaitAuthenticatedResponse(Process process, int port, String log)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/hello/me"))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int lastStatus = -1;
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Process exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                lastStatus = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (lastStatus == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("No 200 within " + timeout + " (last status " + lastStatus + "), see " + log);
+    }
+
+    /**
+     * VmRSS of the process and its descendants (a CRaC restore runs under its launcher), in KB
+     */
+    private static long residentSetKb(ProcessHandle process) {
+        return Stream.concat(Stream.of(process), process.descendants())
+                .mapToLong(handle -> {
+                    try {
+                        return Files.readAllLines(Path.of("/proc", String.valueOf(handle.pid()), "status")).stream()
+                                .filter(line -> line.startsWith("VmRSS:"))
+                                .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                                .findFirst()
+                                .orElse(0);
+                    } catch (IOException e) {
+                        return 0;
+                    }
+                })
+                .sum();
+    }
+
+    private int runToCompletion(List<String> command, Path log) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            stop(process);
+            throw new IllegalStateException("Did not finish within " + timeout + ": " + command.get(0) + ", see " + log);
+        }
+        return process.exitValue();
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            process.waitFor();
+        }
+    }
+
+    private Path cdsArchive(String mode) {
+        return work.resolve(mode + ".jsa").toAbsolutePath();
+    }
+
+    private String mainClassPath() throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return jarFile.getManifest().getMainAttributes().getValue("Start-Class").replace('.', '/');
+        }
+    }
+
+    private boolean jarContains(String prefix) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return jarFile.stream().anyMatch(entry -> entry.getName().startsWith(prefix));
+        }
+    }
+
+    /**
+     * Unpack the Spring Boot jar into app.jar (BOOT-INF/classes) and lib/:
+     * CDS archives classes loaded from plain jars on the class path only
+     */
+    private void unpack() throws IOException {
+        if (classPath != null) {
+            return;
+        }
+        Path exploded = work.resolve("exploded").toAbsolutePath();
+        deleteRecursively(exploded);
+        Path lib = Files.createDirectories(exploded.resolve("lib"));
+        Path appJar = exploded.resolve("app.jar");
+        List<String> entries = new ArrayList<>(List.of(appJar.toString()));
+
+        try (JarFile jarFile = new JarFile(jar.toFile());
+             JarOutputStream app = new JarOutputStream(Files.newOutputStream(appJar))) {
+            mainClass = jarFile.getManifest().getMainAttributes().getValue("Start-Class");
+            for (JarEntry entry : jarFile.stream().toList()) {
+                String name = entry.getName();
+                if (name.startsWith("BOOT-INF/classes/") && name.length() > "BOOT-INF/classes/".length()) {
+                    app.putNextEntry(new JarEntry(name.substring("BOOT-INF/classes/".length())));
+                    try (InputStream in = jarFile.getInputStream(entry)) {
+                        in.transferTo(app);
+                    }
+                    app.closeEntry();
+                } else if (name.startsWith("BOOT-INF/lib/") && name.endsWith(".jar")) {
+                    Path target = lib.resolve(name.substring("BOOT-INF/lib/".length()));
+                    try (InputStream in = jarFile.getInputStream(entry);
+                         OutputStream out = Files.newOutputStream(target)) {
+                        in.transferTo(out);
+                    }
+                    entries.add(target.toString());
+                }
+            }
+        }
+        classPath = String.join(File.pathSeparator, entries);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keycloak-shaped role claims for benchmarks and load tests.
+ */
+public final class ClaimFixtures {
+
+    private ClaimFixtures() {
+    }
+
+    /**
+     * Typical admin user: a handful of realm roles, one client, two groups
+     */
+    public static Map<String, Object> small() {
+        return keycloakClaims(3, 1, 3, 2);
+    }
+
+    /**
+     * User in hundreds of groups with many realm and client roles (8-16 KB tokens)
+     */
+    public static Map<String, Object> large() {
+        return keycloakClaims(100, 20, 10, 400);
+    }
+
+    /**
+     * Claims of one user with exactly the given roles and groups, e.g.
+     * user("alice").realmRoles("user").clientRoles("react-client", "viewer").groups("/ADMIN").build()
+     */
+    public static UserClaims user(String username) {
+        return new UserClaims(username);
+    }
+
+    public static Map<String, Object> keycloakClaims(int realmRoles, int clients, int rolesPerClient, int groups) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("preferred_username", "bench-admin");
+        claims.put("email", "bench-admin@example.com");
+        claims.put("name", "Bench Admin");
+        claims.put("scope", "openid profile email groups");
+
+        List<String> realm = new ArrayList<>();
+        realm.add("admin");
+        for (int i = 1; i < realmRoles; i++) {
+            realm.add("realm-role-" + i);
+        }
+        claims.put("realm_access", Map.of("roles", realm));
+
+        Map<String, Object> resourceAccess = new LinkedHashMap<>();
+        for (int c = 0; c < clients; c++) {
+            List<String> roles = new ArrayList<>();
+            for (int r = 0; r < rolesPerClient; r++) {
+                roles.add("client-" + c + "-role-" + r);
+            }
+            resourceAccess.put("client-" + c, Map.of("roles", roles));
+        }
+        claims.put("resource_access", resourceAccess);
+
+        List<String> groupList = new ArrayList<>();
+        groupList.add("/ADMIN");
+        for (int g = 1; g < groups; g++) {
+            groupList.add("/org/department-" + (g % 17) + "/team-" + g);
+        }
+        claims.put("groups", groupList);
+
+        return claims;
+    }
+
+    /**
+     * Builder for the realm_access, resource_access and groups claims of one user
+     */
+    public static final class UserClaims {
+
+        private final String username;
+        private final List<String> realmRoles = new ArrayList<>();
+        private final Map<String, List<String>> clientRoles = new LinkedHashMap<>();
+        private final List<String> groups = new ArrayList<>();
+
+        private UserClaims(String username) {
+            this.username = username;
+        }
+
+        public UserClaims realmRoles(String... roles) {
+            realmRoles.addAll(Arrays.asList(roles));
+            return this;
+        }
+
+        public UserClaims clientRoles(String clientId, String... roles) {
+            clientRoles.computeIfAbsent(clientId, id -> new ArrayList<>()).addAll(Arrays.asList(roles));
+            return this;
+        }
+
+        public UserClaims groups(String... paths) {
+            groups.addAll(Arrays.asList(paths));
+            return this;
+        }
+
+        public Map<String, Object> build() {
+            Map<String, Object> claims = new LinkedHashMap<>();
+            claims.put("preferred_username", username);
+            claims.put("email", username + "@example.com");
+            claims.put("scope", "openid profile email groups");
+            claims.put("realm_access", Map.of("roles", List.copyOf(realmRoles)));
+
+            Map<String, Object> resourceAccess = new LinkedHashMap<>();
+            clientRoles.forEach((clientId, roles) -> resourceAccess.put(clientId, Map.of("roles", List.copyOf(roles))));
+            claims.put("resource_access", resourceAccess);
+
+            claims.put("groups", List.copyOf(groups));
+            return claims;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.support;
+
+import com.example.demo.KeycloakResourceServerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Boots the real application on a random port, wired to a LocalIssuer,
+ * with request logging turned down so it does not dominate measurements.
+ * Load generators send all requests as a few users from one address, so
+ * the per-client rate limit is lifted; adaptive load shedding stays on.
+ */
+public final class LocalApplication {
+
+    private LocalApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(LocalIssuer issuer, String... extraProperties) {
+        return new SpringApplicationBuilder(KeycloakResourceServerApplication.class)
+                .run(arguments(issuer, extraProperties).toArray(String[]::new));
+    }
+
+    /**
+     * Command line arguments wiring the application to issuer; they override
+     * application.yml. An extra property replaces a default with the same name.
+     */
+    public static List<String> arguments(LocalIssuer issuer, String... extraProperties) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        Stream.concat(Stream.of(
+                "server.port=0",
+                "logging.level.root=WARN",
+                "logging.level.com.example.demo=WARN",
+                "logging.level.org.springframework.security=WARN",
+                "logging.level.org.springframework.security.oauth2=WARN",
+                "spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuer(),
+                "spring.security.oauth2.resourceserver.jwt.jws-algorithms=RS256,ES256",
+                "keycloak.auth-server-url=" + issuer.baseUrl(),
+                "keycloak.realm=" + issuer.realm(),
+                "app.security.jwks.cache-file=",
+                "app.load-shedding.rate.per-client=1000000",
+                "app.load-shedding.rate.burst=1000000"), Stream.of(extraProperties))
+                .forEach(property -> {
+                    int equals = property.indexOf('=');
+                    properties.put(property.substring(0, equals), property.substring(equals + 1));
+                });
+
+        List<String> arguments = new ArrayList<>();
+        properties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+        return arguments;
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+}
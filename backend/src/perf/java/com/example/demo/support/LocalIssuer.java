@@ -0,0 +1,357 @@
+package com.example.demo.support;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a Keycloak realm.
+ * Generates RSA and EC signing keys locally and mints signed access tokens.
+ * Serves, like Keycloak:
+ * - OIDC discovery at {issuer}/.well-known/openid-configuration
+ * - the JWKS at {issuer}/protocol/openid-connect/certs
+ * - a token endpoint at {issuer}/protocol/openid-connect/token answering
+ *   client_credentials and token-exchange grants without checking the
+ *   client, with tokens living tokenLifetime
+ * - a userinfo endpoint at {issuer}/protocol/openid-connect/userinfo
+ *   returning fixed profile attributes for the bearer token's subject
+ *
+ * rotateKeys() starts signing with new keys while the previous ones stay
+ * published until retireKeys(), and setLatency() delays every response,
+ * to exercise key rollover and a slow Keycloak.
+ */
+public class LocalIssuer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String realm;
+    private final String baseUrl;
+    private final String issuer;
+    private final AtomicLong jwksRequests = new AtomicLong();
+    private final AtomicLong discoveryRequests = new AtomicLong();
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong userInfoRequests = new AtomicLong();
+
+    private volatile SigningKeys keys;
+    private volatile List<JWK> retiredKeys = List.of();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration tokenLifetime = Duration.ofMinutes(5);
+
+    private LocalIssuer(String realm) throws IOException {
+        this.realm = realm;
+        this.keys = SigningKeys.generate();
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        String realmPath = "/realms/" + realm;
+        server.createContext(realmPath + "/.well-known/openid-configuration", this::serveDiscovery);
+        server.createContext(realmPath + "/protocol/openid-connect/certs", this::serveJwks);
+        server.createContext(realmPath + "/protocol/openid-connect/token", this::serveToken);
+        server.createContext(realmPath + "/protocol/openid-connect/userinfo", this::serveUserInfo);
+        // Injected latency must not hold up other requests
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-issuer-" + realm);
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+
+        this.baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        this.issuer = baseUrl + realmPath;
+    }
+
+    public static LocalIssuer start(String realm) {
+        try {
+            return new LocalIssuer(realm);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start local issuer", e);
+        }
+    }
+
+    public String issuer() {
+        return issuer;
+    }
+
+    public String realm() {
+        return realm;
+    }
+
+    /**
+     * Server URL without /realms/..., as in keycloak.auth-server-url
+     */
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Current signing keys, then retired keys that are still published
+     */
+    public JWKSet publicKeys() {
+        SigningKeys current = keys;
+        List<JWK> published = new ArrayList<>();
+        published.add(current.rsa().toPublicJWK());
+        published.add(current.ec().toPublicJWK());
+        published.addAll(retiredKeys);
+        return new JWKSet(published);
+    }
+
+    /**
+     * Sign new tokens with fresh keys; the previous keys stay in the JWKS
+     * (as Keycloak keeps passive keys) until retireKeys()
+     */
+    public void rotateKeys() {
+        SigningKeys previous = keys;
+        List<JWK> retired = new ArrayList<>(retiredKeys);
+        retired.add(previous.rsa().toPublicJWK());
+        retired.add(previous.ec().toPublicJWK());
+        retiredKeys = List.copyOf(retired);
+        keys = SigningKeys.generate();
+    }
+
+    /**
+     * Stop publishing keys replaced by rotateKeys(); tokens they signed no longer verify
+     */
+    public void retireKeys() {
+        retiredKeys = List.of();
+    }
+
+    /**
+     * Delay every response by latency (ZERO to turn off)
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Lifetime (expires_in) of tokens issued by the token endpoint from now on
+     */
+    public void setTokenLifetime(Duration tokenLifetime) {
+        this.tokenLifetime = tokenLifetime;
+    }
+
+    /**
+     * Token endpoint requests served so far
+     */
+    public long tokenRequests() {
+        return tokenRequests.get();
+    }
+
+    /**
+     * Userinfo requests served so far
+     */
+    public long userInfoRequests() {
+        return userInfoRequests.get();
+    }
+
+    /**
+     * JWKS requests served so far
+     */
+    public long jwksRequests() {
+        return jwksRequests.get();
+    }
+
+    /**
+     * OIDC discovery (.well-known/openid-configuration) requests served so far
+     */
+    public long discoveryRequests() {
+        return discoveryRequests.get();
+    }
+
+    /**
+     * Mint a token signed with RS256 or ES256.
+     * Standard claims (iss, sub, iat, exp, jti) are filled in; the given claims
+     * (see ClaimFixtures.user) are added on top and may override them.
+     */
+    public String mint(JWSAlgorithm algorithm, Map<String, Object> claims, Duration lifetime) {
+        Instant now = Instant.now();
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(UUID.randomUUID().toString())
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(lifetime)));
+        claims.forEach(builder::claim);
+
+        SigningKeys signingKeys = keys;
+        try {
+            JWSSigner signer;
+            String keyId;
+            if (JWSAlgorithm.ES256.equals(algorithm)) {
+                signer = new ECDSASigner(signingKeys.ec());
+                keyId = signingKeys.ec().getKeyID();
+            } else if (JWSAlgorithm.RS256.equals(algorithm)) {
+                signer = new RSASSASigner(signingKeys.rsa());
+                keyId = signingKeys.rsa().getKeyID();
+            } else {
+                throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+            }
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(algorithm).keyID(keyId).build(), builder.build());
+            jwt.sign(signer);
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not sign token", e);
+        }
+    }
+
+    private void serveDiscovery(HttpExchange exchange) throws IOException {
+        discoveryRequests.incrementAndGet();
+        String endpoints = issuer + "/protocol/openid-connect";
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("issuer", issuer);
+        configuration.put("authorization_endpoint", endpoints + "/auth");
+        configuration.put("token_endpoint", endpoints + "/token");
+        configuration.put("userinfo_endpoint", endpoints + "/userinfo");
+        configuration.put("end_session_endpoint", endpoints + "/logout");
+        configuration.put("jwks_uri", endpoints + "/certs");
+        configuration.put("response_types_supported", List.of("code"));
+        configuration.put("subject_types_supported", List.of("public"));
+        configuration.put("id_token_signing_alg_values_supported", List.of("RS256", "ES256"));
+        respond(exchange, JSONObjectUtils.toJSONString(configuration));
+    }
+
+    private void serveJwks(HttpExchange exchange) throws IOException {
+        jwksRequests.incrementAndGet();
+        respond(exchange, publicKeys().toString());
+    }
+
+    private void serveToken(HttpExchange exchange) throws IOException {
+        tokenRequests.incrementAndGet();
+        Map<String, String> form = new LinkedHashMap<>();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        for (String pair : body.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("azp", "resource-server");
+        if (form.containsKey("audience")) {
+            claims.put("aud", form.get("audience"));
+        }
+        if (form.containsKey("scope")) {
+            claims.put("scope", form.get("scope"));
+        }
+        switch (String.valueOf(form.get("grant_type"))) {
+            case "client_credentials" -> claims.put("sub", "service-account-resource-server");
+            case "urn:ietf:params:oauth:grant-type:token-exchange" -> {
+                try {
+                    claims.put("sub", SignedJWT.parse(form.getOrDefault("subject_token", ""))
+                            .getJWTClaimsSet().getSubject());
+                } catch (ParseException e) {
+                    respond(exchange, 400, "{\"error\":\"invalid_request\"}");
+                    return;
+                }
+            }
+            default -> {
+                respond(exchange, 400, "{\"error\":\"unsupported_grant_type\"}");
+                return;
+            }
+        }
+        Duration lifetime = tokenLifetime;
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("access_token", mint(JWSAlgorithm.RS256, claims, lifetime));
+        token.put("expires_in", lifetime.toSeconds());
+        token.put("token_type", "Bearer");
+        respond(exchange, JSONObjectUtils.toJSONString(token));
+    }
+
+    private void serveUserInfo(HttpExchange exchange) throws IOException {
+        userInfoRequests.incrementAndGet();
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String subject;
+        try {
+            subject = authorization != null && authorization.startsWith("Bearer ")
+                    ? SignedJWT.parse(authorization.substring(7)).getJWTClaimsSet().getSubject()
+                    : null;
+        } catch (ParseException e) {
+            subject = null;
+        }
+        if (subject == null) {
+            respond(exchange, 401, "{\"error\":\"invalid_token\"}");
+            return;
+        }
+        Map<String, Object> userInfo = new LinkedHashMap<>();
+        userInfo.put("sub", subject);
+        userInfo.put("locale", "en");
+        userInfo.put("department", "Engineering");
+        userInfo.put("phone_number", "+1 555 0100");
+        userInfo.put("picture", "https://example.com/avatars/" + subject + ".png");
+        respond(exchange, JSONObjectUtils.toJSONString(userInfo));
+    }
+
+    private void respond(HttpExchange exchange, String json) throws IOException {
+        respond(exchange, 200, json);
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        Duration delay = latency;
+        if (!delay.isZero()) {
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private record SigningKeys(RSAKey rsa, ECKey ec) {
+
+        static SigningKeys generate() {
+            try {
+                return new SigningKeys(
+                        new RSAKeyGenerator(2048).keyID("rsa-" + UUID.randomUUID()).generate(),
+                        new ECKeyGenerator(Curve.P_256).keyID("ec-" + UUID.randomUUID()).generate());
+            } catch (JOSEException e) {
+                throw new IllegalStateException("Could not generate signing keys", e);
+            }
+        }
+    }
+}
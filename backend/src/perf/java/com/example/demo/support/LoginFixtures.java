@@ -0,0 +1,25 @@
+package com.example.demo.support;
+
+import com.example.demo.security.KeycloakLoginRedirect;
+import com.example.demo.security.LoginState;
+
+import java.time.Duration;
+
+/**
+ * Login redirect wired as in application.yml, with a fixed state secret.
+ */
+public final class LoginFixtures {
+
+    private LoginFixtures() {
+    }
+
+    public static LoginState loginState() {
+        return new LoginState("benchmark-login-state-secret-0123456789", Duration.ofMinutes(10),
+                "http://127.0.0.1:8080");
+    }
+
+    public static KeycloakLoginRedirect loginRedirect(LoginState loginState) {
+        return new KeycloakLoginRedirect(loginState, RealmFixtures.realms(), "http://127.0.0.1:8180",
+                "http://127.0.0.1:7371/callback", true);
+    }
+}
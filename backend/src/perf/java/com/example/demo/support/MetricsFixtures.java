@@ -0,0 +1,22 @@
+package com.example.demo.support;
+
+import com.example.demo.security.AuthMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.util.List;
+
+/**
+ * AuthMetrics backed by a Prometheus registry, as in production, so benchmarks
+ * include the real recording cost.
+ */
+public final class MetricsFixtures {
+
+    private MetricsFixtures() {
+    }
+
+    public static AuthMetrics authMetrics() {
+        return new AuthMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                List.of("/api/admin", "/api/hello", "/api/public", "/api"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.support;
+
+import com.example.demo.security.AuthMetrics;
+import com.example.demo.security.KeycloakJwksStore;
+import com.example.demo.security.KeycloakRealms;
+import com.example.demo.security.ProjectingJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trusted realms and the realm-routing decoders (Nimbus and claim-projecting),
+ * wired as in JwtDecoderConfig (without key cache files).
+ */
+public final class RealmFixtures {
+
+    /** Default realm of application.yml, served by a Keycloak that is never contacted */
+    public static final String ISSUER = "http://127.0.0.1:8180/realms/demo";
+
+    private RealmFixtures() {
+    }
+
+    public static KeycloakRealms realms() {
+        return realms(MetricsFixtures.authMetrics(), ISSUER);
+    }
+
+    /**
+     * Realms for the given issuers; the first one is the default realm.
+     * Realm names are the last path segment of the issuer.
+     */
+    public static KeycloakRealms realms(AuthMetrics metrics, String... issuers) {
+        List<KeycloakRealms.Realm> others = new ArrayList<>();
+        for (int i = 1; i < issuers.length; i++) {
+            others.add(realm(issuers[i]));
+        }
+        return new KeycloakRealms(realm(issuers[0]), others, Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256),
+                realm -> new KeycloakJwksStore(realm.jwkSetUri(), null,
+                        Duration.ofHours(1), Duration.ofMinutes(1), Duration.ofSeconds(10),
+                        Duration.ofSeconds(2), Duration.ofSeconds(5), metrics));
+    }
+
+    public static NimbusJwtDecoder decoder(KeycloakRealms realms) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(realms.keySelector());
+        jwtProcessor.setJWTClaimsSetVerifier((claimsSet, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(validator(realms));
+        return decoder;
+    }
+
+    public static ProjectingJwtDecoder projectingDecoder(KeycloakRealms realms) {
+        ProjectingJwtDecoder decoder = new ProjectingJwtDecoder(realms.keySelector());
+        decoder.setJwtValidator(validator(realms));
+        return decoder;
+    }
+
+    private static OAuth2TokenValidator<Jwt> validator(KeycloakRealms realms) {
+        return new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefault(),
+                new JwtClaimValidator<>(JwtClaimNames.ISS,
+                        iss -> iss != null && realms.forIssuer(iss.toString()) != null));
+    }
+
+    private static KeycloakRealms.Realm realm(String issuer) {
+        return new KeycloakRealms.Realm(issuer.substring(issuer.lastIndexOf('/') + 1), issuer,
+                URI.create(issuer + "/protocol/openid-connect/certs"), null, "react-client",
+                List.of(), KeycloakRealms.RoleMapping.ALL);
+    }
+}
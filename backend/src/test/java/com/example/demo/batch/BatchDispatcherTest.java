@@ -0,0 +1,26 @@
+package com.example.demo.batch;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sub-requests skip the firewall, so paths it would reject (or that only
+ * reach a rule once decoded) are refused before any rule is checked.
+ */
+class BatchDispatcherTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/h%65llo", "/api/hello;x=1", "/api//hello", "/api/./hello", "/api/x/../hello",
+            "/api/hello\\me", "/api/batch", "/api/batch/x", "/other", "/api/hello/me?x=%zz", "/api/hello/me?%"})
+    void unsafePathsAreRejected(String path) {
+        assertThat(BatchDispatcher.invalidReason(new BatchRequest.Part("1", "GET", path, null))).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/hello", "/api/hello/me?view=full", "/api/hello/me?q=a%20b", "/api/public/info"})
+    void plainPathsAreAccepted(String path) {
+        assertThat(BatchDispatcher.invalidReason(new BatchRequest.Part("1", "GET", path, null))).isNull();
+    }
+}
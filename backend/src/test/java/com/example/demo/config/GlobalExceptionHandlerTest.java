@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import com.example.demo.downstream.DownstreamTokenException;
+import com.example.demo.security.AuthMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Downstream token failures name internal endpoints; callers only get a fixed 502.
+ */
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler =
+            new GlobalExceptionHandler(new AuthMetrics(new SimpleMeterRegistry(), List.of("/api")));
+
+    @Test
+    void downstreamTokenFailureDetailIsNotReturned() {
+        ResponseEntity<byte[]> response = handler.handleDownstreamTokenException(new DownstreamTokenException(
+                "Token endpoint http://keycloak.internal:8080/realms/demo/protocol/openid-connect/token"
+                        + " unavailable: Connection refused"));
+
+        String body = new String(response.getBody(), StandardCharsets.UTF_8);
+        assertThat(response.getStatusCode().value()).isEqualTo(502);
+        assertThat(body).contains("Downstream service unavailable").doesNotContain("keycloak.internal", "refused");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rules must see the path the dispatcher routes on, however the request
+ * spells it: a USER must not reach the ADMIN-only /api/hello handler
+ * through an encoded, matrix-parameter or trailing-slash variant.
+ */
+class AuthorizationRuleTableTest {
+
+    private final Authentication user = new TestingAuthenticationToken("user", "n/a", "ROLE_USER");
+    private final Authentication admin = new TestingAuthenticationToken("admin", "n/a", "ROLE_ADMIN");
+
+    private AuthorizationRuleTable table;
+
+    @BeforeEach
+    void setUp() {
+        RoleDictionary roles = new RoleDictionary();
+        table = new AuthorizationRuleTable();
+        table.permitAll("/api/public/**");
+        table.access("/api/hello/**", roles.hasAnyRole("ADMIN"));
+        table.authenticated("/api/**");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/hello",
+            "/api/h%65llo",
+            "/api/%68%65%6C%6C%6F",
+            "/api/hello;jsessionid=x",
+            "/api;x=1/hello",
+            "/api/hello/",
+            "/api//hello",
+            "/api/hello/me;v=1/",
+            "/api/hello%2Fme",
+            "/api/h%zzello"})
+    void adminPathVariantsAreDeniedToUsers(String uri) {
+        assertThat(servlet(uri, user)).isFalse();
+        assertThat(reactive(uri, user)).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/hello", "/api/h%65llo", "/api/hello;x=1", "/api/hello/"})
+    void adminPathVariantsAreGrantedToAdmins(String uri) {
+        assertThat(servlet(uri, admin)).isTrue();
+        assertThat(reactive(uri, admin)).isTrue();
+    }
+
+    @Test
+    void encodedPublicPathIsStillPublic() {
+        assertThat(servlet("/api/p%75blic/info", null)).isTrue();
+        assertThat(reactive("/api/p%75blic/info", null)).isTrue();
+    }
+
+    @Test
+    void contextPathIsRemovedBeforeMatching() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/h%65llo");
+        request.setContextPath("/app");
+        AuthorizationDecision decision = table.check(() -> user, new RequestAuthorizationContext(request));
+        assertThat(decision.isGranted()).isFalse();
+    }
+
+    @Test
+    void canonicalPathsAreNotCopied() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello/me");
+        assertThat(RequestPaths.of(request)).isSameAs(request.getRequestURI());
+        assertThat(RequestPaths.of(new MockHttpServletRequest("GET", "/"))).isEqualTo("/");
+    }
+
+    private boolean servlet(String uri, Authentication authentication) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        return table.check(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+    }
+
+    private boolean reactive(String uri, Authentication authentication) {
+        MockServerHttpRequest request;
+        try {
+            request = MockServerHttpRequest.method(HttpMethod.GET, URI.create(uri)).build();
+        } catch (IllegalArgumentException e) {
+            // Not a URI the server would accept in the first place
+            return false;
+        }
+        AuthorizationContext context = new AuthorizationContext(MockServerWebExchange.from(request));
+        Mono<Authentication> principal = authentication != null ? Mono.just(authentication) : Mono.empty();
+        return table.reactive().check(principal, context).map(AuthorizationDecision::isGranted).block();
+    }
+}
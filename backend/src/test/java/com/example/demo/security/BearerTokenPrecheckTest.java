@@ -0,0 +1,61 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Only decoder failures a token can never recover from are cached.
+ */
+class BearerTokenPrecheckTest {
+
+    private final BearerTokenPrecheck precheck = new BearerTokenPrecheck(Set.of("RS256"), null, 8192, false,
+            Duration.ofSeconds(30), 100, Duration.ofMinutes(10),
+            new AuthMetrics(new SimpleMeterRegistry(), List.of("/api")));
+
+    @Test
+    void tokenUsedBeforeNbfIsNotRemembered() {
+        String token = token("early");
+        decodeFailing(token, "Jwt used before 2026-01-01T00:00:00Z");
+
+        assertThat(precheck.check(token)).isNull();
+        assertThat(precheck.negativeCacheSize()).isZero();
+    }
+
+    @Test
+    void expiredTokenIsRemembered() {
+        String token = token("late");
+        decodeFailing(token, "Jwt expired at 2026-01-01T00:00:00Z");
+
+        assertThat(precheck.check(token)).isEqualTo(AuthFailureReason.EXPIRED);
+    }
+
+    private void decodeFailing(String token, String description) {
+        JwtDecoder decoder = precheck.rememberRejections(value -> {
+            throw new JwtValidationException(description, List.of(new OAuth2Error("invalid_token", description, null)));
+        });
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+    }
+
+    /**
+     * A JWT-shaped token without exp or iss, so only the negative cache can reject it
+     */
+    private static String token(String subject) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + '.'
+                + encoder.encodeToString(("{\"sub\":\"" + subject + "\"}").getBytes(StandardCharsets.UTF_8)) + '.'
+                + encoder.encodeToString(new byte[32]);
+    }
+}
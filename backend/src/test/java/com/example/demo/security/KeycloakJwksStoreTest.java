@@ -0,0 +1,102 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keys in the cache file are only trusted for the JWKS URI they were fetched
+ * from, and only for as long as a fetch at the recorded time would be.
+ */
+class KeycloakJwksStoreTest {
+
+    /** Nothing listens here, so every fetch fails at once */
+    private static final URI JWK_SET_URI = URI.create("http://127.0.0.1:9/realms/demo/protocol/openid-connect/certs");
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(5);
+
+    private static JWKSet keys;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        keys = new JWKSet(key.toPublicJWK());
+    }
+
+    @Test
+    void fileForThisUriIsLoaded() throws Exception {
+        Path file = write(KeycloakJwksStore.cacheFileContent(JWK_SET_URI, keys, Instant.now()));
+
+        assertThat(store(file, Duration.ofMinutes(1)).currentKeys().getKeyByKeyId("k1")).isNotNull();
+    }
+
+    @Test
+    void fileForAnotherUriIsIgnored() throws Exception {
+        URI other = URI.create("http://127.0.0.1:9/realms/other/protocol/openid-connect/certs");
+        Path file = write(KeycloakJwksStore.cacheFileContent(other, keys, Instant.now()));
+
+        assertThat(store(file, Duration.ofMinutes(1)).currentKeys()).isNull();
+    }
+
+    @Test
+    void plainJwkSetIsIgnored() throws Exception {
+        Path file = write(keys.toString(true));
+
+        assertThat(store(file, Duration.ofMinutes(1)).currentKeys()).isNull();
+    }
+
+    @Test
+    void recentFileIsNotRefreshedYet() throws Exception {
+        Path file = write(KeycloakJwksStore.cacheFileContent(JWK_SET_URI, keys, Instant.now()));
+
+        store(file, Duration.ofMinutes(1)).refreshIfDue();
+
+        assertThat(fetchAttempts()).isZero();
+    }
+
+    @Test
+    void futureFetchTimeDoesNotPostponeRefresh() throws Exception {
+        Instant future = Instant.now().plus(Duration.ofDays(365));
+        Path file = write(KeycloakJwksStore.cacheFileContent(JWK_SET_URI, keys, future));
+        Files.setLastModifiedTime(file, FileTime.from(future));
+
+        // Refresh ahead by the whole interval: due at once, unless the fetch time is taken as given
+        KeycloakJwksStore store = store(file, REFRESH_INTERVAL);
+        store.refreshIfDue();
+
+        assertThat(fetchAttempts()).isEqualTo(1);
+        assertThat(store.currentKeys().getKeyByKeyId("k1")).isNotNull();
+    }
+
+    private KeycloakJwksStore store(Path file, Duration refreshAhead) {
+        return new KeycloakJwksStore(JWK_SET_URI, file, REFRESH_INTERVAL, refreshAhead, Duration.ofSeconds(10),
+                Duration.ofSeconds(1), Duration.ofSeconds(1), new AuthMetrics(registry, List.of("/api")));
+    }
+
+    private long fetchAttempts() {
+        return registry.get("auth.jwks.fetch").timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    private Path write(String content) throws Exception {
+        return Files.writeString(directory.resolve("keycloak-jwks.json"), content);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The URL a login state sends the user back to is on the configured public
+ * base URL, whatever the request it was issued for looked like.
+ */
+class LoginStateTest {
+
+    private static final String SECRET = "test-login-state-secret-0123456789abcdef";
+
+    private final LoginState loginState = new LoginState(SECRET, Duration.ofMinutes(10), "https://api.example.com/");
+
+    @Test
+    void originalUrlIsTheSignedPathOnThePublicBaseUrl() {
+        LoginState.Verification verification = loginState.verify(loginState.issue("/api/hello?view=full"));
+        assertThat(verification.isValid()).isTrue();
+        assertThat(verification.originalUrl()).isEqualTo("https://api.example.com/api/hello?view=full");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"https://evil.example/x", "//evil.example/x", "/\\evil.example/x", "evil", "/a b"})
+    void pathsLeadingOffTheApplicationFallBackToRoot(String originalPath) {
+        LoginState.Verification verification = loginState.verify(loginState.issue(originalPath));
+        assertThat(verification.originalUrl()).isEqualTo("https://api.example.com/");
+    }
+
+    @Test
+    void withoutPublicBaseUrlTheUrlIsRelative() {
+        LoginState relative = new LoginState(SECRET, Duration.ofMinutes(10), "");
+        assertThat(relative.verify(relative.issue("/api/hello")).originalUrl()).isEqualTo("/api/hello");
+    }
+}
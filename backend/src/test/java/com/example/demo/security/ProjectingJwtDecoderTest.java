@@ -0,0 +1,266 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTClaimsSetAwareJWSKeySelector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * ProjectingJwtDecoder must accept exactly the tokens NimbusJwtDecoder
+ * accepts, with the same claims, and reject the others with the same
+ * exception type and AuthFailureReason.
+ */
+class ProjectingJwtDecoderTest {
+
+    private static final String KID = "realm-key";
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static RSAKey realmKey;
+    private static RSAKey otherKey;
+    private static JwtDecoder nimbus;
+    private static JwtDecoder projecting;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        realmKey = new RSAKeyGenerator(2048).keyID(KID).generate();
+        otherKey = new RSAKeyGenerator(2048).keyID("other-key").generate();
+        JWSVerificationKeySelector<SecurityContext> keys = new JWSVerificationKeySelector<>(JWSAlgorithm.RS256,
+                new ImmutableJWKSet<>(new JWKSet(realmKey.toPublicJWK())));
+        JWTClaimsSetAwareJWSKeySelector<SecurityContext> keySelector =
+                (header, claims, context) -> keys.selectJWSKeys(header, context);
+
+        // As JwtDecoderConfig builds both
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(keySelector);
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        nimbus = new NimbusJwtDecoder(jwtProcessor);
+        projecting = new ProjectingJwtDecoder(keySelector);
+    }
+
+    @Test
+    void claimsMatchNimbus() throws Exception {
+        String token = signed(header(null), payload("""
+                "sub":"u1","aud":"api","azp":"web","scope":"openid profile",
+                "realm_access":{"roles":["user","admin"]},
+                "resource_access":{"api":{"roles":["reader"]}},
+                "groups":["/ADMIN","/USER"],"email_verified":true,"preferred_username":"alice",
+                "tenant":{"id":42,"ratio":0.5,"tags":["a","b"],"nested":{"on":false,"none":null}},
+                "big":12345678901234,"huge":123456789012345678901234567890,"note":"caf\\u00e9 \\"quoted\\"",
+                "list":[1,"two",3.5,true,null,{"k":"v"}]"""), realmKey);
+
+        Jwt expected = nimbus.decode(token);
+        Jwt actual = projecting.decode(token);
+
+        assertThat(actual.getTokenValue()).isEqualTo(expected.getTokenValue());
+        assertThat(actual.getHeaders()).isEqualTo(expected.getHeaders());
+        assertThat(actual.getClaims()).isEqualTo(expected.getClaims());
+        assertThat(actual.getIssuedAt()).isEqualTo(expected.getIssuedAt());
+        assertThat(actual.getExpiresAt()).isEqualTo(expected.getExpiresAt());
+        assertThat(actual.getAudience()).isEqualTo(expected.getAudience());
+    }
+
+    @Test
+    void deferredClaimsDecodeLikeNimbus() throws Exception {
+        String token = signed(header(null), payload("""
+                "sub":"u1","tenant":{"id":42,"tags":["a","b"]},"big":12345678901234,"ratio":0.25,
+                "flag":false,"label":"x\\ny","items":[{"a":1},[2,3]]"""), realmKey);
+
+        Jwt expected = nimbus.decode(token);
+        Jwt actual = projecting.decode(token);
+
+        // Read one at a time, each decoded on first access
+        for (String claim : new String[]{"tenant", "big", "ratio", "flag", "label", "items"}) {
+            Object value = actual.getClaim(claim);
+            assertThat(value).as(claim).isEqualTo(expected.getClaim(claim));
+            assertThat(value).as(claim).isInstanceOf(kind(expected.getClaim(claim)));
+            assertThat(actual.<Object>getClaim(claim)).as(claim).isSameAs(value);
+        }
+        assertThat(actual.getClaims()).isEqualTo(expected.getClaims());
+    }
+
+    @Test
+    void nullClaimsAreDroppedLikeNimbus() throws Exception {
+        String token = signed(header(null), payload("\"sub\":\"u1\",\"email\":null,\"custom\":null"), realmKey);
+
+        Jwt expected = nimbus.decode(token);
+        Jwt actual = projecting.decode(token);
+
+        assertThat(actual.getClaims()).isEqualTo(expected.getClaims());
+        assertThat(actual.hasClaim("email")).isEqualTo(expected.hasClaim("email"));
+        assertThat(actual.hasClaim("custom")).isEqualTo(expected.hasClaim("custom"));
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() throws Exception {
+        String token = signed(header(null), payload("\"sub\":\"u1\""), realmKey);
+        int signature = token.lastIndexOf('.') + 1;
+        int flipped = signature + (token.length() - signature) / 2;
+        char replacement = token.charAt(flipped) == 'A' ? 'B' : 'A';
+
+        assertRejectedAlike(token.substring(0, flipped) + replacement + token.substring(flipped + 1),
+                AuthFailureReason.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() throws Exception {
+        String token = signed(header(null), payload("\"sub\":\"u1\""), realmKey);
+        String[] parts = token.split("\\.");
+
+        assertRejectedAlike(parts[0] + '.' + encode(payload("\"sub\":\"admin\"")) + '.' + parts[2],
+                AuthFailureReason.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void unsecuredTokenIsRejected() {
+        String unsecured = encode("{\"alg\":\"none\"}") + '.' + encode(payload("\"sub\":\"u1\""));
+
+        assertRejectedAlike(unsecured + '.', AuthFailureReason.INVALID_TOKEN);
+        assertRejectedAlike(unsecured + ".c2ln", AuthFailureReason.MALFORMED);
+    }
+
+    @Test
+    void hmacSignedWithRealmPublicKeyIsRejected() throws Exception {
+        String header = "{\"alg\":\"HS256\",\"kid\":\"" + KID + "\"}";
+        String signingInput = encode(header) + '.' + encode(payload("\"sub\":\"admin\""));
+        JWSSigner signer = new MACSigner(realmKey.toRSAPublicKey().getEncoded());
+        String signature = signer.sign(new JWSHeader(JWSAlgorithm.HS256),
+                signingInput.getBytes(StandardCharsets.US_ASCII)).toString();
+
+        assertRejectedAlike(signingInput + '.' + signature, AuthFailureReason.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void unknownKidIsRejected() throws Exception {
+        String header = "{\"alg\":\"RS256\",\"kid\":\"other-key\"}";
+
+        assertRejectedAlike(signed(header, payload("\"sub\":\"u1\""), otherKey), AuthFailureReason.INVALID_SIGNATURE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"at+jwt", "JOSE", "JWE"})
+    void otherTypesAreRejected(String type) throws Exception {
+        assertRejectedAlike(signed(header(type), payload("\"sub\":\"u1\""), realmKey),
+                AuthFailureReason.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void jwtTypeIsAccepted() throws Exception {
+        String token = signed(header(JOSEObjectType.JWT.getType()), payload("\"sub\":\"u1\""), realmKey);
+
+        assertThat(projecting.decode(token).getClaims()).isEqualTo(nimbus.decode(token).getClaims());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "\"sub\":\"u1\",\"sub\":\"u2\"",
+            "\"sub\":\"u1\",\"tenant\":1,\"tenant\":2",
+            "\"iss\":123,\"sub\":\"u1\"",
+            "\"sub\":true",
+            "\"sub\":\"u1\",\"jti\":[\"a\"]",
+            "\"sub\":\"u1\",\"exp\":\"tomorrow\"",
+            "\"sub\":\"u1\",\"iat\":{}",
+            "\"sub\":\"u1\",\"aud\":[1,2]"})
+    void malformedClaimsAreRejected(String claims) throws Exception {
+        String token = signed(header(null), "{" + claims + "}", realmKey);
+
+        assertRejectedAlike(token, AuthFailureReason.MALFORMED);
+    }
+
+    @Test
+    void duplicateMembersOfNestedObjectsAreRejected() throws Exception {
+        // Stricter than Nimbus, which keeps the last one: the payload is checked in one pass
+        String token = signed(header(null), payload("\"sub\":\"u1\",\"tenant\":{\"id\":1,\"id\":2}"), realmKey);
+
+        JwtException rejected = catchThrowableOfType(() -> projecting.decode(token), JwtException.class);
+
+        assertThat(rejected).isInstanceOf(BadJwtException.class);
+        assertThat(AuthFailureReason.ofDecodeFailure(rejected)).isEqualTo(AuthFailureReason.MALFORMED);
+    }
+
+    @Test
+    void trailingSegmentIsRejected() throws Exception {
+        String token = signed(header(null), payload("\"sub\":\"u1\""), realmKey);
+
+        assertRejectedAlike(token + ".", AuthFailureReason.MALFORMED);
+        assertRejectedAlike(token + ".e30", AuthFailureReason.MALFORMED);
+        assertRejectedAlike(token.replaceFirst("\\.", ".."), AuthFailureReason.MALFORMED);
+    }
+
+    private static void assertRejectedAlike(String token, AuthFailureReason reason) {
+        JwtException expected = catchThrowableOfType(() -> nimbus.decode(token), JwtException.class);
+        JwtException actual = catchThrowableOfType(() -> projecting.decode(token), JwtException.class);
+
+        assertThat(expected).as("Nimbus rejects the token").isNotNull();
+        assertThat(actual).as("projecting decoder rejects the token").isNotNull();
+        assertThat(actual).isExactlyInstanceOf(expected.getClass());
+        assertThat(AuthFailureReason.ofDecodeFailure(actual)).isEqualTo(AuthFailureReason.ofDecodeFailure(expected))
+                .isEqualTo(reason);
+    }
+
+    /**
+     * Maps and lists are compared by content; scalars must have Nimbus' exact type (Long, Double, ...)
+     */
+    private static Class<?> kind(Object value) {
+        if (value instanceof Map) {
+            return Map.class;
+        }
+        return value instanceof List ? List.class : value.getClass();
+    }
+
+    private static String header(String type) {
+        return type == null
+                ? "{\"alg\":\"RS256\",\"kid\":\"" + KID + "\"}"
+                : "{\"alg\":\"RS256\",\"typ\":\"" + type + "\",\"kid\":\"" + KID + "\"}";
+    }
+
+    /**
+     * A payload with the given members plus a current iat and exp
+     */
+    private static String payload(String members) {
+        long now = Instant.now().getEpochSecond();
+        return "{" + members + ",\"iat\":" + now + ",\"exp\":" + (now + 300) + "}";
+    }
+
+    /**
+     * Signed over the exact JSON given, so payloads Nimbus' builders would not write can be tested
+     */
+    private static String signed(String header, String payload, RSAKey key) throws Exception {
+        String signingInput = encode(header) + '.' + encode(payload);
+        String signature = new RSASSASigner(key).sign(new JWSHeader(JWSAlgorithm.RS256),
+                signingInput.getBytes(StandardCharsets.US_ASCII)).toString();
+        return signingInput + '.' + signature;
+    }
+
+    private static String encode(String json) {
+        return BASE64URL.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Role managers are compiled into a mask sized by the highest required bit,
+ * so an empty requirement is refused instead of compiled.
+ */
+class RoleDictionaryTest {
+
+    private final RoleDictionary roles = new RoleDictionary();
+
+    @Test
+    void emptyRoleSetsAreRejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> roles.hasAnyRole());
+        assertThatIllegalArgumentException().isThrownBy(() -> roles.hasAnyAuthority());
+    }
+
+    @Test
+    void anyRequiredRoleGrants() {
+        RoleAuthorizationManager<Object> manager = roles.hasAnyRole("ADMIN", "AUDITOR");
+
+        assertThat(manager.isGranted(new TestingAuthenticationToken("a", "n/a", "ROLE_AUDITOR"))).isTrue();
+        assertThat(manager.isGranted(new TestingAuthenticationToken("u", "n/a", "ROLE_USER"))).isFalse();
+    }
+}
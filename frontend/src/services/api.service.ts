@@ -88,6 +88,8 @@ export interface UserInfoResponse {
     issuedAt: string;
     expiresAt: string;
   };
+  /** Keycloak userinfo attributes, when userinfo enrichment is enabled and the profile is available */
+  profile?: Record<string, unknown>;
 }
 
 export interface HealthResponse {
@@ -104,6 +106,24 @@ export interface AdminActionResponse {
   receivedPayload?: Record<string, unknown>;
 }
 
+export interface BatchSubRequest {
+  id?: string;
+  method: 'GET' | 'POST';
+  path: string;
+  body?: unknown;
+}
+
+export interface BatchSubResponse {
+  id: string;
+  status: number;
+  headers?: Record<string, string>;
+  body?: unknown;
+}
+
+export interface BatchResponse {
+  responses: BatchSubResponse[];
+}
+
 /**
  * API Methods
  */
@@ -139,6 +159,12 @@ export const api = {
     const response = await apiClient.post('/api/hello/action', payload || {});
     return response.data;
   },
+
+  // Several requests under one authentication; responses arrive in completion order
+  batch: async (requests: BatchSubRequest[]): Promise<BatchResponse> => {
+    const response = await apiClient.post('/api/batch', { requests });
+    return response.data;
+  },
 };
 
 export default apiClient;